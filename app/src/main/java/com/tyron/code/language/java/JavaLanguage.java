@@ -12,10 +12,10 @@ import com.tyron.code.language.CompletionItemWrapper;
 import com.tyron.code.language.EditorFormatter;
 import com.tyron.code.language.LanguageManager;
 import com.tyron.completion.CompletionParameters;
-import com.tyron.completion.java.JavaCompletionProvider;
 import com.tyron.completion.java.compiler.services.NBLog;
 import com.tyron.completion.java.parse.CompilationInfo;
-import com.tyron.completion.model.CompletionList;
+import com.tyron.completion.main.CompletionEngine;
+import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.editor.Editor;
 import com.tyron.language.api.CodeAssistLanguage;
 
@@ -156,12 +156,22 @@ public class JavaLanguage  implements Language, EditorFormatter, CodeAssistLangu
                 .setContents(content.getReference().toString())
                 .setPrefix(prefix)
                 .build();
-        JavaCompletionProvider provider = new JavaCompletionProvider();
-        CompletionList list = provider.complete(parameters);
-
         publisher.setUpdateThreshold(0);
-        publisher.addItems(list.getItems().stream().map(CompletionItemWrapper::new)
-                .collect(Collectors.toList()));
+        try {
+            // the cheap items are shown while the class names are still being searched
+            CompletionEngine.getInstance().complete(parameters, list -> {
+                try {
+                    publisher.addItems(list.getItems().stream().map(CompletionItemWrapper::new)
+                            .collect(Collectors.toList()));
+                    publisher.updateList();
+                } catch (CompletionCancelledException e) {
+                    // the prefix has changed, stop computing the next tiers
+                    throw new ProcessCanceledException(e);
+                }
+            });
+        } catch (ProcessCanceledException e) {
+            throw new CompletionCancelledException();
+        }
     }
 
     @Override
@@ -10,6 +10,7 @@ import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.widget.FrameLayout;
 
+import androidx.annotation.Nullable;
 import androidx.appcompat.widget.ForwardingListener;
 import androidx.core.content.res.ResourcesCompat;
 
@@ -34,6 +35,8 @@ import com.tyron.code.util.PopupMenuHelper;
 import com.tyron.common.util.AndroidUtilities;
 import com.tyron.common.util.DebouncerStore;
 import com.tyron.completion.java.util.JavaDataContextUtil;
+import com.tyron.completion.progress.PriorityScheduler;
+import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.completion.progress.ProgressManager;
 import com.tyron.diagnostics.DiagnosticProvider;
 import com.tyron.editor.Content;
@@ -77,6 +80,7 @@ public class RosemoeEditorFacade {
     private final Content content;
     private final FrameLayout container;
     private final CodeEditorView editor;
+    private final Object reparseKey = new Object();
 
     private View.OnTouchListener dragToOpenListener;
 
@@ -110,11 +114,7 @@ public class RosemoeEditorFacade {
     private void onContentChange(Content content) {
         Language language = editor.getEditorLanguage();
         File currentFile = editor.getCurrentFile();
-        Project project = editor.getProject();
-        if (project == null) {
-            return;
-        }
-        Module module = project.getModule(currentFile);
+        Module module = getModule(currentFile);
         if (module == null) {
             return;
         }
@@ -122,6 +122,18 @@ public class RosemoeEditorFacade {
         if (language instanceof CodeAssistLanguage) {
             ((CodeAssistLanguage) language).onContentChange(currentFile, content);
         }
+    }
+
+    /**
+     * Updates the diagnostics shown in the editor, called after the content change has been
+     * processed by {@link #onContentChange(Content)}
+     */
+    private void updateDiagnostics() {
+        File currentFile = editor.getCurrentFile();
+        Module module = getModule(currentFile);
+        if (module == null) {
+            return;
+        }
 
         Objects.requireNonNull(editor.getDiagnostics()).reset();
 
@@ -150,6 +162,15 @@ public class RosemoeEditorFacade {
         }
     }
 
+    @Nullable
+    private Module getModule(File file) {
+        Project project = editor.getProject();
+        if (project == null) {
+            return null;
+        }
+        return project.getModule(file);
+    }
+
     @SuppressLint("ClickableViewAccessibility")
     private void configureEditor(CodeEditorView editor, FileObject file) {
         Language language = LanguageManager.getInstance().get(editor, file);
@@ -248,16 +269,34 @@ public class RosemoeEditorFacade {
                 }
             }
         });
+        // a newer change of this editor supersedes the analysis of the previous one, the
+        // reparse runs on the interactive lane since completion needs the updated tree
         editor.subscribeEvent(ContentChangeEvent.class,
-                (event, unsubscribe) -> ProgressManager.getInstance()
-                        .runNonCancelableAsync(() -> DebouncerStore.DEFAULT.registerOrGetDebouncer(
-                                "contentChange").debounce(300, () -> {
+                (event, unsubscribe) -> DebouncerStore.DEFAULT.registerOrGetDebouncer(
+                        "contentChange").debounce(300, () -> ProgressManager.getInstance()
+                        .runAsync(PriorityScheduler.Priority.INTERACTIVE, reparseKey, () -> {
                             try {
                                 onContentChange(editor.getContent());
+                            } catch (ProcessCanceledException e) {
+                                throw e;
                             } catch (Throwable t) {
                                 LOGGER.error("Error in onContentChange", t);
                             }
-                        })));
+                            ProgressManager.checkCanceled();
+                            ProgressManager.getInstance()
+                                    .runAsync(PriorityScheduler.Priority.DIAGNOSTICS, editor,
+                                            this::runUpdateDiagnostics, indicator -> {});
+                        }, indicator -> {})));
+    }
+
+    private void runUpdateDiagnostics() {
+        try {
+            updateDiagnostics();
+        } catch (ProcessCanceledException e) {
+            throw e;
+        } catch (Throwable t) {
+            LOGGER.error("Error in updateDiagnostics", t);
+        }
     }
 
     /**
@@ -11,6 +11,7 @@ import android.os.Bundle;
 import android.util.Log;
 import android.view.Display;
 import android.view.DragEvent;
+import android.view.InflateException;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -48,7 +49,9 @@ import com.tyron.code.ui.layoutEditor.model.EditorDragState;
 import com.tyron.code.ui.project.ProjectManager;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
+import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.api.Module;
+import com.tyron.builder.project.listener.FileListener;
 import com.tyron.code.R;
 import com.tyron.code.ui.layoutEditor.attributeEditor.AttributeEditorDialogFragment;
 import com.tyron.code.ui.layoutEditor.model.ViewPalette;
@@ -68,7 +71,8 @@ import java.util.concurrent.Executors;
 
 import kotlin.Pair;
 
-public class LayoutEditorFragment extends Fragment implements ProjectManager.OnProjectOpenListener {
+public class LayoutEditorFragment extends Fragment implements ProjectManager.OnProjectOpenListener,
+        FileListener {
 
     public static final String KEY_SAVE = "KEY_SAVE";
 
@@ -90,6 +94,7 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
 
     private File mCurrentFile;
     private PreviewLayoutInflater mInflater;
+    private FileManager mFileManager;
     private BoundaryDrawingFrameLayout mEditorRoot;
     private EditorDragListener mDragListener;
 
@@ -293,6 +298,9 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
     public void onDestroyView() {
         super.onDestroyView();
 
+        if (mFileManager != null) {
+            mFileManager.removeSnapshotListener(this);
+        }
         ProjectManager.getInstance().removeOnProjectOpenListener(this);
     }
 
@@ -322,6 +330,7 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
         // need to wrap the context to a default theme so
         // material widgets wont use CodeAssist's theme
         ContextThemeWrapper wrapper = new ContextThemeWrapper(requireContext(), R.style.Theme_MaterialComponents_DayNight);
+        mFileManager = module.getFileManager();
         mInflater = new PreviewLayoutInflater(wrapper, (AndroidModule) module);
         mInflater.parseResources(mService).whenComplete((inflater, exception) ->
                 requireActivity().runOnUiThread(() -> {
@@ -358,11 +367,48 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
             setClickListeners(mEditorRoot);
 
             requireActivity().runOnUiThread(() -> resizeLayoutEditor(mEditorRoot));
+
+            // edits of the layout file are applied to the inflated views from now on
+            mFileManager.removeSnapshotListener(this);
+            mFileManager.addSnapshotListener(this);
         } else {
             exit(getString(R.string.error), "Unable to inflate layout.");
         }
     }
 
+    @Override
+    public void onSnapshotChanged(File file, CharSequence contents) {
+        if (!mCurrentFile.equals(file)) {
+            return;
+        }
+        String xml = contents.toString();
+        mEditorRoot.post(() -> updateLayout(xml));
+    }
+
+    /**
+     * Applies the changes of the layout XML to the inflated views instead of inflating the
+     * whole layout again, the root view is only replaced if it could not be updated.
+     */
+    private void updateLayout(String xml) {
+        if (getView() == null || !(mEditorRoot.getChildAt(0) instanceof ProteusView)) {
+            return;
+        }
+        ProteusView current = (ProteusView) mEditorRoot.getChildAt(0);
+        ProteusView updated;
+        try {
+            updated = mInflater.update(current, xml);
+        } catch (InflateException e) {
+            // the xml is usually incomplete while it is being typed, keep the current preview
+            return;
+        }
+        if (updated != current) {
+            mEditorRoot.removeAllViews();
+            mEditorRoot.addView(updated.getAsView());
+        }
+        setDragListeners(mEditorRoot);
+        setClickListeners(mEditorRoot);
+    }
+
     private void resizeLayoutEditor(View root) {
         final Point point = new Point();
         ((WindowManager)requireActivity().getSystemService(Context.WINDOW_SERVICE))
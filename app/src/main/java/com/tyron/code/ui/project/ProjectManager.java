@@ -309,7 +309,10 @@ public class ProjectManager {
                     break;
                 case JAVA_LIBRARY:
                     if (artifact != null && artifact.exists()) {
-                        impl.addLibrary(CodeAssistLibrary.forJar(artifact));
+                        CodeAssistLibrary codeAssistLibrary = CodeAssistLibrary.forJar(artifact);
+                        codeAssistLibrary.setDeclaration(library.getKey());
+                        codeAssistLibrary.setDependencies(getDependencyKeys(compileDependency));
+                        impl.addLibrary(codeAssistLibrary);
                     }
                     break;
                 case ANDROID_LIBRARY:
@@ -318,6 +321,7 @@ public class ProjectManager {
 
                     CodeAssistAndroidLibrary codeAssistAndroidLibrary = new CodeAssistAndroidLibrary();
                     codeAssistAndroidLibrary.setDeclaration(library.getKey());
+                    codeAssistAndroidLibrary.setDependencies(getDependencyKeys(compileDependency));
                     codeAssistAndroidLibrary.setSourceFile(null);
                     codeAssistAndroidLibrary.setCompileJarFiles(androidLibraryData.getCompileJarFiles());
                     codeAssistAndroidLibrary.setPublicResources(androidLibraryData.getPublicResources());
@@ -345,6 +349,17 @@ public class ProjectManager {
         indexModule(impl);
     }
 
+    /**
+     * @return the keys of the resolved libraries the dependency depends on
+     */
+    private static List<String> getDependencyKeys(GraphItem dependency) {
+        List<String> keys = new ArrayList<>();
+        for (GraphItem item : dependency.getDependencies()) {
+            keys.add(item.getKey());
+        }
+        return keys;
+    }
+
     /**
      * Indexes each module so completion would work immediately
      * <p>
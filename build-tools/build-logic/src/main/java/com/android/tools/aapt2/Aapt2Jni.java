@@ -79,6 +79,11 @@ public class Aapt2Jni {
      */
     @SuppressWarnings({"unused", "SameParameterValue"})
     private void log(int level, String path, long line, String message) {
+        mDiagnostics.add(createDiagnostic(level, path, line, message));
+    }
+
+    private static DiagnosticWrapper createDiagnostic(int level, String path, long line,
+                                                      String message) {
         DiagnosticWrapper wrapper = new DiagnosticWrapper();
         switch (level) {
             case LOG_LEVEL_ERROR:
@@ -103,7 +108,7 @@ public class Aapt2Jni {
             wrapper.setStartLine((int) line);
         }
         wrapper.setMessage(message);
-        mDiagnostics.add(wrapper);
+        return wrapper;
     }
 
     private void clearLogs() {
@@ -128,7 +133,29 @@ public class Aapt2Jni {
 
         args.add(0, "compile");
         args.add(0, getBinary());
-        return executeBinary(args, instance);
+        return executeBinary(args, instance.mDiagnostics);
+    }
+
+    /**
+     * Compile resources with Aapt2, the logs are added to the given list instead of the ones
+     * returned by {@link #getLogs()} so multiple files can be compiled at the same time
+     *
+     * @param args the arguments to pass to aapt2
+     * @param logs the list to add the logs of this compilation to
+     * @return exit code, non zero if theres an error
+     */
+    public static int compile(List<String> args, List<DiagnosticWrapper> logs) {
+        Aapt2Jni instance = Aapt2Jni.getInstance();
+
+        // aapt2 has failed to load, fail early
+        if (instance.mFailureString != null) {
+            logs.add(createDiagnostic(LOG_LEVEL_ERROR, null, -1, instance.mFailureString));
+            return -1;
+        }
+
+        args.add(0, "compile");
+        args.add(0, getBinary());
+        return executeBinary(args, logs);
     }
 
     public static int link(List<String> args) {
@@ -144,7 +171,7 @@ public class Aapt2Jni {
         args.add(0, "link");
         args.add(0, getBinary());
 
-        return executeBinary(args, instance);
+        return executeBinary(args, instance.mDiagnostics);
     }
 
     private static File sAapt2Binary;
@@ -185,11 +212,12 @@ public class Aapt2Jni {
         return BuildModule.getContext().getApplicationInfo().nativeLibraryDir + "/libaapt2.so";
     }
 
-    private static int executeBinary(List<String> args, Aapt2Jni logger) {
+    private static int executeBinary(List<String> args, List<DiagnosticWrapper> diagnostics) {
         BinaryExecutor binaryExecutor = new BinaryExecutor();
         binaryExecutor.setCommands(args);
         String execute = binaryExecutor.execute();
         String[] lines = execute.split("\n");
+        boolean hasErrors = false;
         for (String line : lines) {
             if (TextUtils.isEmpty(line)) {
                 continue;
@@ -226,9 +254,14 @@ public class Aapt2Jni {
                 message = line;
             }
 
-            logger.log(getLogLevel(level), path, getLineNumber(lineNumber), message);
+            DiagnosticWrapper diagnostic = createDiagnostic(getLogLevel(level), path,
+                    getLineNumber(lineNumber), message);
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                hasErrors = true;
+            }
+            diagnostics.add(diagnostic);
         }
-        return logger.mDiagnostics.stream().anyMatch(it -> it.getKind() == Diagnostic.Kind.ERROR) ? 1 : 0;
+        return hasErrors ? 1 : 0;
     }
 
     public static List<DiagnosticWrapper> getLogs() {
@@ -5,6 +5,7 @@ import com.tyron.builder.compiler.apk.SignTask;
 import com.tyron.builder.compiler.apk.ZipAlignTask;
 import com.tyron.builder.compiler.dex.R8Task;
 import com.tyron.builder.compiler.firebase.GenerateFirebaseConfigTask;
+import com.tyron.builder.compiler.incremental.dex.DexLibrariesTask;
 import com.tyron.builder.compiler.incremental.dex.IncrementalD8Task;
 import com.tyron.builder.compiler.incremental.java.IncrementalJavaTask;
 import com.tyron.builder.compiler.incremental.kotlin.IncrementalKotlinCompiler;
@@ -35,10 +36,16 @@ public class AndroidAppBuilder extends BuilderImpl<AndroidModule> {
         AndroidModule module = getModule();
         ILogger logger = getLogger();
 
+        boolean useR8 = module.getSettings().getBoolean(ModuleSettings.USE_R8, false) &&
+                type == BuildType.RELEASE;
+
         List<Task<? super AndroidModule>> tasks = new ArrayList<>();
         tasks.add(new CleanTask(getProject(), module, logger));
         tasks.add(new CheckLibrariesTask(getProject(), module, logger));
         tasks.add(new ManifestMergeTask(getProject(), module, logger));
+        if (!useR8) {
+            tasks.add(new DexLibrariesTask(getProject(), module, logger));
+        }
         tasks.add(new GenerateFirebaseConfigTask(getProject(), module, logger));
         if (type == BuildType.DEBUG) {
             tasks.add(new InjectLoggerTask(getProject(), module, logger));
@@ -49,8 +56,7 @@ public class AndroidAppBuilder extends BuilderImpl<AndroidModule> {
         tasks.add(new MergeSymbolsTask(getProject(), module, logger));
         tasks.add(new IncrementalKotlinCompiler(getProject(), module, logger));
         tasks.add(new IncrementalJavaTask(getProject(), module, logger));
-        if (module.getSettings().getBoolean(ModuleSettings.USE_R8, false) &&
-                type == BuildType.RELEASE) {
+        if (useR8) {
             tasks.add(new R8Task(getProject(), module, logger));
         } else {
             tasks.add(new IncrementalD8Task(getProject(), module, logger));
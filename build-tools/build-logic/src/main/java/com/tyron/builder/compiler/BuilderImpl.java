@@ -11,12 +11,36 @@ import com.tyron.builder.log.ILogger;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.Module;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs the tasks of a build in their order, except that tasks which declare their inputs and
+ * outputs with {@link Task#getInputs()} and {@link Task#getOutputs()} run at the same time as
+ * the tasks they do not share any files with.
+ */
 public abstract class BuilderImpl<T extends Module> implements Builder<T> {
 
+    /**
+     * The maximum number of tasks that run at the same time
+     */
+    private static final int MAX_PARALLEL_TASKS =
+            Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
     private final Handler mMainHandler;
     private final Project mProject;
     private final T mModule;
@@ -58,28 +82,202 @@ public abstract class BuilderImpl<T extends Module> implements Builder<T> {
     public final void build(BuildType type) throws CompilationFailedException, IOException {
         mTasksRan.clear();
         List<Task<? super T>> tasks = getTasks(type);
-        for (int i = 0, tasksSize = tasks.size(); i < tasksSize; i++) {
-            Task<? super T> task = tasks.get(i);
-            final float current = i;
-            getLogger().info("Running " + task.getName());
-            try {
-                mMainHandler.post(() -> updateProgress(task.getName(), "Task started",
-                        (int) ((current / (float) tasks.size()) * 100f)));
-                task.prepare(type);
-                task.run();
-            } catch (Throwable e) {
-                if (e instanceof OutOfMemoryError) {
-                    tasks.clear();
-                    mTasksRan.clear();
-                    throw new CompilationFailedException("Builder ran out of memory", e);
+        List<Set<Integer>> dependencies = getDependencies(tasks);
+        long[] durations = new long[tasks.size()];
+        long buildStart = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_PARALLEL_TASKS, r -> {
+            Thread thread = new Thread(r, "Builder task");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        Map<Integer, Future<Integer>> running = new HashMap<>();
+        Set<Integer> finished = new HashSet<>();
+        Set<Integer> started = new HashSet<>();
+        try {
+            while (finished.size() < tasks.size()) {
+                for (int i = 0; i < tasks.size(); i++) {
+                    if (started.contains(i) || !finished.containsAll(dependencies.get(i))) {
+                        continue;
+                    }
+                    started.add(i);
+                    running.put(i, completionService.submit(
+                            createTaskRunner(tasks, i, finished.size(), type, durations)));
+                }
+
+                Future<Integer> future = completionService.take();
+                int index = running.entrySet().stream()
+                        .filter(it -> it.getValue() == future)
+                        .findFirst()
+                        .map(Map.Entry::getKey)
+                        .orElseThrow(IllegalStateException::new);
+                running.remove(index);
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    stop(executor, running);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof OutOfMemoryError) {
+                        tasks.clear();
+                        mTasksRan.clear();
+                        throw new CompilationFailedException("Builder ran out of memory", cause);
+                    }
+                    // the tasks that were still running or not taken yet have to be cleaned
+                    // as well, they may have changed the sources of the project
+                    cleanStarted(tasks, started);
+                    throw rethrow(cause);
                 }
-                task.clean();
-                mTasksRan.forEach(Task::clean);
-                throw e;
+                finished.add(index);
+                mTasksRan.add(tasks.get(index));
             }
-            mTasksRan.add(task);
+        } catch (InterruptedException e) {
+            stop(executor, running);
+            cleanStarted(tasks, started);
+            Thread.currentThread().interrupt();
+            throw new CompilationFailedException("Build was cancelled", e);
+        } finally {
+            executor.shutdown();
         }
         mTasksRan.forEach(Task::clean);
+
+        reportDurations(tasks, dependencies, durations, System.currentTimeMillis() - buildStart);
+    }
+
+    private Callable<Integer> createTaskRunner(List<Task<? super T>> tasks, int index,
+                                               int finishedCount, BuildType type,
+                                               long[] durations) {
+        Task<? super T> task = tasks.get(index);
+        return () -> {
+            getLogger().info("Running " + task.getName());
+            mMainHandler.post(() -> updateProgress(task.getName(), "Task started",
+                    (int) ((finishedCount / (float) tasks.size()) * 100f)));
+            long start = System.currentTimeMillis();
+            task.prepare(type);
+            task.run();
+            durations[index] = System.currentTimeMillis() - start;
+            return index;
+        };
+    }
+
+    /**
+     * Cancels the running tasks and waits for them to stop, so they are not cleaned while they
+     * are still running
+     */
+    private void stop(ExecutorService executor, Map<Integer, Future<Integer>> running) {
+        running.values().forEach(future -> future.cancel(true));
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                getLogger().warning("Timed out waiting for the running tasks to stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void cleanStarted(List<? extends Task<?>> tasks, Set<Integer> started) {
+        for (int index : started) {
+            tasks.get(index).clean();
+        }
+    }
+
+    private static CompilationFailedException rethrow(Throwable throwable) throws IOException {
+        if (throwable instanceof IOException) {
+            throw (IOException) throwable;
+        }
+        if (throwable instanceof CompilationFailedException) {
+            return (CompilationFailedException) throwable;
+        }
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        }
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return new CompilationFailedException(throwable.getMessage(), throwable);
+    }
+
+    /**
+     * @return the indices of the tasks that each task has to run after
+     */
+    @VisibleForTesting
+    static List<Set<Integer>> getDependencies(List<? extends Task<?>> tasks) {
+        List<Set<Integer>> dependencies = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            Task<?> task = tasks.get(i);
+            Set<Integer> taskDependencies = new HashSet<>();
+            for (int j = 0; j < i; j++) {
+                if (conflicts(tasks.get(j), task)) {
+                    taskDependencies.add(j);
+                }
+            }
+            dependencies.add(taskDependencies);
+        }
+        return dependencies;
+    }
+
+    private static boolean conflicts(Task<?> first, Task<?> second) {
+        Set<File> firstInputs = first.getInputs();
+        Set<File> firstOutputs = first.getOutputs();
+        Set<File> secondInputs = second.getInputs();
+        Set<File> secondOutputs = second.getOutputs();
+        if (firstInputs == null || firstOutputs == null ||
+            secondInputs == null || secondOutputs == null) {
+            return true;
+        }
+        return overlaps(firstOutputs, secondInputs) ||
+               overlaps(firstInputs, secondOutputs) ||
+               overlaps(firstOutputs, secondOutputs);
+    }
+
+    private static boolean overlaps(Set<File> first, Set<File> second) {
+        for (File a : first) {
+            String aPath = a.getAbsolutePath();
+            for (File b : second) {
+                String bPath = b.getAbsolutePath();
+                if (aPath.equals(bPath) ||
+                    aPath.startsWith(bPath + File.separator) ||
+                    bPath.startsWith(aPath + File.separator)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Logs how long each task took and the chain of tasks that the build had to wait for
+     */
+    private void reportDurations(List<Task<? super T>> tasks, List<Set<Integer>> dependencies,
+                                 long[] durations, long buildDuration) {
+        long[] finishTimes = new long[tasks.size()];
+        int[] previous = new int[tasks.size()];
+        int last = -1;
+        for (int i = 0; i < tasks.size(); i++) {
+            previous[i] = -1;
+            for (int dependency : dependencies.get(i)) {
+                if (previous[i] == -1 || finishTimes[dependency] > finishTimes[previous[i]]) {
+                    previous[i] = dependency;
+                }
+            }
+            finishTimes[i] = durations[i] + (previous[i] == -1 ? 0 : finishTimes[previous[i]]);
+            if (last == -1 || finishTimes[i] > finishTimes[last]) {
+                last = i;
+            }
+            getLogger().debug(tasks.get(i).getName() + " took " + durations[i] + " ms");
+        }
+
+        if (last == -1) {
+            return;
+        }
+        StringBuilder path = new StringBuilder();
+        for (int i = last; i != -1; i = previous[i]) {
+            String entry = tasks.get(i).getName() + " (" + durations[i] + " ms)";
+            path.insert(0, path.length() == 0 ? entry : entry + " -> ");
+        }
+        getLogger().debug("Build took " + buildDuration + " ms, critical path of " +
+                          finishTimes[last] + " ms: " + path);
     }
 
     public abstract List<Task<? super T>> getTasks(BuildType type);
@@ -5,7 +5,9 @@ import com.tyron.builder.exception.CompilationFailedException;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.Module;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.Set;
 
 /**
  *
@@ -44,6 +46,27 @@ public abstract class Task<T extends Module> {
      */
     public abstract String getName();
 
+    /**
+     * The files and directories this task reads. A task runs after the tasks before it that
+     * write to its inputs, and may run at the same time as the tasks it does not share any
+     * files with. Called before {@link #prepare(BuildType)}.
+     *
+     * @return null if the inputs are not known, the task then runs after every task before it
+     * and before every task after it
+     */
+    public Set<File> getInputs() {
+        return null;
+    }
+
+    /**
+     * The files and directories this task writes, see {@link #getInputs()}
+     *
+     * @return null if the outputs are not known
+     */
+    public Set<File> getOutputs() {
+        return null;
+    }
+
     /**
      * Called before run() to give the subclass information about the project
      * @throws IOException if an exception occurred during a file operation
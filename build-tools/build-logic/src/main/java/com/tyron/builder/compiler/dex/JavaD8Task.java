@@ -231,16 +231,20 @@ public class JavaD8Task extends Task<JavaModule> {
                 }
                 if (lib.exists()) {
                     getLogger().debug("Dexing jar " + parentFile.getName());
-                    D8Command command = D8Command.builder(diagnosticsHandler)
-                            .addLibraryFiles(getLibraryFiles())
-                            .addClasspathFiles(libraries.stream().map(File::toPath)
-                                    .collect(Collectors.toList()))
-                            .setMinApiLevel(21)
-                            .addProgramFiles(lib.toPath())
-                            .setMode(CompilationMode.RELEASE)
-                            .setOutput(lib.getParentFile().toPath(), OutputMode.DexIndexed)
-                            .build();
-                    D8.run(command);
+                    List<File> classpath = LibraryClasspath.get(getModule(), lib);
+                    LibraryDexCache.dexLibrary(getLogger(), lib, classpath, 21, CompilationMode.RELEASE,
+                            parentFile, output -> {
+                        D8Command command = D8Command.builder(diagnosticsHandler)
+                                .addLibraryFiles(getLibraryFiles())
+                                .addClasspathFiles(classpath.stream().map(File::toPath)
+                                        .collect(Collectors.toList()))
+                                .setMinApiLevel(21)
+                                .addProgramFiles(lib.toPath())
+                                .setMode(CompilationMode.RELEASE)
+                                .setOutput(output.toPath(), OutputMode.DexIndexed)
+                                .build();
+                        D8.run(command);
+                    });
                 }
             }
         }
@@ -0,0 +1,92 @@
+package com.tyron.builder.compiler.dex;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tyron.builder.model.CodeAssistLibrary;
+import com.tyron.builder.project.api.JavaModule;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Finds the classpath a library is dexed against: the jars of the libraries its pom depends on,
+ * directly or transitively. A library can only reference those, so dexing it against them
+ * produces the same dex files as dexing it against every library of the project, while the
+ * {@link LibraryDexCache} entry of the library does not change when unrelated libraries are
+ * added to or removed from the project.
+ *
+ * Libraries whose dependencies are not known, such as local jars, are dexed against every
+ * library of the project.
+ */
+public class LibraryClasspath {
+
+    private LibraryClasspath() {
+
+    }
+
+    /**
+     * @param library the jar of the library, extracted into the build directory of the module
+     * @return the jars the library is dexed against
+     */
+    @NonNull
+    public static List<File> get(@NonNull JavaModule module, @NonNull File library) {
+        return get(library, module.getLibraries(), jar -> {
+            File parent = jar.getParentFile();
+            return parent == null ? null : module.getLibrary(parent.getName());
+        });
+    }
+
+    /**
+     * @param libraries every library of the project
+     * @param lookup returns the library a jar was extracted from, or null if it is unknown
+     * @return the jars the library is dexed against
+     */
+    @NonNull
+    static List<File> get(@NonNull File library,
+                          @NonNull List<File> libraries,
+                          @NonNull Function<File, CodeAssistLibrary> lookup) {
+        Map<String, File> jars = new HashMap<>();
+        Map<File, CodeAssistLibrary> models = new HashMap<>();
+        for (File jar : libraries) {
+            CodeAssistLibrary model = lookup.apply(jar);
+            if (model != null) {
+                models.put(jar, model);
+                if (model.getDeclaration() != null) {
+                    jars.put(model.getDeclaration(), jar);
+                }
+            }
+        }
+
+        Set<File> classpath = new LinkedHashSet<>();
+        Deque<File> queue = new ArrayDeque<>();
+        queue.add(library);
+        while (!queue.isEmpty()) {
+            List<String> dependencies = getDependencies(models.get(queue.removeFirst()));
+            if (dependencies == null) {
+                return libraries;
+            }
+            for (String dependency : dependencies) {
+                File jar = jars.get(dependency);
+                // optional and excluded dependencies are not part of the project
+                if (jar != null && !jar.equals(library) && classpath.add(jar)) {
+                    queue.addLast(jar);
+                }
+            }
+        }
+        return new ArrayList<>(classpath);
+    }
+
+    @Nullable
+    private static List<String> getDependencies(@Nullable CodeAssistLibrary library) {
+        return library == null ? null : library.getDependencies();
+    }
+}
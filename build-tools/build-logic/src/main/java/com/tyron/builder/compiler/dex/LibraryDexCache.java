@@ -0,0 +1,236 @@
+package com.tyron.builder.compiler.dex;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.Version;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.tyron.builder.BuildModule;
+import com.tyron.builder.log.ILogger;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Stores the dex files of libraries in a directory shared by every project, so a library is
+ * only dexed once as long as its contents, the minimum sdk, the D8 version and the compilation
+ * mode are the same. Below API 24 D8 desugars default and static interface methods using the
+ * classpath, so the contents of the classpath jars are part of the key as well. The classpath
+ * of a library is the libraries its pom depends on, found by {@link LibraryClasspath}, so the
+ * entry of a library is shared by the projects that resolve its dependencies to the same jars.
+ *
+ * The entries are evicted by the time they were last used when the cache grows beyond its
+ * maximum size.
+ */
+public class LibraryDexCache {
+
+    /**
+     * Dexes a library into the given directory
+     */
+    public interface Dexer {
+        void dex(File outputDirectory) throws com.android.tools.r8.CompilationFailedException;
+    }
+
+    private static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+    /**
+     * The number of jar hashes that are remembered
+     */
+    private static final int MAX_JAR_HASHES = 1_000;
+
+    /**
+     * The minimum sdk from which D8 no longer needs the classpath to desugar interfaces
+     */
+    private static final int MIN_SDK_NATIVE_INTERFACE_METHODS = 24;
+
+    private static LibraryDexCache sInstance;
+
+    /**
+     * @return the cache of the application, or null if the build module is not initialized
+     */
+    @Nullable
+    public static synchronized LibraryDexCache getInstance() {
+        if (sInstance == null) {
+            Context context = BuildModule.getContext();
+            if (context == null) {
+                return null;
+            }
+            sInstance = new LibraryDexCache(new File(context.getCacheDir(), "library-dex"),
+                    DEFAULT_MAX_SIZE);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Dexes the library into the output directory, the dex files are copied from the cache of
+     * the application if the library has been dexed before
+     */
+    public static void dexLibrary(@NonNull ILogger logger, @NonNull File library,
+                                  @NonNull List<File> classpath, int minSdk,
+                                  @NonNull CompilationMode mode, @NonNull File outputDirectory,
+                                  @NonNull Dexer dexer)
+            throws com.android.tools.r8.CompilationFailedException {
+        LibraryDexCache cache = getInstance();
+        if (cache == null) {
+            dexer.dex(outputDirectory);
+            return;
+        }
+        try {
+            cache.dex(library, classpath, minSdk, mode, outputDirectory, dexer);
+        } catch (IOException e) {
+            logger.warning("Unable to use the dex cache for " + library.getName() + ": " +
+                           e.getMessage());
+            dexer.dex(outputDirectory);
+        }
+    }
+
+    private final File mDirectory;
+    private final long mMaxSize;
+
+    /**
+     * Content hashes of the jars, keyed by their path, size and modification time so a
+     * classpath jar is not hashed again for every library dexed against it
+     */
+    private final Cache<String, String> mJarHashes = CacheBuilder.newBuilder()
+            .maximumSize(MAX_JAR_HASHES)
+            .build();
+
+    @VisibleForTesting
+    public LibraryDexCache(@NonNull File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Copies the cached dex files of the library into the output directory, the library is
+     * dexed and added to the cache first if it is not in the cache.
+     *
+     * @param classpath the classpath the library is dexed against
+     */
+    public void dex(@NonNull File library, @NonNull List<File> classpath, int minSdk,
+                    @NonNull CompilationMode mode, @NonNull File outputDirectory,
+                    @NonNull Dexer dexer)
+            throws IOException, com.android.tools.r8.CompilationFailedException {
+        String key = getKey(library, classpath, minSdk, mode);
+        if (copyTo(key, outputDirectory)) {
+            return;
+        }
+
+        File temp = new File(mDirectory, key + ".tmp-" + Thread.currentThread().getId());
+        FileUtils.deleteQuietly(temp);
+        FileUtils.forceMkdir(temp);
+        try {
+            dexer.dex(temp);
+            put(key, temp);
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+
+        if (!copyTo(key, outputDirectory)) {
+            throw new IOException("The dex files of " + library.getName() + " were evicted");
+        }
+    }
+
+    private synchronized boolean copyTo(String key, File outputDirectory) throws IOException {
+        File entry = new File(mDirectory, key);
+        File[] dexFiles = entry.listFiles(file -> file.getName().endsWith(".dex"));
+        if (dexFiles == null || dexFiles.length == 0) {
+            return false;
+        }
+        for (File dexFile : dexFiles) {
+            FileUtils.copyFileToDirectory(dexFile, outputDirectory, false);
+        }
+        // the time of the entry is the time it was last used
+        if (!entry.setLastModified(System.currentTimeMillis())) {
+            FileUtils.touch(entry);
+        }
+        return true;
+    }
+
+    private synchronized void put(String key, File dexDirectory) throws IOException {
+        File entry = new File(mDirectory, key);
+        if (entry.exists()) {
+            return;
+        }
+        if (!dexDirectory.renameTo(entry)) {
+            FileUtils.copyDirectory(dexDirectory, entry);
+        }
+        evict(entry);
+    }
+
+    /**
+     * Deletes the least recently used entries, except the given one, until the cache is not
+     * larger than its maximum size
+     */
+    private void evict(File keep) {
+        File[] entries = mDirectory.listFiles(file -> file.isDirectory() &&
+                                                      !file.getName().contains(".tmp-"));
+        if (entries == null) {
+            return;
+        }
+        long size = 0;
+        for (File entry : entries) {
+            size += FileUtils.sizeOfDirectory(entry);
+        }
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        for (File entry : entries) {
+            if (size <= mMaxSize) {
+                break;
+            }
+            if (entry.equals(keep)) {
+                continue;
+            }
+            long entrySize = FileUtils.sizeOfDirectory(entry);
+            if (FileUtils.deleteQuietly(entry)) {
+                size -= entrySize;
+            }
+        }
+    }
+
+    private String getKey(File library, List<File> classpath, int minSdk, CompilationMode mode)
+            throws IOException {
+        StringBuilder key = new StringBuilder(hash(library));
+        key.append("\n").append(minSdk)
+                .append("\n").append(Version.getVersionString())
+                .append("\n").append(mode);
+        if (minSdk < MIN_SDK_NATIVE_INTERFACE_METHODS) {
+            List<String> hashes = new ArrayList<>();
+            for (File jar : classpath) {
+                if (!jar.equals(library) && jar.isFile()) {
+                    hashes.add(hash(jar));
+                }
+            }
+            // the order of the classpath does not change the output
+            Collections.sort(hashes);
+            for (String hash : hashes) {
+                key.append("\n").append(hash);
+            }
+        }
+        return Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+    }
+
+    private String hash(File jar) throws IOException {
+        String id = jar.getAbsolutePath() + ":" + jar.length() + ":" + jar.lastModified();
+        String hash = mJarHashes.getIfPresent(id);
+        if (hash == null) {
+            hash = Files.asByteSource(jar).hash(Hashing.sha256()).toString();
+            mJarHashes.put(id, hash);
+        }
+        return hash;
+    }
+}
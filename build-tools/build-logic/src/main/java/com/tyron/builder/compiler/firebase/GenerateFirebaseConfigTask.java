@@ -2,6 +2,7 @@ package com.tyron.builder.compiler.firebase;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.google.common.collect.ImmutableSet;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
 import com.tyron.builder.exception.CompilationFailedException;
@@ -22,6 +23,7 @@ import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 public class GenerateFirebaseConfigTask extends Task<AndroidModule> {
 
@@ -57,6 +59,18 @@ public class GenerateFirebaseConfigTask extends Task<AndroidModule> {
         return TAG;
     }
 
+    @Override
+    public Set<File> getInputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(new File(module.getRootFile(), GOOGLE_SERVICES_JSON));
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(new File(module.getAndroidResourcesDirectory(), VALUES + "/secrets.xml"));
+    }
+
     private File mConfigFile;
 
     @Override
@@ -0,0 +1,219 @@
+package com.tyron.builder.compiler.incremental;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the size, modification time and content hash of the inputs of an incremental task
+ * so it can tell which of them have changed since they were last compiled.
+ *
+ * The size and the modification time are compared first, the content is only hashed when the
+ * size is the same but the modification time is not. A file that was touched without being
+ * changed, for example by a git checkout, is then not compiled again, and a file that was
+ * changed but got an older modification time is still compiled.
+ *
+ * The state of a file that is about to be compiled is captured when {@link #isModified(File)}
+ * or {@link #record(File)} is called, and only becomes its snapshot when {@link #commit(File)}
+ * is called after the files were compiled successfully. A file that is edited while it is being
+ * compiled is then still seen as modified by the next build.
+ *
+ * The snapshots are read with {@link #load(File)} and written back with {@link #save()} in a
+ * single file.
+ */
+public class FileSnapshots {
+
+    private static final int VERSION = 1;
+
+    private static class Snapshot {
+        final long length;
+        final long lastModified;
+        final String hash;
+
+        Snapshot(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    private final File mStoreFile;
+    private final Map<String, Snapshot> mSnapshots = new ConcurrentHashMap<>();
+    /**
+     * The state of the files that are being compiled, committed once they were compiled
+     */
+    private final Map<String, Snapshot> mPending = new ConcurrentHashMap<>();
+
+    private FileSnapshots(File storeFile) {
+        mStoreFile = storeFile;
+    }
+
+    /**
+     * Reads the snapshots stored in the file, no snapshots are returned if the file does not
+     * exist or cannot be read.
+     */
+    @NonNull
+    public static FileSnapshots load(@NonNull File storeFile) {
+        FileSnapshots snapshots = new FileSnapshots(storeFile);
+        if (!storeFile.exists()) {
+            return snapshots;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(storeFile)))) {
+            if (in.readInt() != VERSION) {
+                return snapshots;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long length = in.readLong();
+                long lastModified = in.readLong();
+                String hash = in.readUTF();
+                snapshots.mSnapshots.put(path, new Snapshot(length, lastModified, hash));
+            }
+        } catch (IOException e) {
+            snapshots.mSnapshots.clear();
+        }
+        return snapshots;
+    }
+
+    /**
+     * Writes every snapshot to the store file, a temporary file is written first so the store
+     * is never left partially written.
+     */
+    public void save() throws IOException {
+        FileUtils.forceMkdirParent(mStoreFile);
+        File temp = new File(mStoreFile.getPath() + ".tmp");
+        Map<String, Snapshot> snapshots = new HashMap<>(mSnapshots);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(snapshots.size());
+            for (Map.Entry<String, Snapshot> entry : snapshots.entrySet()) {
+                Snapshot snapshot = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(snapshot.length);
+                out.writeLong(snapshot.lastModified);
+                out.writeUTF(snapshot.hash);
+            }
+        }
+        try {
+            java.nio.file.Files.move(temp.toPath(), mStoreFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if the file has no snapshot, does not exist or its contents are different
+     * from its snapshot. The current state of a modified file is recorded so it can be
+     * committed after it is compiled.
+     */
+    public boolean isModified(@NonNull File file) {
+        String path = file.getAbsolutePath();
+        Snapshot snapshot = mSnapshots.get(path);
+        if (snapshot == null || !file.isFile()) {
+            record(file);
+            return true;
+        }
+        long length = file.length();
+        long lastModified = file.lastModified();
+        if (length != snapshot.length) {
+            record(path, length, lastModified, hash(file));
+            return true;
+        }
+        if (lastModified == snapshot.lastModified) {
+            return false;
+        }
+
+        String hash = hash(file);
+        if (hash == null || !hash.equals(snapshot.hash)) {
+            record(path, length, lastModified, hash);
+            return true;
+        }
+        // only the time has changed, remember it so the file is not hashed again
+        mSnapshots.put(path, new Snapshot(length, lastModified, hash));
+        return false;
+    }
+
+    /**
+     * Records the current state of a file that is about to be compiled without checking it,
+     * the state is committed with {@link #commit(File)}
+     */
+    public void record(@NonNull File file) {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        record(file.getAbsolutePath(), length, lastModified, file.isFile() ? hash(file) : null);
+    }
+
+    private void record(String path, long length, long lastModified, @Nullable String hash) {
+        if (hash == null) {
+            mPending.remove(path);
+        } else {
+            mPending.put(path, new Snapshot(length, lastModified, hash));
+        }
+    }
+
+    /**
+     * Makes the state recorded before the file was compiled its snapshot, called after the file
+     * was compiled successfully. Nothing is changed if no state was recorded for the file.
+     */
+    public void commit(@NonNull File file) {
+        String path = file.getAbsolutePath();
+        Snapshot snapshot = mPending.remove(path);
+        if (snapshot != null) {
+            mSnapshots.put(path, snapshot);
+        }
+    }
+
+    public void remove(@NonNull File file) {
+        String path = file.getAbsolutePath();
+        mSnapshots.remove(path);
+        mPending.remove(path);
+    }
+
+    /**
+     * Removes the snapshots of the files that are not in the given files
+     */
+    public void retainAll(@NonNull Collection<? extends File> files) {
+        Set<String> paths = new HashSet<>(files.size());
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        mSnapshots.keySet().retainAll(paths);
+        mPending.keySet().retainAll(paths);
+    }
+
+    @Nullable
+    private static String hash(File file) {
+        try {
+            HashCode hash = Files.asByteSource(file).hash(Hashing.murmur3_128());
+            return hash.toString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.tyron.builder.compiler.incremental.dex;
+
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.OutputMode;
+import com.google.common.collect.ImmutableSet;
+import com.tyron.builder.compiler.BuildType;
+import com.tyron.builder.compiler.Task;
+import com.tyron.builder.compiler.dex.DexDiagnosticHandler;
+import com.tyron.builder.compiler.dex.LibraryClasspath;
+import com.tyron.builder.compiler.dex.LibraryDexCache;
+import com.tyron.builder.exception.CompilationFailedException;
+import com.tyron.builder.log.ILogger;
+import com.tyron.builder.model.CodeAssistLibrary;
+import com.tyron.builder.project.Project;
+import com.tyron.builder.project.api.AndroidModule;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Dexes the libraries of the module before {@link IncrementalD8Task} runs, it only depends on
+ * the libraries so the builder can run it while the resources and the sources are compiled.
+ * The dex files are shared with other projects through the {@link LibraryDexCache}.
+ */
+public class DexLibrariesTask extends Task<AndroidModule> {
+
+    private static final String TAG = DexLibrariesTask.class.getSimpleName();
+
+    private DiagnosticsHandler mDiagnosticsHandler;
+
+    public DexLibrariesTask(Project project, AndroidModule module, ILogger logger) {
+        super(project, module, logger);
+    }
+
+    @Override
+    public String getName() {
+        return TAG;
+    }
+
+    @Override
+    public Set<File> getInputs() {
+        return ImmutableSet.of(new File(getModule().getBuildDirectory(), "libs"));
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        // the classes.dex written next to each library is only read by the dex and package
+        // tasks, they do not declare their inputs so they always run after this task
+        return Collections.emptySet();
+    }
+
+    @Override
+    public void prepare(BuildType type) throws IOException {
+        mDiagnosticsHandler = new DexDiagnosticHandler(getLogger(), getModule());
+    }
+
+    @Override
+    public void run() throws IOException, CompilationFailedException {
+        try {
+            ensureDexedLibraries(getModule(), getLogger(), mDiagnosticsHandler);
+        } catch (com.android.tools.r8.CompilationFailedException e) {
+            throw new CompilationFailedException(e);
+        }
+    }
+
+    /**
+     * Ensures that all libraries of the project has been dex-ed
+     *
+     * @throws com.android.tools.r8.CompilationFailedException if the compilation has failed
+     */
+    static void ensureDexedLibraries(AndroidModule module, ILogger logger,
+                                     DiagnosticsHandler diagnosticsHandler)
+            throws com.android.tools.r8.CompilationFailedException {
+        List<File> libraries = module.getLibraries();
+
+        for (File lib : libraries) {
+            File parentFile = lib.getParentFile();
+            if (parentFile == null) {
+                continue;
+            }
+            File[] libFiles = lib.getParentFile().listFiles();
+            if (libFiles == null) {
+                if (!lib.delete()) {
+                    logger.warning("Failed to delete " + lib.getAbsolutePath());
+                }
+            } else {
+                File dex = new File(lib.getParentFile(), "classes.dex");
+                if (dex.exists()) {
+                    continue;
+                }
+                if (lib.exists()) {
+                    String message;
+                    CodeAssistLibrary library = module.getLibrary(parentFile.getName());
+                    if (library != null) {
+                        boolean declared = library.getDeclaration() != null;
+                        message = "Dexing library " +
+                                  (declared ? library.getDeclaration() : library.getSourceFile()
+                                          .getName());
+                    } else {
+                        message = "Dexing jar " + parentFile.getName();
+                    }
+                    logger.debug(message);
+                    List<File> classpath = LibraryClasspath.get(module, lib);
+                    LibraryDexCache.dexLibrary(logger, lib, classpath, module.getMinSdk(),
+                            CompilationMode.RELEASE, parentFile, output -> {
+                        D8Command command = D8Command.builder(diagnosticsHandler)
+                                .addLibraryFiles(getLibraryFiles(module))
+                                .addClasspathFiles(classpath.stream().map(File::toPath)
+                                                           .collect(Collectors.toList()))
+                                .addProgramFiles(lib.toPath())
+                                .setMode(CompilationMode.RELEASE)
+                                .setMinApiLevel(module.getMinSdk())
+                                .setOutput(output.toPath(), OutputMode.DexIndexed)
+                                .build();
+                        D8.run(command);
+                    });
+                }
+            }
+        }
+    }
+
+    private static List<Path> getLibraryFiles(AndroidModule module) {
+        List<Path> path = new ArrayList<>();
+        path.add(module.getLambdaStubsJarFile().toPath());
+        path.add(module.getBootstrapJarFile().toPath());
+        return path;
+    }
+}
@@ -0,0 +1,173 @@
+package com.tyron.builder.compiler.incremental.dex;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the per-class dex files of a module into a fixed number of shards so a build only
+ * merges again the shards whose classes have changed.
+ *
+ * A class is assigned to a shard by the hash of its top level class name, so inner classes stay
+ * with their outer class and the shard of a class never changes while it exists. Each shard
+ * stores the size and modification time of its inputs, the shard is out of date when they
+ * differ from the inputs it would be merged from now.
+ */
+class DexShards {
+
+    /**
+     * Matches the dex files that are named the way D8 names them in {@code DexIndexed} mode
+     */
+    private static final Pattern INDEXED_DEX = Pattern.compile("classes\\d*\\.dex");
+
+    private static final String INPUTS_FILE = "inputs.txt";
+
+    private final File mInputDirectory;
+    private final File mShardsDirectory;
+    private final int mShardCount;
+
+    /**
+     * @param inputDirectory the directory containing the per-class dex files
+     * @param shardsDirectory the directory where the merged shards are stored
+     */
+    DexShards(File inputDirectory, File shardsDirectory, int shardCount) {
+        mInputDirectory = inputDirectory;
+        mShardsDirectory = shardsDirectory;
+        mShardCount = shardCount;
+    }
+
+    int getShardCount() {
+        return mShardCount;
+    }
+
+    File getShardDirectory(int shard) {
+        return new File(mShardsDirectory, Integer.toString(shard));
+    }
+
+    /**
+     * @return the dex files of each shard, sorted by their path. Every shard is present even
+     * if it has no dex files.
+     */
+    List<List<Path>> split(List<Path> dexFiles) {
+        List<List<Path>> shards = new ArrayList<>(mShardCount);
+        for (int i = 0; i < mShardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (Path dexFile : dexFiles) {
+            shards.get(getShard(dexFile)).add(dexFile);
+        }
+        for (List<Path> shard : shards) {
+            Collections.sort(shard);
+        }
+        return shards;
+    }
+
+    private int getShard(Path dexFile) {
+        String path = mInputDirectory.toPath().relativize(dexFile).toString()
+                .replace(File.separatorChar, '/');
+        int nameStart = path.lastIndexOf('/') + 1;
+        int innerStart = path.indexOf('$', nameStart);
+        String topLevelName = innerStart > nameStart
+                ? path.substring(0, innerStart)
+                : path.substring(0, path.length() - ".dex".length());
+        return Math.floorMod(topLevelName.hashCode(), mShardCount);
+    }
+
+    boolean isUpToDate(int shard, List<Path> inputs) {
+        File inputsFile = new File(getShardDirectory(shard), INPUTS_FILE);
+        if (!inputsFile.exists()) {
+            return false;
+        }
+        try {
+            String stored = FileUtils.readFileToString(inputsFile, StandardCharsets.UTF_8);
+            return stored.equals(describe(inputs));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records the inputs the shard was merged from, called after the shard is merged.
+     */
+    void markUpToDate(int shard, List<Path> inputs) throws IOException {
+        File inputsFile = new File(getShardDirectory(shard), INPUTS_FILE);
+        FileUtils.writeStringToFile(inputsFile, describe(inputs), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes the merged dex files and the recorded inputs of the shard.
+     */
+    void clear(int shard) throws IOException {
+        File directory = getShardDirectory(shard);
+        if (directory.exists()) {
+            FileUtils.cleanDirectory(directory);
+        } else {
+            FileUtils.forceMkdir(directory);
+        }
+    }
+
+    /**
+     * @return the merged dex files of the shard in the order D8 numbered them
+     */
+    List<File> getDexFiles(int shard) {
+        File[] files = getShardDirectory(shard).listFiles(
+                f -> f.isFile() && INDEXED_DEX.matcher(f.getName()).matches());
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Map<Integer, File> sorted = new TreeMap<>();
+        for (File file : files) {
+            sorted.put(getDexIndex(file), file);
+        }
+        return new ArrayList<>(sorted.values());
+    }
+
+    /**
+     * Replaces the {@code classesN.dex} files of the directory with the merged dex files of
+     * every shard, numbered in the order of the shards.
+     */
+    void copyTo(File directory) throws IOException {
+        File[] existing = directory.listFiles(
+                f -> f.isFile() && INDEXED_DEX.matcher(f.getName()).matches());
+        if (existing != null) {
+            for (File file : existing) {
+                FileUtils.delete(file);
+            }
+        }
+
+        int index = 1;
+        for (int shard = 0; shard < mShardCount; shard++) {
+            for (File dexFile : getDexFiles(shard)) {
+                String name = index == 1 ? "classes.dex" : "classes" + index + ".dex";
+                FileUtils.copyFile(dexFile, new File(directory, name));
+                index++;
+            }
+        }
+    }
+
+    private static int getDexIndex(File file) {
+        String number = file.getName().substring("classes".length(),
+                file.getName().length() - ".dex".length());
+        return number.isEmpty() ? 1 : Integer.parseInt(number);
+    }
+
+    private static String describe(List<Path> inputs) {
+        StringBuilder builder = new StringBuilder();
+        for (Path input : inputs) {
+            File file = input.toFile();
+            builder.append(file.getAbsolutePath()).append('\t')
+                    .append(file.length()).append('\t')
+                    .append(file.lastModified()).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -11,7 +11,6 @@ import com.tyron.builder.compiler.dex.D8Task;
 import com.tyron.builder.compiler.dex.DexDiagnosticHandler;
 import com.tyron.builder.exception.CompilationFailedException;
 import com.tyron.builder.log.ILogger;
-import com.tyron.builder.model.CodeAssistLibrary;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.builder.project.cache.CacheHolder;
@@ -27,12 +26,19 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class IncrementalD8Task extends Task<AndroidModule> {
 
     private static final String TAG = IncrementalD8Task.class.getSimpleName();
 
+    /**
+     * The number of dex files the classes of the module are merged into in debug builds, only
+     * the ones containing changed classes are merged again.
+     */
+    private static final int DEBUG_DEX_SHARDS = 16;
+
     public static final CacheHolder.CacheKey<String, List<File>> CACHE_KEY =
             new CacheHolder.CacheKey<>("dexCache");
 
@@ -72,8 +78,9 @@ public class IncrementalD8Task extends Task<AndroidModule> {
                 new File(getModule().getBuildDirectory(), "bin/java/classes")));
         mClassFiles.addAll(D8Task.getClassFiles(
                 new File(getModule().getBuildDirectory(), "bin/kotlin/classes")));
+        Set<Path> classFiles = new HashSet<>(mClassFiles);
         for (Cache.Key<String> key : new HashSet<>(mDexCache.getKeys())) {
-            if (!mFilesToCompile.contains(key.file)) {
+            if (!classFiles.contains(key.file)) {
                 File file = mDexCache.get(key.file, "dex").iterator().next();
                 deleteAllFiles(file, ".dex");
                 mDexCache.remove(key.file, "dex");
@@ -121,7 +128,7 @@ public class IncrementalD8Task extends Task<AndroidModule> {
         }
     }
 
-    private void doDebug() throws CompilationFailedException {
+    private void doDebug() throws IOException, CompilationFailedException {
         try {
             ensureDexedLibraries();
 
@@ -137,23 +144,52 @@ public class IncrementalD8Task extends Task<AndroidModule> {
                 mDexCache.load(file, "dex", Collections.singletonList(getDexFile(file.toFile())));
             }
 
-            D8Command.Builder builder = D8Command.builder(diagnosticsHandler)
-                    .addProgramFiles(getAllDexFiles(mOutputPath.toFile()))
-                    .addLibraryFiles(getLibraryFiles()).addClasspathFiles(
-                            getModule().getLibraries().stream().map(File::toPath)
-                                    .collect(Collectors.toList()))
-                    .setMinApiLevel(getModule().getMinSdk());
-
-            File output = new File(getModule().getBuildDirectory(), "bin");
-            builder.setMode(CompilationMode.DEBUG);
-            builder.setOutput(output.toPath(), OutputMode.DexIndexed);
-            D8.run(builder.build());
-
+            mergeDebug();
         } catch (com.android.tools.r8.CompilationFailedException e) {
             throw new CompilationFailedException(e);
         }
     }
 
+    /**
+     * Merges the per-class dex files into {@link #DEBUG_DEX_SHARDS} dex files instead of
+     * merging every class on each build, the shards without changes are reused as is.
+     */
+    private void mergeDebug() throws IOException, com.android.tools.r8.CompilationFailedException {
+        long start = System.currentTimeMillis();
+        DexShards shards = new DexShards(mOutputPath.toFile(),
+                new File(getModule().getBuildDirectory(), "intermediate/dex-shards"),
+                DEBUG_DEX_SHARDS);
+        List<List<Path>> inputs = shards.split(getAllDexFiles(mOutputPath.toFile()));
+
+        int merged = 0;
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            List<Path> shardInputs = inputs.get(shard);
+            if (shards.isUpToDate(shard, shardInputs)) {
+                continue;
+            }
+
+            shards.clear(shard);
+            if (!shardInputs.isEmpty()) {
+                D8Command command = D8Command.builder(diagnosticsHandler)
+                        .addProgramFiles(shardInputs)
+                        .addLibraryFiles(getLibraryFiles()).addClasspathFiles(
+                                getModule().getLibraries().stream().map(File::toPath)
+                                        .collect(Collectors.toList()))
+                        .setMinApiLevel(getModule().getMinSdk())
+                        .setMode(CompilationMode.DEBUG)
+                        .setOutput(shards.getShardDirectory(shard).toPath(), OutputMode.DexIndexed)
+                        .build();
+                D8.run(command);
+            }
+            shards.markUpToDate(shard, shardInputs);
+            merged++;
+        }
+
+        shards.copyTo(new File(getModule().getBuildDirectory(), "bin"));
+        getLogger().debug("Merged " + merged + " of " + shards.getShardCount() +
+                          " dex shards in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
     private void mergeRelease() throws com.android.tools.r8.CompilationFailedException {
         File output = new File(getModule().getBuildDirectory(), "bin");
         D8Command command = D8Command.builder(diagnosticsHandler).addClasspathFiles(
@@ -199,48 +235,7 @@ public class IncrementalD8Task extends Task<AndroidModule> {
      * @throws com.android.tools.r8.CompilationFailedException if the compilation has failed
      */
     protected void ensureDexedLibraries() throws com.android.tools.r8.CompilationFailedException {
-        List<File> libraries = getModule().getLibraries();
-
-        for (File lib : libraries) {
-            File parentFile = lib.getParentFile();
-            if (parentFile == null) {
-                continue;
-            }
-            File[] libFiles = lib.getParentFile().listFiles();
-            if (libFiles == null) {
-                if (!lib.delete()) {
-                    getLogger().warning("Failed to delete " + lib.getAbsolutePath());
-                }
-            } else {
-                File dex = new File(lib.getParentFile(), "classes.dex");
-                if (dex.exists()) {
-                    continue;
-                }
-                if (lib.exists()) {
-                    String message;
-                    CodeAssistLibrary library = getModule().getLibrary(parentFile.getName());
-                    if (library != null) {
-                        boolean declared = library.getDeclaration() != null;
-                        message = "Dexing library " +
-                                  (declared ? library.getDeclaration() : library.getSourceFile()
-                                          .getName());
-                    } else {
-                        message = "Dexing jar " + parentFile.getName();
-                    }
-                    getLogger().debug(message);
-                    D8Command command = D8Command.builder(diagnosticsHandler)
-                                    .addLibraryFiles(getLibraryFiles())
-                                    .addClasspathFiles(libraries.stream().map(File::toPath)
-                                                               .collect(Collectors.toList()))
-                                    .addProgramFiles(lib.toPath())
-                                    .setMode(CompilationMode.RELEASE)
-                                    .setMinApiLevel(getModule().getMinSdk())
-                                    .setOutput(lib.getParentFile().toPath(), OutputMode.DexIndexed)
-                                    .build();
-                    D8.run(command);
-                }
-            }
-        }
+        DexLibrariesTask.ensureDexedLibraries(getModule(), getLogger(), diagnosticsHandler);
     }
 
     private List<Path> getLibraryFiles() {
@@ -2,11 +2,13 @@ package com.tyron.builder.compiler.incremental.java;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.google.common.collect.ImmutableSet;
 import com.sun.source.util.JavacTask;
 import com.sun.tools.javac.api.JavacTool;
 import com.sun.tools.javac.file.JavacFileManager;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
+import com.tyron.builder.compiler.incremental.FileSnapshots;
 import com.tyron.builder.compiler.incremental.kotlin.IncrementalKotlinCompiler;
 import com.tyron.builder.exception.CompilationFailedException;
 import com.tyron.builder.log.ILogger;
@@ -23,7 +25,6 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -32,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaFileObject;
@@ -45,6 +47,7 @@ public class IncrementalJavaTask extends Task<JavaModule> {
     private static final String TAG = IncrementalJavaTask.class.getSimpleName();
 
     private File mOutputDir;
+    private FileSnapshots mSnapshots;
     private List<File> mJavaFiles;
     private List<File> mFilesToCompile;
     private Cache<String, List<File>> mClassCache;
@@ -58,6 +61,23 @@ public class IncrementalJavaTask extends Task<JavaModule> {
         return TAG;
     }
 
+    @Override
+    public Set<File> getInputs() {
+        JavaModule module = getModule();
+        return ImmutableSet.of(module.getJavaDirectory(),
+                new File(module.getBuildDirectory(), "gen"),
+                new File(module.getBuildDirectory(), "view_binding"),
+                new File(module.getBuildDirectory(), "libs"),
+                new File(module.getBuildDirectory(), "bin/kotlin/classes"));
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        JavaModule module = getModule();
+        return ImmutableSet.of(new File(module.getBuildDirectory(), "bin/java/classes"),
+                getSnapshotsFile(module));
+    }
+
     @Override
     public void prepare(BuildType type) throws IOException {
         mOutputDir = new File(getModule().getBuildDirectory(), "bin/java/classes");
@@ -80,20 +100,30 @@ public class IncrementalJavaTask extends Task<JavaModule> {
             }
         }
 
+        // the class cache expires when the time of a file changes, the snapshots are used
+        // instead so a file is compiled only when its contents have changed
+        mSnapshots = FileSnapshots.load(getSnapshotsFile(getModule()));
+        mSnapshots.retainAll(mJavaFiles);
         for (File file : mJavaFiles) {
-            Path filePath = file.toPath();
-            if (mClassCache.needs(filePath, "class")) {
+            // checked first so the state of a modified file is recorded before it is compiled
+            boolean modified = mSnapshots.isModified(file);
+            if (modified || !mClassCache.contains(file.toPath(), "class")) {
                 mFilesToCompile.add(file);
             }
         }
 
     }
 
+    private static File getSnapshotsFile(JavaModule module) {
+        return new File(module.getBuildDirectory(), "intermediate/snapshots/java.bin");
+    }
+
     private boolean mHasErrors = false;
 
     @Override
     public void run() throws IOException, CompilationFailedException {
         if (mFilesToCompile.isEmpty()) {
+            mSnapshots.save();
             return;
         }
 
@@ -215,6 +245,11 @@ public class IncrementalJavaTask extends Task<JavaModule> {
         if (mHasErrors) {
             throw new CompilationFailedException("Compilation failed, check logs for more details");
         }
+
+        for (File file : mFilesToCompile) {
+            mSnapshots.commit(file);
+        }
+        mSnapshots.save();
     }
 
     @VisibleForTesting
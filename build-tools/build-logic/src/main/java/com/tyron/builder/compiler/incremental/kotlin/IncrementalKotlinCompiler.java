@@ -5,6 +5,7 @@ import android.text.TextUtils;
 import androidx.annotation.NonNull;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
 import com.tyron.builder.exception.CompilationFailedException;
@@ -33,6 +34,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import kotlin.jvm.functions.Function0;
@@ -56,6 +58,23 @@ public class IncrementalKotlinCompiler extends Task<AndroidModule> {
         return TAG;
     }
 
+    @Override
+    public Set<File> getInputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(module.getJavaDirectory(),
+                new File(module.getBuildDirectory(), "gen"),
+                new File(module.getBuildDirectory(), "view_binding"),
+                new File(module.getBuildDirectory(), "libs"),
+                new File(module.getBuildDirectory(), "plugins"));
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(new File(module.getBuildDirectory(), "bin/kotlin/classes"),
+                new File(module.getBuildDirectory(), "intermediate/kotlin"));
+    }
+
     @Override
     public void prepare(BuildType type) throws IOException {
         mFilesToCompile = new ArrayList<>();
@@ -1,8 +1,12 @@
 package com.tyron.builder.compiler.incremental.resource;
 
 import com.android.tools.aapt2.Aapt2Jni;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
+import com.tyron.builder.compiler.incremental.FileSnapshots;
 import com.tyron.builder.exception.CompilationFailedException;
 import com.tyron.builder.log.ILogger;
 import com.tyron.builder.log.LogUtils;
@@ -18,20 +22,45 @@ import org.apache.commons.io.filefilter.TrueFileFilter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
 
 public class IncrementalAapt2Task extends Task<AndroidModule> {
 
     private static final String TAG = "IncrementalAAPT2";
 
+    /**
+     * The maximum number of aapt2 processes that compile at the same time
+     */
+    private static final int COMPILE_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The project resources are only split between processes if each gets at least this many
+     */
+    private static final int MIN_FILES_PER_BATCH = 16;
+
+    /**
+     * The name of the compiled resources stored in the directory of a library
+     */
+    private static final String COMPILED_LIBRARY_RESOURCES = "compiled-res.zip";
+
     private final boolean mGenerateProtoFormat;
 
+    private FileSnapshots mSnapshots;
+
     public IncrementalAapt2Task(Project project,
                                 AndroidModule module,
                                 ILogger logger,
@@ -46,16 +75,38 @@ public class IncrementalAapt2Task extends Task<AndroidModule> {
     }
 
     @Override
-    public void prepare(BuildType type) throws IOException {
+    public Set<File> getInputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(module.getAndroidResourcesDirectory(), module.getAssetsDirectory(),
+                new File(module.getBuildDirectory(), "libs"),
+                new File(module.getBuildDirectory(), "bin/AndroidManifest.xml"));
+    }
 
+    @Override
+    public Set<File> getOutputs() {
+        // the compiled resources cached in build/libs are not declared, no other task reads
+        // them and declaring build/libs would keep the libraries from being dexed meanwhile
+        AndroidModule module = getModule();
+        return ImmutableSet.of(new File(module.getBuildDirectory(), "gen"),
+                new File(module.getBuildDirectory(), "bin/res"),
+                new File(module.getBuildDirectory(), "bin/generated.apk.res"),
+                new File(module.getBuildDirectory(), "bin/proto-format.zip"),
+                new File(module.getBuildDirectory(), "intermediate/resources"),
+                getSnapshotsFile(module));
+    }
+
+    @Override
+    public void prepare(BuildType type) throws IOException {
+        mSnapshots = FileSnapshots.load(getSnapshotsFile(getModule()));
     }
 
     public void run() throws IOException, CompilationFailedException {
         Map<String, List<File>> filesToCompile =
-                getFiles(getModule(), getOutputDirectory(getModule()));
+                getFiles(getModule(), getOutputDirectory(getModule()), mSnapshots);
         List<File> librariesToCompile = getLibraries();
 
         compileProject(filesToCompile);
+        mSnapshots.save();
         compileLibraries(librariesToCompile);
 
         link();
@@ -74,36 +125,55 @@ public class IncrementalAapt2Task extends Task<AndroidModule> {
 
     private void compileProject(Map<String, List<File>> files) throws IOException,
             CompilationFailedException {
-        List<String> args = new ArrayList<>();
-
-        for (String resourceType : files.keySet()) {
-            List<File> filesToCompile = files.get(resourceType);
-            if (filesToCompile != null && !filesToCompile.isEmpty()) {
-                for (File fileToCompile : filesToCompile) {
-                    args.add(fileToCompile.getAbsolutePath());
+        List<String> filesToCompile = new ArrayList<>();
+        for (List<File> resourceFiles : files.values()) {
+            if (resourceFiles != null) {
+                for (File fileToCompile : resourceFiles) {
+                    filesToCompile.add(fileToCompile.getAbsolutePath());
                 }
             }
         }
-        args.add("-o");
 
         File outputCompiled = new File(getModule().getBuildDirectory(), "bin/res/compiled");
         if (!outputCompiled.exists() && !outputCompiled.mkdirs()) {
             throw new IOException("Failed to create compiled directory");
         }
-        args.add(outputCompiled.getAbsolutePath());
 
-        int compile = Aapt2Jni.compile(args);
-        List<DiagnosticWrapper> logs = Aapt2Jni.getLogs();
-        LogUtils.log(logs, getLogger());
-
-        if (compile != 0) {
+        // each file is compiled to its own .flat file, so the files can be split between
+        // several aapt2 processes writing to the same directory
+        List<List<String>> invocations = new ArrayList<>();
+        if (!filesToCompile.isEmpty()) {
+            int batchCount = Math.max(1, Math.min(COMPILE_THREADS,
+                    filesToCompile.size() / MIN_FILES_PER_BATCH));
+            int batchSize = (filesToCompile.size() + batchCount - 1) / batchCount;
+            for (List<String> batch : Lists.partition(filesToCompile, batchSize)) {
+                List<String> args = new ArrayList<>(batch);
+                args.add("-o");
+                args.add(outputCompiled.getAbsolutePath());
+                invocations.add(args);
+            }
+        }
+        List<Boolean> results = compile(invocations);
+        if (results.contains(false)) {
             throw new CompilationFailedException(
                     "Compilation failed, check logs for more details.");
         }
 
         copyMapToDir(files);
+
+        for (List<File> compiledFiles : files.values()) {
+            for (File compiledFile : compiledFiles) {
+                mSnapshots.commit(compiledFile);
+            }
+        }
     }
 
+    /**
+     * Compiles the resources of the libraries that are not in build/bin/res yet. The compiled
+     * resources of a library are also kept in its directory under build/libs, which is named
+     * after the hash of the library, so they are copied instead of compiled again after the
+     * build outputs are cleaned.
+     */
     private void compileLibraries(List<File> libraries) throws IOException,
             CompilationFailedException {
         getLogger().debug("Compiling libraries.");
@@ -115,35 +185,143 @@ public class IncrementalAapt2Task extends Task<AndroidModule> {
             }
         }
 
+        List<File> outputs = new ArrayList<>();
+        List<File> cachedOutputs = new ArrayList<>();
+        List<List<String>> invocations = new ArrayList<>();
         for (File file : libraries) {
             File parent = file.getParentFile();
             if (parent == null) {
                 throw new IOException("CodeAssistLibrary folder doesn't exist");
             }
-            File[] files = parent.listFiles();
-            if (files == null) {
+            File res = new File(parent, "res");
+            if (!res.isDirectory()) {
                 continue;
             }
 
-            for (File inside : files) {
-                if (inside.isDirectory() && inside.getName().equals("res")) {
-                    List<String> args = new ArrayList<>();
-                    args.add("--dir");
-                    args.add(inside.getAbsolutePath());
-                    args.add("-o");
-                    args.add(createNewFile(output, parent.getName() + ".zip").getAbsolutePath());
-
-                    int compile = Aapt2Jni.compile(args);
-                    List<DiagnosticWrapper> logs = Aapt2Jni.getLogs();
-                    LogUtils.log(logs, getLogger());
-
-                    if (compile != 0) {
-                        throw new CompilationFailedException(
-                                "Compilation failed, check logs for more details.");
+            File zip = new File(output, parent.getName() + ".zip");
+            File cached = new File(parent, COMPILED_LIBRARY_RESOURCES);
+            if (cached.isFile()) {
+                if (isValidZip(cached)) {
+                    try {
+                        FileUtils.copyFile(cached, zip);
+                        continue;
+                    } catch (IOException e) {
+                        getLogger().warning("Unable to copy the compiled resources of " +
+                                            parent.getName() + ": " + e.getMessage());
                     }
                 }
+                // the entry is corrupted or could not be copied, compile the library again
+                FileUtils.deleteQuietly(cached);
+                FileUtils.deleteQuietly(zip);
+            }
+
+            List<String> args = new ArrayList<>();
+            args.add("--dir");
+            args.add(res.getAbsolutePath());
+            args.add("-o");
+            args.add(createNewFile(output, zip.getName()).getAbsolutePath());
+            invocations.add(args);
+            outputs.add(zip);
+            cachedOutputs.add(cached);
+        }
+
+        List<Boolean> results = compile(invocations);
+        boolean failed = false;
+        for (int i = 0; i < results.size(); i++) {
+            if (!results.get(i)) {
+                // an empty or partial zip would be treated as compiled on the next build
+                FileUtils.deleteQuietly(outputs.get(i));
+                failed = true;
+                continue;
+            }
+            File cached = cachedOutputs.get(i);
+            File temp = new File(cached.getPath() + ".tmp");
+            try {
+                FileUtils.copyFile(outputs.get(i), temp);
+                Files.move(temp.toPath(), cached.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // the library is compiled again once the build outputs are cleaned
+                getLogger().warning("Unable to cache the compiled resources of " +
+                                    cached.getParentFile().getName() + ": " + e.getMessage());
+                FileUtils.deleteQuietly(temp);
             }
         }
+        if (failed) {
+            throw new CompilationFailedException(
+                    "Compilation failed, check logs for more details.");
+        }
+    }
+
+    /**
+     * @return false if the zip cannot be opened, for example because it was only partially written
+     */
+    private static boolean isValidZip(File file) {
+        try {
+            new ZipFile(file).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the aapt2 compile invocations on up to {@link #COMPILE_THREADS} threads, the logs
+     * are reported in the order of the invocations
+     *
+     * @return whether each invocation has succeeded
+     */
+    private List<Boolean> compile(List<List<String>> invocations)
+            throws CompilationFailedException {
+        if (invocations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (invocations.size() == 1) {
+            int compile = Aapt2Jni.compile(invocations.get(0));
+            LogUtils.log(Aapt2Jni.getLogs(), getLogger());
+            return Collections.singletonList(compile == 0);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(COMPILE_THREADS, invocations.size()),
+                new ThreadFactoryBuilder().setNameFormat("aapt2-compile-%d")
+                        .setDaemon(true)
+                        .build());
+        try {
+            List<Future<CompileResult>> futures = new ArrayList<>();
+            for (List<String> args : invocations) {
+                futures.add(executor.submit(() -> {
+                    List<DiagnosticWrapper> logs = new ArrayList<>();
+                    int code = Aapt2Jni.compile(args, logs);
+                    return new CompileResult(code, logs);
+                }));
+            }
+
+            List<Boolean> results = new ArrayList<>(invocations.size());
+            for (Future<CompileResult> future : futures) {
+                CompileResult result = future.get();
+                LogUtils.log(result.logs, getLogger());
+                results.add(result.code == 0);
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw new CompilationFailedException("Failed to run aapt2", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompilationFailedException("Resource compilation was cancelled", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class CompileResult {
+        final int code;
+        final List<DiagnosticWrapper> logs;
+
+        CompileResult(int code, List<DiagnosticWrapper> logs) {
+            this.code = code;
+            this.logs = logs;
+        }
     }
 
     private void link() throws IOException, CompilationFailedException {
@@ -261,12 +439,19 @@ public class IncrementalAapt2Task extends Task<AndroidModule> {
     /**
      * Utility function to get all the files that needs to be recompiled
      *
+     * @param snapshots the snapshots of the resource files when they were last compiled, the
+     *                  snapshots of the deleted resource files are removed and the state of the
+     *                  files to compile is recorded
      * @return resource files to compile
      */
     public static Map<String, List<File>> getFiles(AndroidModule module,
-                                                   File cachedDirectory) throws IOException {
+                                                   File cachedDirectory,
+                                                   FileSnapshots snapshots) throws IOException {
         Map<String, List<ResourceFile>> newFiles = findFiles(module.getAndroidResourcesDirectory());
         Map<String, List<ResourceFile>> oldFiles = findFiles(cachedDirectory);
+        List<File> resourceFiles = new ArrayList<>();
+        newFiles.values().forEach(resourceFiles::addAll);
+        snapshots.retainAll(resourceFiles);
         Map<String, List<File>> filesToCompile = new HashMap<>();
 
         for (String resourceType : newFiles.keySet()) {
@@ -275,6 +460,7 @@ public class IncrementalAapt2Task extends Task<AndroidModule> {
             if (!oldFiles.containsKey(resourceType)) {
                 List<ResourceFile> files = newFiles.get(resourceType);
                 if (files != null) {
+                    files.forEach(snapshots::record);
                     addToMapList(filesToCompile, resourceType, files);
                 }
                 continue;
@@ -293,7 +479,7 @@ public class IncrementalAapt2Task extends Task<AndroidModule> {
                 }
 
                 addToMapList(filesToCompile, resourceType,
-                             getModifiedFiles(newFilesResource, oldFilesResource));
+                             getModifiedFiles(newFilesResource, oldFilesResource, snapshots));
             }
         }
 
@@ -366,15 +552,17 @@ public class IncrementalAapt2Task extends Task<AndroidModule> {
      * Utility method to compare to list of files
      */
     public static List<ResourceFile> getModifiedFiles(List<ResourceFile> newFiles,
-                                                      List<ResourceFile> oldFiles) throws IOException {
+                                                      List<ResourceFile> oldFiles,
+                                                      FileSnapshots snapshots) throws IOException {
         List<ResourceFile> resourceFiles = new ArrayList<>();
 
         for (ResourceFile newFile : newFiles) {
             if (!oldFiles.contains(newFile)) {
+                snapshots.record(newFile);
                 resourceFiles.add(newFile);
             } else {
                 File oldFile = oldFiles.get(oldFiles.indexOf(newFile));
-                if (contentModified(newFile, oldFile)) {
+                if (contentModified(newFile, oldFile, snapshots)) {
                     resourceFiles.add(newFile);
                     if (!oldFile.delete()) {
                         throw new IOException("Failed to delete file " + oldFile.getName());
@@ -393,16 +581,16 @@ public class IncrementalAapt2Task extends Task<AndroidModule> {
         return resourceFiles;
     }
 
-    private static boolean contentModified(File newFile, File oldFile) {
+    private static boolean contentModified(File newFile, File oldFile, FileSnapshots snapshots) {
         if (!oldFile.exists() || !newFile.exists()) {
             return true;
         }
 
-        if (newFile.length() != oldFile.length()) {
-            return true;
-        }
+        return snapshots.isModified(newFile);
+    }
 
-        return newFile.lastModified() > oldFile.lastModified();
+    private static File getSnapshotsFile(Module module) {
+        return new File(module.getBuildDirectory(), "intermediate/snapshots/resources.bin");
     }
 
     /**
@@ -2,6 +2,7 @@ package com.tyron.builder.compiler.java;
 
 import android.util.Log;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.tyron.builder.compiler.BuildType;
@@ -46,6 +47,18 @@ public class CheckLibrariesTask extends Task<JavaModule> {
         return CheckLibrariesTask.class.getSimpleName();
     }
 
+    @Override
+    public Set<File> getInputs() {
+        JavaModule module = getModule();
+        return ImmutableSet.of(module.getLibraryDirectory());
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        JavaModule module = getModule();
+        return ImmutableSet.of(new File(module.getBuildDirectory(), "libs"));
+    }
+
     @Override
     public void prepare(BuildType type) throws IOException {
 
@@ -3,6 +3,7 @@ package com.tyron.builder.compiler.log;
 import android.util.Log;
 import android.util.Pair;
 
+import com.google.common.collect.ImmutableSet;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
 import com.tyron.builder.exception.CompilationFailedException;
@@ -33,6 +34,7 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class InjectLoggerTask extends Task<AndroidModule> {
 
@@ -145,6 +147,20 @@ public class InjectLoggerTask extends Task<AndroidModule> {
         return TAG;
     }
 
+    @Override
+    public Set<File> getInputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(module.getJavaDirectory(),
+                new File(module.getBuildDirectory(), "bin/AndroidManifest.xml"));
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(module.getJavaDirectory(),
+                new File(module.getBuildDirectory(), "bin/AndroidManifest.xml"));
+    }
+
     @Override
     public void prepare(BuildType type) throws IOException {
         getModule().getJavaFiles();
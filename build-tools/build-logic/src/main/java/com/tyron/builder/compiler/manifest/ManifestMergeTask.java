@@ -1,5 +1,6 @@
 package com.tyron.builder.compiler.manifest;
 
+import com.google.common.collect.ImmutableSet;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
 import com.tyron.builder.compiler.manifest.ManifestMerger2.SystemProperty;
@@ -20,6 +21,7 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class ManifestMergeTask extends Task<AndroidModule> {
 
@@ -37,6 +39,19 @@ public class ManifestMergeTask extends Task<AndroidModule> {
         return "ManifestMerger";
     }
 
+    @Override
+    public Set<File> getInputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(module.getManifestFile(),
+                new File(module.getBuildDirectory(), "libs"));
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(new File(module.getBuildDirectory(), "bin/AndroidManifest.xml"));
+    }
+
     @Override
     public void prepare(BuildType type) throws IOException {
         mPackageName = getApplicationId();
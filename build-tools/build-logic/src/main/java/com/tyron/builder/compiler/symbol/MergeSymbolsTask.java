@@ -3,6 +3,7 @@ package com.tyron.builder.compiler.symbol;
 import android.util.Log;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
@@ -22,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Class that loads R.txt files generated by AAPT/AAPT2  and converts them
@@ -44,6 +46,19 @@ public class MergeSymbolsTask extends Task<AndroidModule> {
         return "SymbolProcessor";
     }
 
+    @Override
+    public Set<File> getInputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(new File(module.getBuildDirectory(), "libs"),
+                new File(module.getBuildDirectory(), "bin/res"));
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(new File(module.getBuildDirectory(), "gen"));
+    }
+
     @Override
     public void prepare(BuildType type) throws IOException {
         mSymbolOutputDir = new File(getModule().getBuildDirectory(), "gen");
@@ -38,6 +38,15 @@ class GenerateViewBindingTask(
 
     override fun getName() = TAG
 
+    override fun getInputs(): Set<File> = setOf(module.androidResourcesDirectory)
+
+    // the generated classes are added to the module the same way AAPT2 adds the R classes,
+    // declaring gen as an output keeps the two tasks from doing it at the same time
+    override fun getOutputs(): Set<File> = setOf(
+        File(module.buildDirectory, VIEW_BINDING_GEN_DIR),
+        File(module.buildDirectory, "gen")
+    )
+
     override fun prepare(type: BuildType?) {
         outputDirectory = File(module.buildDirectory, VIEW_BINDING_GEN_DIR)
         doPrepare()
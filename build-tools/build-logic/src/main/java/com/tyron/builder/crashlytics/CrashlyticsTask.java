@@ -1,5 +1,6 @@
 package com.tyron.builder.crashlytics;
 
+import com.google.common.collect.ImmutableSet;
 import com.tyron.builder.compiler.BuildType;
 import com.tyron.builder.compiler.Task;
 import com.tyron.builder.compiler.manifest.resources.ResourceType;
@@ -24,6 +25,7 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Task to inject crashlytics build id to the resource directory
@@ -51,6 +53,21 @@ public class CrashlyticsTask extends Task<AndroidModule> {
         return TAG;
     }
 
+    @Override
+    public Set<File> getInputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(module.getAndroidResourcesDirectory(), module.getJavaDirectory(),
+                new File(module.getBuildDirectory(), "libs"),
+                new File(module.getBuildDirectory(), "bin/AndroidManifest.xml"));
+    }
+
+    @Override
+    public Set<File> getOutputs() {
+        AndroidModule module = getModule();
+        return ImmutableSet.of(new File(module.getAndroidResourcesDirectory(),
+                "values/" + CRASHLYTICS_RESOURCE_FILE));
+    }
+
     @Override
     public void prepare(BuildType type) throws IOException {
         mContainsCrashlytics = getModule().getAllClasses().contains(CORE_CLASS);
@@ -0,0 +1,106 @@
+package com.tyron.builder.compiler;
+
+import static org.junit.Assert.assertEquals;
+
+import com.tyron.builder.project.api.Module;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class BuilderImplTest {
+
+    private static final File BUILD = new File("/project/build");
+
+    @Test
+    public void testUndeclaredTaskIsBarrier() {
+        List<Task<?>> tasks = Arrays.asList(
+                task(files("libs"), files("gen")),
+                task(null, null),
+                task(files("res"), files("bin/res")));
+
+        List<Set<Integer>> dependencies = BuilderImpl.getDependencies(tasks);
+        assertEquals(Collections.emptySet(), dependencies.get(0));
+        assertEquals(set(0), dependencies.get(1));
+        assertEquals(set(1), dependencies.get(2));
+    }
+
+    @Test
+    public void testIndependentTasks() {
+        List<Task<?>> tasks = Arrays.asList(
+                task(files("libs"), files("gen")),
+                task(files("res"), files("bin/res")),
+                task(files("libs"), Collections.emptySet()));
+
+        List<Set<Integer>> dependencies = BuilderImpl.getDependencies(tasks);
+        assertEquals(Collections.emptySet(), dependencies.get(1));
+        // both only read build/libs
+        assertEquals(Collections.emptySet(), dependencies.get(2));
+    }
+
+    @Test
+    public void testOverlappingFiles() {
+        List<Task<?>> tasks = Arrays.asList(
+                task(files("libs"), files("gen")),
+                // reads a file inside the output of the first task
+                task(files("gen/R.java"), files("bin/classes")),
+                // writes inside the input of the first task
+                task(Collections.emptySet(), files("libs/a/classes.dex")),
+                // writes to the same directory as the second task
+                task(Collections.emptySet(), files("bin/classes")),
+                // only shares a name prefix, not a directory
+                task(files("bin/classes2"), files("generated")));
+
+        List<Set<Integer>> dependencies = BuilderImpl.getDependencies(tasks);
+        assertEquals(set(0), dependencies.get(1));
+        assertEquals(set(0), dependencies.get(2));
+        assertEquals(set(1), dependencies.get(3));
+        assertEquals(Collections.emptySet(), dependencies.get(4));
+    }
+
+    private static Set<File> files(String... paths) {
+        Set<File> files = new HashSet<>();
+        for (String path : paths) {
+            files.add(new File(BUILD, path));
+        }
+        return files;
+    }
+
+    private static Set<Integer> set(Integer... indices) {
+        return new HashSet<>(Arrays.asList(indices));
+    }
+
+    private static Task<Module> task(Set<File> inputs, Set<File> outputs) {
+        return new Task<Module>(null, null, null) {
+            @Override
+            public String getName() {
+                return "Test";
+            }
+
+            @Override
+            public Set<File> getInputs() {
+                return inputs;
+            }
+
+            @Override
+            public Set<File> getOutputs() {
+                return outputs;
+            }
+
+            @Override
+            public void prepare(BuildType type) {
+
+            }
+
+            @Override
+            public void run() {
+
+            }
+        };
+    }
+}
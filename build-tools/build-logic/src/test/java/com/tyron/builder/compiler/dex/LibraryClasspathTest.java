@@ -0,0 +1,70 @@
+package com.tyron.builder.compiler.dex;
+
+import static org.junit.Assert.assertEquals;
+
+import com.tyron.builder.model.CodeAssistLibrary;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LibraryClasspathTest {
+
+    private final Map<File, CodeAssistLibrary> mLibraries = new HashMap<>();
+
+    @Test
+    public void testTransitiveDependencies() {
+        File appcompat = library("appcompat", "core", "annotation");
+        File core = library("core", "annotation");
+        File annotation = library("annotation");
+        File unrelated = library("unrelated");
+        List<File> libraries = Arrays.asList(unrelated, annotation, core, appcompat);
+
+        assertEquals(Arrays.asList(core, annotation), get(appcompat, libraries));
+        assertEquals(Collections.singletonList(annotation), get(core, libraries));
+        assertEquals(Collections.emptyList(), get(annotation, libraries));
+    }
+
+    @Test
+    public void testDependencyNotInProject() {
+        File library = library("library", "optional", "core");
+        File core = library("core");
+        List<File> libraries = Arrays.asList(library, core);
+
+        assertEquals(Collections.singletonList(core), get(library, libraries));
+    }
+
+    @Test
+    public void testUnknownDependencies() {
+        File library = library("library", "core");
+        File core = new File("core.jar");
+        CodeAssistLibrary model = CodeAssistLibrary.forJar(core);
+        model.setDeclaration("core");
+        mLibraries.put(core, model);
+        File local = new File("local.jar");
+        List<File> libraries = Arrays.asList(library, core, local);
+
+        // the dependencies of core are not known
+        assertEquals(libraries, get(library, libraries));
+        // a local jar has no pom
+        assertEquals(libraries, get(local, libraries));
+    }
+
+    private List<File> get(File library, List<File> libraries) {
+        return LibraryClasspath.get(library, libraries, mLibraries::get);
+    }
+
+    private File library(String declaration, String... dependencies) {
+        File jar = new File(declaration + ".jar");
+        CodeAssistLibrary library = CodeAssistLibrary.forJar(jar);
+        library.setDeclaration(declaration);
+        library.setDependencies(Arrays.asList(dependencies));
+        mLibraries.put(jar, library);
+        return jar;
+    }
+}
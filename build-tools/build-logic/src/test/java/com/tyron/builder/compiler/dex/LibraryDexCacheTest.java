@@ -0,0 +1,118 @@
+package com.tyron.builder.compiler.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.CompilationMode;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LibraryDexCacheTest {
+
+    private static final int DEX_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mCacheDirectory;
+    private int mDexCount;
+
+    private final LibraryDexCache.Dexer mDexer = output -> {
+        mDexCount++;
+        try {
+            Files.write(new File(output, "classes.dex").toPath(), new byte[DEX_SIZE]);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    };
+
+    @Before
+    public void setup() {
+        mCacheDirectory = new File(mFolder.getRoot(), "cache");
+        mDexCount = 0;
+    }
+
+    @Test
+    public void testHitAndMiss() throws Exception {
+        LibraryDexCache cache = new LibraryDexCache(mCacheDirectory, 10 * DEX_SIZE);
+        File library = jar("library.jar", "library");
+
+        File first = dex(cache, library, Collections.emptyList(), 21);
+        assertEquals(1, mDexCount);
+        assertEquals(DEX_SIZE, new File(first, "classes.dex").length());
+
+        File second = dex(cache, library, Collections.emptyList(), 21);
+        assertEquals(1, mDexCount);
+        assertEquals(DEX_SIZE, new File(second, "classes.dex").length());
+
+        // a different minimum sdk produces different dex files
+        dex(cache, library, Collections.emptyList(), 26);
+        assertEquals(2, mDexCount);
+    }
+
+    @Test
+    public void testClasspathIsPartOfKeyBelowApi24() throws Exception {
+        LibraryDexCache cache = new LibraryDexCache(mCacheDirectory, 10 * DEX_SIZE);
+        File library = jar("library.jar", "library");
+        File dependency = jar("dependency.jar", "dependency");
+        List<File> classpath = Arrays.asList(library, dependency);
+
+        dex(cache, library, classpath, 21);
+        dex(cache, library, classpath, 26);
+        assertEquals(2, mDexCount);
+
+        jar("dependency.jar", "dependency changed");
+        dex(cache, library, classpath, 21);
+        assertEquals(3, mDexCount);
+        // interfaces are not desugared from API 24, the classpath does not matter
+        dex(cache, library, classpath, 26);
+        assertEquals(3, mDexCount);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        LibraryDexCache cache = new LibraryDexCache(mCacheDirectory, (long) (1.5 * DEX_SIZE));
+        File first = jar("first.jar", "first");
+        File second = jar("second.jar", "second");
+
+        dex(cache, first, Collections.emptyList(), 21);
+        File[] entries = mCacheDirectory.listFiles();
+        assertTrue(entries != null && entries.length == 1);
+        assertTrue(entries[0].setLastModified(System.currentTimeMillis() - 60_000));
+
+        dex(cache, second, Collections.emptyList(), 21);
+        assertEquals(2, mDexCount);
+        entries = mCacheDirectory.listFiles();
+        assertTrue(entries != null && entries.length == 1);
+
+        // the second library is still cached, the first one has to be dexed again
+        dex(cache, second, Collections.emptyList(), 21);
+        assertEquals(2, mDexCount);
+        dex(cache, first, Collections.emptyList(), 21);
+        assertEquals(3, mDexCount);
+    }
+
+    private File dex(LibraryDexCache cache, File library, List<File> classpath, int minSdk)
+            throws Exception {
+        File output = mFolder.newFolder();
+        cache.dex(library, classpath, minSdk, CompilationMode.RELEASE, output, mDexer);
+        return output;
+    }
+
+    private File jar(String name, String contents) throws IOException {
+        File file = new File(mFolder.getRoot(), name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,79 @@
+package com.tyron.builder.compiler.incremental;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class FileSnapshotsTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testTouchedButUnchanged() throws IOException {
+        File file = write("Main.java", "class Main {}");
+        FileSnapshots snapshots = compile(file);
+
+        assertTrue(file.setLastModified(file.lastModified() + 10_000));
+        assertFalse(snapshots.isModified(file));
+    }
+
+    @Test
+    public void testChangedWithOlderTimestamp() throws IOException {
+        File file = write("Main.java", "class Main {}");
+        FileSnapshots snapshots = compile(file);
+        long lastModified = file.lastModified();
+
+        // same length, so only the hash can tell the contents apart
+        write("Main.java", "class Mian {}");
+        assertTrue(file.setLastModified(lastModified - 10_000));
+        assertTrue(snapshots.isModified(file));
+    }
+
+    @Test
+    public void testEditedWhileCompiling() throws IOException {
+        File file = write("Main.java", "class Main {}");
+        FileSnapshots snapshots = FileSnapshots.load(new File(mFolder.getRoot(), "snapshots.bin"));
+        assertTrue(snapshots.isModified(file));
+
+        // saved after the task decided to compile the file but before it was committed
+        write("Main.java", "class Main { int field; }");
+        snapshots.commit(file);
+
+        assertTrue(snapshots.isModified(file));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File file = write("Main.java", "class Main {}");
+        File store = new File(mFolder.getRoot(), "snapshots.bin");
+        FileSnapshots snapshots = FileSnapshots.load(store);
+        snapshots.record(file);
+        snapshots.commit(file);
+        snapshots.save();
+
+        assertFalse(FileSnapshots.load(store).isModified(file));
+    }
+
+    private FileSnapshots compile(File file) {
+        FileSnapshots snapshots = FileSnapshots.load(new File(mFolder.getRoot(), "snapshots.bin"));
+        assertTrue(snapshots.isModified(file));
+        snapshots.commit(file);
+        assertFalse(snapshots.isModified(file));
+        return snapshots;
+    }
+
+    private File write(String name, String contents) throws IOException {
+        File file = new File(mFolder.getRoot(), name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
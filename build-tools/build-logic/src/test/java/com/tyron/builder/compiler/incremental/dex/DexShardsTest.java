@@ -0,0 +1,119 @@
+package com.tyron.builder.compiler.incremental.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class DexShardsTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mInputDirectory;
+    private DexShards mShards;
+
+    @Before
+    public void setup() throws IOException {
+        mInputDirectory = mFolder.newFolder("classes");
+        mShards = new DexShards(mInputDirectory, mFolder.newFolder("shards"), 16);
+    }
+
+    @Test
+    public void testInnerClassesStayWithOuterClass() throws IOException {
+        Path main = write("com/example/Main.dex", "main");
+        Path inner = write("com/example/Main$Inner.dex", "inner");
+        Path anonymous = write("com/example/Main$Inner$1.dex", "anonymous");
+        Path other = write("com/example/Other.dex", "other");
+
+        List<List<Path>> shards = mShards.split(Arrays.asList(other, anonymous, inner, main));
+        assertEquals(16, shards.size());
+        List<Path> shard = shards.stream()
+                .filter(paths -> paths.contains(main))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertTrue(shard.contains(inner));
+        assertTrue(shard.contains(anonymous));
+
+        // the shard of a class does not depend on the other classes
+        assertEquals(shards.indexOf(shard),
+                mShards.split(Collections.singletonList(main)).indexOf(
+                        Collections.singletonList(main)));
+    }
+
+    @Test
+    public void testUpToDate() throws IOException {
+        Path main = write("com/example/Main.dex", "main");
+        Path inner = write("com/example/Main$Inner.dex", "inner");
+        List<Path> inputs = Arrays.asList(main, inner);
+
+        assertFalse(mShards.isUpToDate(0, inputs));
+        mShards.clear(0);
+        mShards.markUpToDate(0, inputs);
+        assertTrue(mShards.isUpToDate(0, inputs));
+        assertFalse(mShards.isUpToDate(0, Collections.singletonList(main)));
+
+        write("com/example/Main$Inner.dex", "changed inner");
+        assertFalse(mShards.isUpToDate(0, inputs));
+        mShards.markUpToDate(0, inputs);
+        assertTrue(mShards.isUpToDate(0, inputs));
+
+        mShards.clear(0);
+        assertFalse(mShards.isUpToDate(0, inputs));
+    }
+
+    @Test
+    public void testCopyTo() throws IOException {
+        mShards.clear(0);
+        writeShard(0, "classes.dex", "first");
+        writeShard(0, "classes2.dex", "second");
+        mShards.clear(3);
+        writeShard(3, "classes.dex", "third");
+        writeShard(3, "inputs.txt", "not a dex file");
+
+        File output = mFolder.newFolder("output");
+        Files.write(new File(output, "classes5.dex").toPath(), bytes("stale"));
+        Files.write(new File(output, "resources.ap_").toPath(), bytes("resources"));
+
+        mShards.copyTo(output);
+
+        assertEquals("first", read(new File(output, "classes.dex")));
+        assertEquals("second", read(new File(output, "classes2.dex")));
+        assertEquals("third", read(new File(output, "classes3.dex")));
+        assertFalse(new File(output, "classes4.dex").exists());
+        assertFalse(new File(output, "classes5.dex").exists());
+        assertTrue(new File(output, "resources.ap_").exists());
+    }
+
+    private Path write(String path, String contents) throws IOException {
+        File file = new File(mInputDirectory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), bytes(contents));
+        return file.toPath();
+    }
+
+    private void writeShard(int shard, String name, String contents) throws IOException {
+        Files.write(new File(mShards.getShardDirectory(shard), name).toPath(), bytes(contents));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String contents) {
+        return contents.getBytes(StandardCharsets.UTF_8);
+    }
+}
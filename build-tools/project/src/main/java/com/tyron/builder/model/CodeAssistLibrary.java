@@ -6,6 +6,7 @@ import androidx.annotation.Nullable;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.File;
+import java.util.List;
 import java.util.Objects;
 
 public class CodeAssistLibrary {
@@ -19,6 +20,13 @@ public class CodeAssistLibrary {
     @SerializedName("declaration")
     private String declaration;
 
+    /**
+     * The declarations of the libraries this library depends on in its resolved pom,
+     * null if they are not known
+     */
+    @SerializedName("dependencies")
+    private List<String> dependencies;
+
     public static CodeAssistLibrary forJar(File jar) {
         CodeAssistLibrary codeAssistLibrary = new CodeAssistLibrary();
         codeAssistLibrary.setDeclaration(null);
@@ -34,6 +42,15 @@ public class CodeAssistLibrary {
         return declaration;
     }
 
+    @Nullable
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    public void setDependencies(@Nullable List<String> dependencies) {
+        this.dependencies = dependencies;
+    }
+
     public boolean isDependency() {
         return declaration != null;
     }
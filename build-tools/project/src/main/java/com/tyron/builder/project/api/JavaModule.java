@@ -4,9 +4,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.tyron.builder.model.CodeAssistLibrary;
+import com.tyron.builder.project.util.JarClassIndex;
 import com.tyron.builder.project.util.PackageTrie;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -54,6 +56,13 @@ public interface JavaModule extends Module {
     @NonNull
     PackageTrie getClassIndex();
 
+    /**
+     * @return The persistent class name index of each library jar of this module, used to
+     * look up classes by their simple name without listing every class
+     */
+    @NonNull
+    Collection<JarClassIndex> getLibraryClassIndexes();
+
     /**
      * @return The resources directory of the project. Note that
      * this is different from android's res directory
@@ -7,6 +7,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.tyron.builder.model.CodeAssistLibrary;
 import com.tyron.builder.project.api.JavaModule;
+import com.tyron.builder.project.util.JarClassIndex;
 import com.tyron.builder.project.util.PackageTrie;
 import com.tyron.common.util.StringSearch;
 
@@ -18,13 +19,13 @@ import org.jetbrains.kotlin.com.intellij.util.ReflectionUtil;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.Enumeration;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 public class JavaModuleImpl extends ModuleImpl implements JavaModule {
@@ -39,6 +40,9 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
     // the index of all the class files in this module
     private final PackageTrie mClassIndex = new PackageTrie();
 
+    // the persistent class name index of each library jar
+    private final Map<File, JarClassIndex> mJarIndexes = new LinkedHashMap<>();
+
     public JavaModuleImpl(File root) {
         super(root);
         mJavaFiles = new HashMap<>();
@@ -130,28 +134,31 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
         if (file == null) {
             return;
         }
-        try (JarFile jar = new JarFile(file)) {
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-
-                if (!entry.getName().endsWith(".class")) {
-                    continue;
-                }
-
-                // We only want top level classes, if it contains $ then
-                // its an inner class, we ignore it
-                if (entry.getName().contains("$")) {
-                    continue;
-                }
-
-                String packageName = entry.getName().replace("/", ".")
-                        .substring(0, entry.getName().length() - ".class".length());
-
-                mClassFiles.put(packageName, file);
-                mClassIndex.add(packageName);
-            }
+        JarClassIndex index = JarClassIndex.forJar(file, getLibraryHash(file));
+        mJarIndexes.put(file, index);
+        index.forEachClassName(className -> {
+            mClassFiles.put(className, file);
+            mClassIndex.add(className);
+        });
+    }
+
+    /**
+     * Libraries that have been checked are stored in a directory named after their md5 hash,
+     * the hash is reused as the key of the class index of the jar.
+     */
+    @Nullable
+    private String getLibraryHash(File jar) {
+        File parent = jar.getParentFile();
+        if (parent != null && mLibraryHashMap.containsKey(parent.getName())) {
+            return parent.getName();
         }
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public Collection<JarClassIndex> getLibraryClassIndexes() {
+        return ImmutableList.copyOf(mJarIndexes.values());
     }
 
     @NonNull
@@ -255,5 +262,6 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
         mJavaFiles.clear();
         mLibraries.clear();
         mLibraryHashMap.clear();
+        mJarIndexes.clear();
     }
 }
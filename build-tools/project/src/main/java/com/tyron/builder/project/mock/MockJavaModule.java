@@ -7,6 +7,7 @@ import com.tyron.builder.model.ModuleSettings;
 import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.impl.ModuleImpl;
+import com.tyron.builder.project.util.JarClassIndex;
 import com.tyron.builder.project.util.PackageTrie;
 import com.tyron.common.util.StringSearch;
 
@@ -18,6 +19,7 @@ import org.jetbrains.kotlin.com.intellij.util.keyFMap.KeyFMap;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -103,6 +105,12 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
         return new PackageTrie();
     }
 
+    @NonNull
+    @Override
+    public Collection<JarClassIndex> getLibraryClassIndexes() {
+        return Collections.emptyList();
+    }
+
     @NonNull
     @Override
     public File getResourcesDir() {
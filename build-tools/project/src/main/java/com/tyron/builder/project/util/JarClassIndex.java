@@ -0,0 +1,406 @@
+package com.tyron.builder.project.util;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.hash.Hashing;
+import com.tyron.common.ApplicationPaths;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A persistent, read only index of the top level class names of a jar file.
+ *
+ * The index is stored on disk keyed by the hash of the jar and is memory mapped when loaded,
+ * so opening a project again does not need to walk the entries of every library. Class names
+ * are sorted by their simple name so short name lookups and simple name prefix queries are
+ * done through a binary search without decoding every class name in the index.
+ *
+ * Format of the index file:
+ * <pre>
+ *     int magic
+ *     int version
+ *     int count
+ *     int[count] offsets of the entries sorted by simple name
+ *     entries: short length, short start of the simple name, byte[length] utf-8 class name
+ * </pre>
+ */
+public class JarClassIndex {
+
+    private static final String TAG = JarClassIndex.class.getSimpleName();
+
+    private static final int MAGIC = 0x43414958; // CAIX
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private static final String INDEX_EXTENSION = ".idx";
+
+    private static final Map<String, JarClassIndex> sLoadedIndexes = new ConcurrentHashMap<>();
+
+    private static volatile File sIndexDirectory;
+
+    /**
+     * Sets the directory on where the index files will be stored, if this is not set
+     * the cache directory of the application is used.
+     */
+    public static void setIndexDirectory(@Nullable File directory) {
+        sIndexDirectory = directory;
+    }
+
+    @Nullable
+    private static File getIndexDirectory() {
+        File directory = sIndexDirectory;
+        if (directory == null) {
+            try {
+                directory = new File(ApplicationPaths.getCacheDir(), "class-index");
+            } catch (IllegalStateException e) {
+                // not running inside the application, the index will only be kept in memory
+                return null;
+            }
+            sIndexDirectory = directory;
+        }
+        return directory;
+    }
+
+    /**
+     * Returns the index of the given jar, loading it from disk if it has been indexed before.
+     *
+     * @param jar The jar file to index
+     * @param hash The hash of the library containing the jar, such as the md5 hash of a
+     *             {@link com.tyron.builder.model.CodeAssistLibrary}. If null, a key is derived
+     *             from the path, size and modification time of the jar
+     */
+    @NonNull
+    public static JarClassIndex forJar(@NonNull File jar, @Nullable String hash) throws IOException {
+        // a library may contain more than one jar, so the name of the jar is part of the key
+        String key = hash != null ? hash + "-" + jar.getName() : computeKey(jar);
+        JarClassIndex loaded = sLoadedIndexes.get(key);
+        if (loaded != null) {
+            return loaded;
+        }
+
+        File directory = getIndexDirectory();
+        JarClassIndex index = null;
+        if (directory != null) {
+            File indexFile = new File(directory, key + INDEX_EXTENSION);
+            try {
+                if (indexFile.exists()) {
+                    index = read(indexFile);
+                }
+                if (index == null) {
+                    write(jar, indexFile);
+                    index = read(indexFile);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to use the class index of " + jar.getName(), e);
+            }
+        }
+        if (index == null) {
+            index = new JarClassIndex(ByteBuffer.wrap(createIndex(getClassNames(jar))));
+        }
+        sLoadedIndexes.put(key, index);
+        return index;
+    }
+
+    @NonNull
+    static String computeKey(@NonNull File jar) {
+        String identity = jar.getAbsolutePath() + ':' + jar.length() + ':' + jar.lastModified();
+        return Hashing.sha256()
+                .hashString(identity, StandardCharsets.UTF_8)
+                .toString();
+    }
+
+    /**
+     * Writes the index of the jar to the given file, the file is written to a temporary file
+     * first so a partially written index is never read.
+     */
+    public static void write(@NonNull File jar, @NonNull File indexFile) throws IOException {
+        byte[] index = createIndex(getClassNames(jar));
+        File parent = indexFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        File temp = new File(parent, indexFile.getName() + ".tmp");
+        Files.write(temp.toPath(), index);
+        Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return the index stored in the file, or null if the file is not a valid index
+     */
+    @Nullable
+    public static JarClassIndex read(@NonNull File indexFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+             FileChannel channel = file.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!isValid(buffer)) {
+                Log.w(TAG, "Ignoring invalid class index " + indexFile.getName());
+                return null;
+            }
+            return new JarClassIndex(buffer);
+        }
+    }
+
+    private static boolean isValid(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_SIZE) {
+            return false;
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return false;
+        }
+        int count = buffer.getInt(8);
+        return count >= 0 && HEADER_SIZE + (long) count * 4 <= buffer.limit();
+    }
+
+    /**
+     * @return the fully qualified names of the top level classes in the jar
+     */
+    static List<String> getClassNames(File file) throws IOException {
+        List<String> classNames = new ArrayList<>();
+        try (JarFile jar = new JarFile(file)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+
+                if (!entry.getName().endsWith(".class")) {
+                    continue;
+                }
+
+                // We only want top level classes, if it contains $ then
+                // its an inner class, we ignore it
+                if (entry.getName().contains("$")) {
+                    continue;
+                }
+
+                String packageName = entry.getName().replace("/", ".")
+                        .substring(0, entry.getName().length() - ".class".length());
+                classNames.add(packageName);
+            }
+        }
+        return classNames;
+    }
+
+    static byte[] createIndex(List<String> classNames) {
+        List<byte[]> entries = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            entries.add(className.getBytes(StandardCharsets.UTF_8));
+        }
+        entries.sort(JarClassIndex::compareEntries);
+
+        int size = HEADER_SIZE + entries.size() * 4;
+        for (byte[] entry : entries) {
+            size += 4 + entry.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(entries.size());
+
+        int offset = HEADER_SIZE + entries.size() * 4;
+        for (byte[] entry : entries) {
+            buffer.putInt(offset);
+            offset += 4 + entry.length;
+        }
+        for (byte[] entry : entries) {
+            buffer.putShort((short) entry.length);
+            buffer.putShort((short) simpleNameStart(entry));
+            buffer.put(entry);
+        }
+        return buffer.array();
+    }
+
+    private static int simpleNameStart(byte[] className) {
+        for (int i = className.length - 1; i >= 0; i--) {
+            if (className[i] == '.') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Entries are sorted case insensitively by their simple name then by their
+     * fully qualified name, so a case insensitive prefix is a contiguous range.
+     */
+    private static int compareEntries(byte[] first, byte[] second) {
+        int result = compareLowercase(first, simpleNameStart(first), first.length,
+                second, simpleNameStart(second), second.length);
+        if (result != 0) {
+            return result;
+        }
+        return compareLowercase(first, 0, first.length, second, 0, second.length);
+    }
+
+    private static int compareLowercase(byte[] first, int firstStart, int firstEnd,
+                                        byte[] second, int secondStart, int secondEnd) {
+        int firstLength = firstEnd - firstStart;
+        int secondLength = secondEnd - secondStart;
+        int length = Math.min(firstLength, secondLength);
+        for (int i = 0; i < length; i++) {
+            int result = toLowerCase(first[firstStart + i]) - toLowerCase(second[secondStart + i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return firstLength - secondLength;
+    }
+
+    private static int toLowerCase(byte b) {
+        int c = b & 0xFF;
+        if (c >= 'A' && c <= 'Z') {
+            return c + ('a' - 'A');
+        }
+        return c;
+    }
+
+    private final ByteBuffer mBuffer;
+    private final int mSize;
+
+    private JarClassIndex(ByteBuffer buffer) {
+        mBuffer = buffer;
+        mSize = buffer.getInt(8);
+    }
+
+    /**
+     * @return the amount of classes in this index
+     */
+    public int size() {
+        return mSize;
+    }
+
+    public void forEachClassName(@NonNull Consumer<String> consumer) {
+        for (int i = 0; i < mSize; i++) {
+            consumer.accept(getClassName(i));
+        }
+    }
+
+    /**
+     * @param simpleName The simple name of the class, case sensitive
+     * @return the fully qualified names of the classes with the given simple name
+     */
+    @NonNull
+    public List<String> findClassNames(@NonNull String simpleName) {
+        List<String> result = new ArrayList<>(1);
+        processClassNames(simpleName, true, className -> {
+            int start = className.length() - simpleName.length();
+            if (start == 0 || (start > 0 && className.charAt(start - 1) == '.')) {
+                result.add(className);
+            }
+            return true;
+        });
+        return result;
+    }
+
+    /**
+     * Process the fully qualified names of the classes whose simple name starts with the given
+     * prefix. Only the classes in the matching range are decoded.
+     *
+     * @param prefix The prefix of the simple name
+     * @param caseSensitive Whether the prefix should match case sensitively
+     * @param processor Returns false to stop processing
+     * @return false if the processor has stopped the iteration, true otherwise
+     */
+    public boolean processClassNames(@NonNull String prefix,
+                                     boolean caseSensitive,
+                                     @NonNull Predicate<String> processor) {
+        byte[] query = prefix.getBytes(StandardCharsets.UTF_8);
+        for (int i = lowerBound(query); i < mSize; i++) {
+            int offset = getEntryOffset(i);
+            int length = mBuffer.getShort(offset) & 0xFFFF;
+            int simpleStart = mBuffer.getShort(offset + 2) & 0xFFFF;
+            int comparison = comparePrefix(offset + 4 + simpleStart, length - simpleStart, query);
+            if (comparison != 0) {
+                break;
+            }
+            if (caseSensitive && !matchesCase(offset + 4 + simpleStart, query)) {
+                continue;
+            }
+            if (!processor.test(decode(offset + 4, length))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the first entry whose simple name is not less than the query
+     */
+    private int lowerBound(byte[] query) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int offset = getEntryOffset(mid);
+            int length = mBuffer.getShort(offset) & 0xFFFF;
+            int simpleStart = mBuffer.getShort(offset + 2) & 0xFFFF;
+            if (comparePrefix(offset + 4 + simpleStart, length - simpleStart, query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the first bytes of the simple name at the given position with the query,
+     * case insensitively. Returns 0 if the simple name starts with the query.
+     */
+    private int comparePrefix(int position, int length, byte[] query) {
+        int common = Math.min(length, query.length);
+        for (int i = 0; i < common; i++) {
+            int result = toLowerCase(mBuffer.get(position + i)) - toLowerCase(query[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length < query.length ? -1 : 0;
+    }
+
+    private boolean matchesCase(int position, byte[] query) {
+        for (int i = 0; i < query.length; i++) {
+            if (mBuffer.get(position + i) != query[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NonNull
+    public String getClassName(int index) {
+        int offset = getEntryOffset(index);
+        int length = mBuffer.getShort(offset) & 0xFFFF;
+        return decode(offset + 4, length);
+    }
+
+    private int getEntryOffset(int index) {
+        return mBuffer.getInt(HEADER_SIZE + index * 4);
+    }
+
+    private String decode(int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = mBuffer.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
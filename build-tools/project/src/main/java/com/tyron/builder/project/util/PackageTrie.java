@@ -2,14 +2,15 @@ package com.tyron.builder.project.util;
 
 import androidx.annotation.NonNull;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
 
 /**
  * A trie that stores package segments to a node.
@@ -22,13 +23,22 @@ import java.util.function.Function;
  *     /  \
  * String Object
  * </p>
+ *
+ * Segments are interned and shared between all the tries, and the children of a node are
+ * stored in a sorted array instead of a map to keep the memory usage low for large
+ * libraries such as android.jar.
  */
 public class PackageTrie {
 
+    /**
+     * Package segments such as "android" or "widget" are repeated across libraries and modules
+     */
+    private static final Interner<String> SEGMENTS = Interners.newWeakInterner();
+
     private final Node mRoot;
 
     public PackageTrie() {
-        mRoot = new Node();
+        mRoot = new Node("");
     }
 
     /**
@@ -36,7 +46,7 @@ public class PackageTrie {
      *
      * @param fqn The fully qualified name of a class, including its name
      */
-    public void add(@NonNull String fqn) {
+    public synchronized void add(@NonNull String fqn) {
         String[] parts = getParts(fqn);
         Node current = mRoot;
         for (String part : parts) {
@@ -62,7 +72,7 @@ public class PackageTrie {
      * @param fqn The package name
      * @param leafOnly Whether to delete the leaf only
      */
-    public void remove(@NonNull String fqn, boolean leafOnly) {
+    public synchronized void remove(@NonNull String fqn, boolean leafOnly) {
         String[] parts = getParts(fqn);
         Node current = mRoot;
         for (int i = 0; i < parts.length; i++) {
@@ -72,25 +82,22 @@ public class PackageTrie {
             if (current == null) {
                 break;
             }
-            if (current.getChildren() == null) {
-                current = null;
-            } else {
-                Node next = current.getChildren().get(part);
-                if (next != null && (isLeaf || !leafOnly)) {
-                    current.getChildren().remove(next.getValue());
-                }
-                current = next;
+            Node next = current.getChild(part);
+            if (next != null && (isLeaf || !leafOnly)) {
+                current.removeChild(next);
             }
+            current = next;
         }
     }
 
-    public List<String> getMatchingPackages(String packageQuery) {
+    public synchronized List<String> getMatchingPackages(String packageQuery) {
         List<String> result = new ArrayList<>();
         StringBuilder currentPackage = new StringBuilder();
         String[] parts = getParts(packageQuery);
         Node current = mRoot;
         for (String part : parts) {
-            if (current == null || current.getChildren() == null || !current.getChildren().containsKey(part)) {
+            Node next = current == null ? null : current.getChild(part);
+            if (next == null) {
                 return result;
             }
 
@@ -107,65 +114,42 @@ public class PackageTrie {
                 currentPackage.append(part);
             }
 
-            current = current.getChildren().get(part);
+            current = next;
         }
 
-        if (current.getChildren() != null) {
-            for (Node node : current.getChildren().values()) {
-                recurse(node, currentPackage.toString(), result);
-            }
+        for (int i = 0; i < current.mChildCount; i++) {
+            recurse(current.mChildren[i], currentPackage.toString(), result);
         }
 
         return result;
     }
 
-    public Set<String> getTopLevelNonLeafNodes() {
-        if (mRoot.getChildren() == null) {
+    public synchronized Set<String> getTopLevelNonLeafNodes() {
+        if (mRoot.mChildCount == 0) {
             return Collections.emptySet();
         }
 
-        return mRoot.getChildren().keySet();
-    }
-
-    public Set<String> getLeafNodes() {
-        return new HashSet<>(getLeafNodes("", mRoot));
-    }
-
-    private Set<String> getLeafNodes(String currentPackage, Node current) {
-        if (current.isLeaf) {
-            return Collections.singleton(currentPackage);
-        } else {
-            if (current.getChildren() == null || current.getChildren().isEmpty()) {
-                return Collections.emptySet();
-            }
-            Set<String> leafNodes = new HashSet<>();
-            for (Node value : current.getChildren().values()) {
-                String newPackage = currentPackage.isEmpty()
-                        ? value.getValue()
-                        : currentPackage + "." + value.getValue();
-                leafNodes.addAll(getLeafNodes(newPackage, value));
-            }
-            return leafNodes;
+        Set<String> nodes = new HashSet<>(mRoot.mChildCount);
+        for (int i = 0; i < mRoot.mChildCount; i++) {
+            nodes.add(mRoot.mChildren[i].mValue);
         }
+        return nodes;
     }
 
     private void recurse(Node node, String currentPackage, List<String> result) {
         if (node.isLeaf) {
             String newResult = currentPackage.length() > 0
-                    ? currentPackage + "." + node.getValue()
-                    : node.getValue();
+                    ? currentPackage + "." + node.mValue
+                    : node.mValue;
             result.add(newResult);
         } else {
             currentPackage = currentPackage.isEmpty()
-                    ? node.getValue()
-                    : currentPackage + "." + node.getValue();
+                    ? node.mValue
+                    : currentPackage + "." + node.mValue;
         }
 
-        if (node.getChildren() == null) {
-            return;
-        }
-        for (Node child : node.getChildren().values()) {
-            recurse(child, currentPackage, result);
+        for (int i = 0; i < node.mChildCount; i++) {
+            recurse(node.mChildren[i], currentPackage, result);
         }
     }
 
@@ -178,34 +162,70 @@ public class PackageTrie {
 
     private static class Node {
 
-        private Map<String, Node> mChildren;
+        private static final Node[] EMPTY = new Node[0];
 
-        private boolean isLeaf;
+        private final String mValue;
 
-        private String mValue;
+        /**
+         * Children sorted by their value, only the first {@link #mChildCount} are used
+         */
+        private Node[] mChildren = EMPTY;
 
-        public Node() {
+        private int mChildCount;
 
-        }
+        private boolean isLeaf;
 
         public Node(String value) {
             mValue = value;
         }
 
-        public Node getOrCreateChild(String part) {
-            if (mChildren == null) {
-                mChildren = new HashMap<>();
+        private int indexOf(String part) {
+            int low = 0;
+            int high = mChildCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int result = mChildren[mid].mValue.compareTo(part);
+                if (result < 0) {
+                    low = mid + 1;
+                } else if (result > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
             }
+            return -(low + 1);
+        }
 
-            return mChildren.computeIfAbsent(part, Node::new);
+        public Node getChild(String part) {
+            int index = indexOf(part);
+            return index >= 0 ? mChildren[index] : null;
         }
 
-        public Map<String, Node> getChildren() {
-            return mChildren;
+        public Node getOrCreateChild(String part) {
+            int index = indexOf(part);
+            if (index >= 0) {
+                return mChildren[index];
+            }
+
+            int insertion = -(index + 1);
+            if (mChildCount == mChildren.length) {
+                int newLength = mChildren.length == 0 ? 2 : mChildren.length + (mChildren.length >> 1) + 1;
+                mChildren = Arrays.copyOf(mChildren, newLength);
+            }
+            System.arraycopy(mChildren, insertion, mChildren, insertion + 1, mChildCount - insertion);
+            Node node = new Node(SEGMENTS.intern(part));
+            mChildren[insertion] = node;
+            mChildCount++;
+            return node;
         }
 
-        public String getValue() {
-            return mValue;
+        public void removeChild(Node child) {
+            int index = indexOf(child.mValue);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(mChildren, index + 1, mChildren, index, mChildCount - index - 1);
+            mChildren[--mChildCount] = null;
         }
 
         @Override
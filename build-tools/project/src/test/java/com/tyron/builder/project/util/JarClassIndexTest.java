@@ -0,0 +1,96 @@
+package com.tyron.builder.project.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+public class JarClassIndexTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mJar;
+
+    @Before
+    public void setup() throws IOException {
+        mJar = mFolder.newFile("classes.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(mJar))) {
+            String[] entries = {"android/widget/TextView.class", "android/widget/Button.class",
+                    "android/text/TextUtils.class", "android/widget/TextView$SavedState.class",
+                    "com/example/textview.class", "Toplevel.class", "META-INF/MANIFEST.MF"};
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.closeEntry();
+            }
+        }
+        JarClassIndex.setIndexDirectory(mFolder.newFolder("index"));
+    }
+
+    @Test
+    public void testPersistedIndex() throws IOException {
+        File indexFile = new File(mFolder.getRoot(), "test.idx");
+        JarClassIndex.write(mJar, indexFile);
+
+        JarClassIndex index = JarClassIndex.read(indexFile);
+        assertNotNull(index);
+        assertEquals(5, index.size());
+
+        List<String> classNames = new ArrayList<>();
+        index.forEachClassName(classNames::add);
+        assertTrue(classNames.contains("android.widget.TextView"));
+        assertTrue(classNames.contains("Toplevel"));
+    }
+
+    @Test
+    public void testFindBySimpleName() throws IOException {
+        JarClassIndex index = JarClassIndex.forJar(mJar, null);
+
+        assertEquals(1, index.findClassNames("TextView").size());
+        assertEquals("android.widget.TextView", index.findClassNames("TextView").get(0));
+        assertEquals(1, index.findClassNames("Toplevel").size());
+        assertEquals(0, index.findClassNames("Text").size());
+    }
+
+    @Test
+    public void testPrefix() throws IOException {
+        JarClassIndex index = JarClassIndex.forJar(mJar, null);
+
+        List<String> caseSensitive = new ArrayList<>();
+        index.processClassNames("Text", true, caseSensitive::add);
+        assertEquals(2, caseSensitive.size());
+
+        List<String> caseInsensitive = new ArrayList<>();
+        index.processClassNames("text", false, caseInsensitive::add);
+        assertEquals(3, caseInsensitive.size());
+
+        List<String> all = new ArrayList<>();
+        index.processClassNames("", true, all::add);
+        assertEquals(5, all.size());
+
+        List<String> first = new ArrayList<>();
+        index.processClassNames("", true, className -> {
+            first.add(className);
+            return false;
+        });
+        assertEquals(1, first.size());
+    }
+
+    @Test
+    public void testSameIndexIsReused() throws IOException {
+        assertSame(JarClassIndex.forJar(mJar, "hash"), JarClassIndex.forJar(mJar, "hash"));
+    }
+}
@@ -49,6 +49,11 @@ public class Cache<K, V> {
         return !needs(file, k);
     }
 
+    /** Returns whether a value was loaded for the file, even if the file was modified since. */
+    public boolean contains(Path file, K k) {
+        return map.containsKey(new Key<>(file, k));
+    }
+
     public void clear() {
         map.clear();
     }
@@ -0,0 +1,247 @@
+package com.tyron.common.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.Weigher;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded, thread safe replacement of {@link Cache} that maps a file + an arbitrary key
+ * to a value.
+ *
+ * Mappings are dropped explicitly through {@link #invalidate(Path)} when the owner is notified
+ * that a file has changed, which removes every key associated with that file. Lookups never
+ * touch the file system, files that are changed without a notification, for example outside
+ * of the editor, are dropped by {@link #invalidateChanged()} which the owner calls once per
+ * session.
+ */
+public class FileCache<K, V> {
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    public static class Builder<K, V> {
+
+        private long mMaximumSize = -1;
+        private long mMaximumWeight = -1;
+        private Weigher<? super Cache.Key<K>, ? super V> mWeigher;
+
+        private Builder() {
+
+        }
+
+        /**
+         * Limit the amount of entries of this cache, the least recently used entries
+         * are evicted first.
+         */
+        public Builder<K, V> maximumSize(long size) {
+            mMaximumSize = size;
+            return this;
+        }
+
+        /**
+         * Limit the total weight of the entries of this cache using the given weigher
+         */
+        public Builder<K, V> maximumWeight(long weight,
+                                           @NonNull Weigher<? super Cache.Key<K>, ? super V> weigher) {
+            mMaximumWeight = weight;
+            mWeigher = weigher;
+            return this;
+        }
+
+        public FileCache<K, V> build() {
+            if (mMaximumSize >= 0 && mMaximumWeight >= 0) {
+                throw new IllegalStateException("Only one of maximum size or weight can be set.");
+            }
+            return new FileCache<>(this);
+        }
+    }
+
+    private final com.google.common.cache.Cache<Cache.Key<K>, V> mCache;
+
+    /**
+     * Keys of the cache grouped by their file, used to drop all the keys of a file at once
+     */
+    private final ConcurrentMap<Path, Set<Cache.Key<K>>> mFileKeys = new ConcurrentHashMap<>();
+
+    /**
+     * The size and modification time of the files when their first key was loaded
+     */
+    private final ConcurrentMap<Path, FileStamp> mFileStamps = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private FileCache(Builder<K, V> builder) {
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+                .recordStats();
+        if (builder.mMaximumSize >= 0) {
+            cacheBuilder.maximumSize(builder.mMaximumSize);
+        }
+        if (builder.mMaximumWeight >= 0) {
+            cacheBuilder.maximumWeight(builder.mMaximumWeight)
+                    .weigher((Weigher<Object, Object>) builder.mWeigher);
+        }
+        RemovalListener<Cache.Key<K>, V> listener = notification -> {
+            if (notification.getCause() == RemovalCause.REPLACED) {
+                return;
+            }
+            Cache.Key<K> key = notification.getKey();
+            if (key != null) {
+                removeFileKey(key);
+            }
+        };
+        mCache = cacheBuilder.removalListener(listener).build();
+    }
+
+    public boolean has(Path file, K k) {
+        return getIfPresent(file, k) != null;
+    }
+
+    public boolean needs(Path file, K k) {
+        return !has(file, k);
+    }
+
+    public void load(Path file, K k, V v) {
+        Cache.Key<K> key = new Cache.Key<>(file, k);
+        mFileStamps.computeIfAbsent(file, FileStamp::of);
+        mFileKeys.compute(file, (f, keys) -> {
+            if (keys == null) {
+                keys = ConcurrentHashMap.newKeySet();
+            }
+            keys.add(key);
+            return keys;
+        });
+        mCache.put(key, v);
+    }
+
+    /**
+     * @return the value associated with the file and key
+     * @throws IllegalArgumentException if there is no value associated with it
+     */
+    @NonNull
+    public V get(Path file, K k) {
+        V value = getIfPresent(file, k);
+        if (value == null) {
+            throw new IllegalArgumentException(k + " of " + file + " is not in the cache");
+        }
+        return value;
+    }
+
+    @Nullable
+    public V getIfPresent(Path file, K k) {
+        return mCache.getIfPresent(new Cache.Key<>(file, k));
+    }
+
+    @SafeVarargs
+    public final void remove(Path file, K... keys) {
+        for (K k : keys) {
+            mCache.invalidate(new Cache.Key<>(file, k));
+        }
+    }
+
+    /**
+     * Removes all the keys associated with this file, called when the file has been modified
+     */
+    public void invalidate(Path file) {
+        mFileStamps.remove(file);
+        Set<Cache.Key<K>> keys = mFileKeys.remove(file);
+        if (keys != null) {
+            mCache.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * Removes all the keys of the files whose size or modification time has changed since
+     * their first key was loaded, each file is checked once.
+     *
+     * @return the number of files that were invalidated
+     */
+    public int invalidateChanged() {
+        int invalidated = 0;
+        for (Map.Entry<Path, FileStamp> entry : mFileStamps.entrySet()) {
+            if (!entry.getValue().equals(FileStamp.of(entry.getKey()))) {
+                invalidate(entry.getKey());
+                invalidated++;
+            }
+        }
+        return invalidated;
+    }
+
+    public void clear() {
+        mCache.invalidateAll();
+        mFileKeys.clear();
+        mFileStamps.clear();
+    }
+
+    public Set<Cache.Key<K>> getKeys() {
+        return Collections.unmodifiableSet(mCache.asMap().keySet());
+    }
+
+    public long size() {
+        return mCache.size();
+    }
+
+    /**
+     * @return the hit, miss and eviction counts of this cache
+     */
+    public CacheStats stats() {
+        return mCache.stats();
+    }
+
+    private void removeFileKey(Cache.Key<K> key) {
+        mFileKeys.computeIfPresent(key.file, (file, keys) -> {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                mFileStamps.remove(file);
+                return null;
+            }
+            return keys;
+        });
+    }
+
+    private static class FileStamp {
+
+        static FileStamp of(Path path) {
+            File file = path.toFile();
+            return new FileStamp(file.length(), file.lastModified());
+        }
+
+        private final long mLength;
+        private final long mLastModified;
+
+        private FileStamp(long length, long lastModified) {
+            mLength = length;
+            mLastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp that = (FileStamp) o;
+            return mLength == that.mLength && mLastModified == that.mLastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mLength, mLastModified);
+        }
+    }
+}
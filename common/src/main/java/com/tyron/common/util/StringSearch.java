@@ -196,20 +196,15 @@ public class StringSearch {
     }
 
 
+    /**
+     * Checks whether the file contains the query as a whole word. This is safe to call from
+     * multiple threads at the same time.
+     */
     public static boolean containsWord(Path java, String query) {
         StringSearch search = new StringSearch(query);
-//        if (FileStore.activeDocuments().contains(java)) {
-//            var text = FileStore.contents(java).getBytes();
-//            return search.nextWord(text) != -1;
-//        }
-        try (FileChannel channel = FileChannel.open(java)) {
-            // Read up to 1 MB of data from file
-            int limit = Math.min((int) channel.size(), SEARCH_BUFFER.capacity());
-            SEARCH_BUFFER.position(0);
-            SEARCH_BUFFER.limit(limit);
-            channel.read(SEARCH_BUFFER);
-            SEARCH_BUFFER.position(0);
-            return search.nextWord(SEARCH_BUFFER) != -1;
+        try {
+            ByteBuffer text = read(java);
+            return search.nextWord(text) != -1;
         } catch (NoSuchFileException e) {
             return false;
         } catch (IOException e) {
@@ -217,6 +212,14 @@ public class StringSearch {
         }
     }
 
+    /**
+     * Checks whether the contents, such as the unsaved contents of an opened file,
+     * contain the query as a whole word
+     */
+    public static boolean containsWord(CharSequence contents, String query) {
+        return new StringSearch(query).nextWord(contents.toString()) != -1;
+    }
+
     public static boolean matchesPartialName(CharSequence candidate, CharSequence partialName) {
         if (partialName.length() == 1 && partialName.equals(".")) {
             return true;
@@ -348,14 +351,9 @@ public class StringSearch {
 //            var text = FileStore.contents(java).getBytes();
 //            return search.next(text) != -1;
 //        }
-        try (FileChannel channel = FileChannel.open(java)) {
-            // Read up to 1 MB of data from file
-            int limit = Math.min((int) channel.size(), SEARCH_BUFFER.capacity());
-            SEARCH_BUFFER.position(0);
-            SEARCH_BUFFER.limit(limit);
-            channel.read(SEARCH_BUFFER);
-            SEARCH_BUFFER.position(0);
-            return search.next(SEARCH_BUFFER) != -1;
+        try {
+            ByteBuffer text = read(java);
+            return search.next(text) != -1;
         } catch (NoSuchFileException e) {
             return false;
         } catch (IOException e) {
@@ -416,5 +414,36 @@ public class StringSearch {
         }
     }
 
-    private static final ByteBuffer SEARCH_BUFFER = ByteBuffer.allocateDirect(1024 * 1024);
+    /**
+     * Files larger than this are memory mapped, smaller files are cheaper to copy
+     * into the buffer of the searching thread.
+     */
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> SEARCH_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MAP_THRESHOLD));
+
+    /**
+     * Reads the whole file, the returned buffer is only valid until the next call to this
+     * method on the same thread.
+     */
+    private static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            long size = channel.size();
+            if (size > MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        Math.min(size, Integer.MAX_VALUE));
+            }
+            ByteBuffer buffer = SEARCH_BUFFER.get();
+            buffer.clear();
+            buffer.limit((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
 }
@@ -0,0 +1,217 @@
+package com.tyron.common.util;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the set of byte trigrams of source files, used to skip files that cannot contain
+ * a word before searching them with {@link StringSearch}.
+ *
+ * Each entry remembers the modification time of its file, entries of files that have been
+ * modified since they were indexed are ignored and indexed again on the next lookup. The index
+ * can be saved to disk so it does not have to be rebuilt every time a project is opened.
+ */
+public class TrigramIndex {
+
+    private static final int MAGIC = 0x54524947;
+    private static final int VERSION = 1;
+
+    private static final int[] EMPTY = new int[0];
+
+    private static class Entry {
+        final long lastModified;
+        final int[] trigrams;
+
+        Entry(long lastModified, int[] trigrams) {
+            this.lastModified = lastModified;
+            this.trigrams = trigrams;
+        }
+    }
+
+    private final Map<Path, Entry> mEntries = new ConcurrentHashMap<>();
+
+    private volatile boolean mModified;
+
+    /**
+     * Loads an index saved through {@link #save(File)}, an empty index is returned if the file
+     * does not exist or cannot be read.
+     */
+    public static TrigramIndex load(@NonNull File file) {
+        TrigramIndex index = new TrigramIndex();
+        if (!file.exists()) {
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return index;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Path path = Paths.get(in.readUTF());
+                long lastModified = in.readLong();
+                int[] trigrams = new int[in.readInt()];
+                for (int j = 0; j < trigrams.length; j++) {
+                    trigrams[j] = in.readInt();
+                }
+                index.mEntries.put(path, new Entry(lastModified, trigrams));
+            }
+        } catch (IOException | RuntimeException e) {
+            // a corrupted index is rebuilt as files are looked up
+            index.mEntries.clear();
+        }
+        return index;
+    }
+
+    /**
+     * @return true if files have been indexed or removed since this index was loaded or saved
+     */
+    public boolean isModified() {
+        return mModified;
+    }
+
+    /**
+     * Writes this index to the given file if it has been modified since it was loaded. Saves
+     * are serialized, so concurrent callers do not write the same temporary file.
+     */
+    public synchronized void save(@NonNull File file) throws IOException {
+        if (!mModified) {
+            return;
+        }
+        // reset before the entries are copied, so entries added while writing are saved next time
+        mModified = false;
+        try {
+            write(file);
+        } catch (IOException e) {
+            mModified = true;
+            throw e;
+        }
+    }
+
+    private void write(File file) throws IOException {
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            Map<Path, Entry> entries = new HashMap<>(mEntries);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<Path, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey().toString());
+                out.writeLong(entry.getValue().lastModified);
+                int[] trigrams = entry.getValue().trigrams;
+                out.writeInt(trigrams.length);
+                for (int trigram : trigrams) {
+                    out.writeInt(trigram);
+                }
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public void remove(@NonNull Path file) {
+        if (mEntries.remove(file) != null) {
+            mModified = true;
+        }
+    }
+
+    /**
+     * Checks whether the file may contain the given word, the file is indexed again if it
+     * has been modified since it was last indexed. A result of false means that the file
+     * definitely does not contain the word.
+     */
+    public boolean mayContain(@NonNull Path file, @NonNull String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 3) {
+            return true;
+        }
+        Entry entry = getEntry(file);
+        if (entry == null) {
+            return true;
+        }
+        for (int i = 0; i + 2 < bytes.length; i++) {
+            if (Arrays.binarySearch(entry.trigrams, trigram(bytes, i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    private Entry getEntry(Path file) {
+        long lastModified = lastModified(file);
+        Entry entry = mEntries.get(file);
+        if (entry != null && entry.lastModified == lastModified) {
+            return entry;
+        }
+        if (lastModified == 0) {
+            // the file does not exist
+            remove(file);
+            return null;
+        }
+        try {
+            entry = new Entry(lastModified, trigrams(Files.readAllBytes(file)));
+        } catch (IOException e) {
+            return null;
+        }
+        mEntries.put(file, entry);
+        mModified = true;
+        return entry;
+    }
+
+    private static long lastModified(Path file) {
+        return file.toFile().lastModified();
+    }
+
+    /**
+     * @return the sorted, distinct trigrams of the text
+     */
+    private static int[] trigrams(byte[] text) {
+        if (text.length < 3) {
+            return EMPTY;
+        }
+        int[] trigrams = new int[text.length - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = trigram(text, i);
+        }
+        Arrays.sort(trigrams);
+        int unique = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (unique == 0 || trigrams[unique - 1] != trigrams[i]) {
+                trigrams[unique++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, unique);
+    }
+
+    private static int trigram(byte[] text, int offset) {
+        return (text[offset] & 0xFF) << 16
+               | (text[offset + 1] & 0xFF) << 8
+               | (text[offset + 2] & 0xFF);
+    }
+}
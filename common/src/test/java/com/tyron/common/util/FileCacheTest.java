@@ -0,0 +1,101 @@
+package com.tyron.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class FileCacheTest {
+
+    private final Path mFirst = Paths.get("First.java");
+    private final Path mSecond = Paths.get("Second.java");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testInvalidateRemovesAllKeysOfFile() {
+        FileCache<String, Boolean> cache = FileCache.<String, Boolean>builder()
+                .maximumSize(100)
+                .build();
+        cache.load(mFirst, "foo", true);
+        cache.load(mFirst, "bar", false);
+        cache.load(mSecond, "foo", true);
+
+        cache.invalidate(mFirst);
+
+        assertTrue(cache.needs(mFirst, "foo"));
+        assertTrue(cache.needs(mFirst, "bar"));
+        assertFalse(cache.needs(mSecond, "foo"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testFileChangedWithoutInvalidate() throws IOException {
+        File file = mFolder.newFile("Main.java");
+        Files.write(file.toPath(), "class Main {}".getBytes(StandardCharsets.UTF_8));
+        FileCache<String, Boolean> cache = FileCache.<String, Boolean>builder()
+                .maximumSize(100)
+                .build();
+        cache.load(file.toPath(), "Main", true);
+        assertFalse(cache.needs(file.toPath(), "Main"));
+
+        Files.write(file.toPath(), "class Other {}".getBytes(StandardCharsets.UTF_8));
+        // lookups do not check the file
+        assertFalse(cache.needs(file.toPath(), "Main"));
+
+        assertEquals(1, cache.invalidateChanged());
+        assertTrue(cache.needs(file.toPath(), "Main"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.invalidateChanged());
+    }
+
+    @Test
+    public void testMaximumSize() {
+        FileCache<Integer, Integer> cache = FileCache.<Integer, Integer>builder()
+                .maximumSize(10)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            cache.load(mFirst, i, i);
+        }
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.stats().evictionCount() >= 90);
+
+        // evicted keys should no longer be tracked for the file
+        cache.invalidate(mFirst);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMaximumWeight() {
+        FileCache<String, String> cache = FileCache.<String, String>builder()
+                .maximumWeight(10, (key, value) -> value.length())
+                .build();
+        cache.load(mFirst, "a", "12345");
+        cache.load(mSecond, "b", "12345");
+        cache.load(mSecond, "c", "12345");
+        assertTrue(cache.size() < 3);
+    }
+
+    @Test
+    public void testStatistics() {
+        FileCache<String, Boolean> cache = FileCache.<String, Boolean>builder()
+                .maximumSize(10)
+                .build();
+        cache.load(mFirst, "foo", true);
+        cache.getIfPresent(mFirst, "foo");
+        cache.getIfPresent(mFirst, "bar");
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+}
@@ -0,0 +1,51 @@
+package com.tyron.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TrigramIndexTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testMayContain() throws Exception {
+        Path file = write("Test.java", "class Test { StringBuilder builder; }");
+        TrigramIndex index = new TrigramIndex();
+        assertTrue(index.mayContain(file, "StringBuilder"));
+        assertTrue(index.mayContain(file, "in"));
+        assertFalse(index.mayContain(file, "ArrayList"));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        Path file = write("Test.java", "class Test { }");
+        File indexFile = new File(mFolder.getRoot(), "index/trigram.index");
+        TrigramIndex index = new TrigramIndex();
+        index.mayContain(file, "Test");
+        assertTrue(index.isModified());
+        index.save(indexFile);
+        assertFalse(index.isModified());
+
+        TrigramIndex loaded = TrigramIndex.load(indexFile);
+        assertFalse(loaded.isModified());
+        assertEquals(1, loaded.size());
+        assertFalse(loaded.mayContain(file, "Object"));
+    }
+
+    private Path write(String name, String contents) throws Exception {
+        Path path = new File(mFolder.getRoot(), name).toPath();
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+}
@@ -1,9 +1,11 @@
 package com.tyron.completion;
 
-import me.xdrop.fuzzywuzzy.FuzzySearch;
-
 /**
  * Logic of matching a completion name with a given completion prefix
+ *
+ * <p>The prefix is compiled once through {@link #forPrefix(String)} and the returned matcher
+ * can then be used to match every candidate without allocating. A matcher reuses its internal
+ * buffers so it must not be shared between threads.</p>
  */
 public class CompletionPrefixMatcher {
 
@@ -12,6 +14,12 @@ public class CompletionPrefixMatcher {
      */
     private static final int MINIMUM_SCORE = 70;
 
+    /**
+     * The maximum amount of steps spent on matching the humps of a single candidate,
+     * used to bound the backtracking on candidates with many humps
+     */
+    private static final int MAX_HUMP_STEPS = 256;
+
     /**
      * How well does the candidate name match the completion prefix.
      *
@@ -22,6 +30,7 @@ public class CompletionPrefixMatcher {
     public enum MatchLevel {
         NOT_MATCH,
         PARTIAL_MATCH,
+        CAMEL_HUMP,
         CASE_INSENSITIVE_PREFIX,
         CASE_SENSITIVE_PREFIX,
         CASE_INSENSITIVE_EQUAL,
@@ -29,22 +38,173 @@ public class CompletionPrefixMatcher {
     }
 
     public static MatchLevel computeMatchLevel(String candidateName, String completionPrefix) {
-        if (candidateName.startsWith(completionPrefix)) {
-            return candidateName.length() == completionPrefix.length()
+        return forPrefix(completionPrefix).match(candidateName);
+    }
+
+    /**
+     * Compiles the given prefix so it can be matched against many candidates
+     */
+    public static CompletionPrefixMatcher forPrefix(String completionPrefix) {
+        return new CompletionPrefixMatcher(completionPrefix);
+    }
+
+    private final String mPrefix;
+    private final char[] mLowerCase;
+    private final char[] mUpperCase;
+
+    /**
+     * The row used to compute the longest common subsequence, grown as needed
+     */
+    private int[] mRow;
+    private int mHumpSteps;
+
+    private CompletionPrefixMatcher(String prefix) {
+        mPrefix = prefix;
+        mLowerCase = new char[prefix.length()];
+        mUpperCase = new char[prefix.length()];
+        for (int i = 0; i < prefix.length(); i++) {
+            mLowerCase[i] = Character.toLowerCase(prefix.charAt(i));
+            mUpperCase[i] = Character.toUpperCase(prefix.charAt(i));
+        }
+    }
+
+    public String getPrefix() {
+        return mPrefix;
+    }
+
+    public MatchLevel match(String candidateName) {
+        int length = mPrefix.length();
+        if (candidateName.startsWith(mPrefix)) {
+            return candidateName.length() == length
                     ? MatchLevel.CASE_SENSITIVE_EQUAL
                     : MatchLevel.CASE_SENSITIVE_PREFIX;
         }
 
-        if (candidateName.toLowerCase().startsWith(completionPrefix.toLowerCase())) {
-            return candidateName.length() == completionPrefix.length()
+        if (candidateName.regionMatches(true, 0, mPrefix, 0, length)) {
+            return candidateName.length() == length
                     ? MatchLevel.CASE_INSENSITIVE_EQUAL
                     : MatchLevel.CASE_INSENSITIVE_PREFIX;
         }
 
-        int score = FuzzySearch.ratio(candidateName, completionPrefix);
-        if (score > MINIMUM_SCORE) {
+        if (matchesHumps(candidateName)) {
+            return MatchLevel.CAMEL_HUMP;
+        }
+
+        if (ratio(candidateName) > MINIMUM_SCORE) {
             return MatchLevel.PARTIAL_MATCH;
         }
         return MatchLevel.NOT_MATCH;
     }
+
+    /**
+     * Checks whether every character of the prefix can be found in order in the candidate,
+     * where each character either continues the previous match or starts a new hump.
+     * The first character of the prefix must match the first character of the candidate.
+     *
+     * e.g. AL, ArLi and arrL all match ArrayList
+     */
+    private boolean matchesHumps(String candidate) {
+        if (mLowerCase.length == 0 || mLowerCase.length > candidate.length()) {
+            return false;
+        }
+        if (!charEquals(candidate.charAt(0), 0)) {
+            return false;
+        }
+        mHumpSteps = MAX_HUMP_STEPS;
+        return matchesHumps(candidate, 1, 1);
+    }
+
+    private boolean matchesHumps(String candidate, int candidateIndex, int prefixIndex) {
+        if (prefixIndex == mLowerCase.length) {
+            return true;
+        }
+        if (--mHumpSteps < 0) {
+            return false;
+        }
+        int length = candidate.length();
+        if (length - candidateIndex < mLowerCase.length - prefixIndex) {
+            return false;
+        }
+        // continue the current hump
+        if (charEquals(candidate.charAt(candidateIndex), prefixIndex)
+            && matchesHumps(candidate, candidateIndex + 1, prefixIndex + 1)) {
+            return true;
+        }
+        // or start from one of the next humps
+        for (int i = candidateIndex + 1; i < length; i++) {
+            if (isHumpStart(candidate, i)
+                && charEquals(candidate.charAt(i), prefixIndex)
+                && matchesHumps(candidate, i + 1, prefixIndex + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean charEquals(char c, int prefixIndex) {
+        return c == mLowerCase[prefixIndex] || c == mUpperCase[prefixIndex];
+    }
+
+    private static boolean isHumpStart(String string, int index) {
+        char current = string.charAt(index);
+        char previous = string.charAt(index - 1);
+        if (!Character.isLetterOrDigit(previous)) {
+            return Character.isLetterOrDigit(current);
+        }
+        if (!Character.isUpperCase(current)) {
+            return false;
+        }
+        if (!Character.isUpperCase(previous)) {
+            return true;
+        }
+        // the last upper case letter of an acronym, such as the C of URLConnection
+        return index + 1 < string.length() && Character.isLowerCase(string.charAt(index + 1));
+    }
+
+    /**
+     * Computes the same ratio as {@code FuzzySearch.ratio}, which is based on an edit distance
+     * where a substitution costs two. That distance is equal to the length of both strings minus
+     * twice their longest common subsequence, which is computed with a single reused row.
+     *
+     * Candidates whose length is too different from the prefix to ever reach the minimum
+     * score are rejected before doing any work.
+     */
+    private int ratio(String candidate) {
+        int candidateLength = candidate.length();
+        int prefixLength = mPrefix.length();
+        int lengthSum = candidateLength + prefixLength;
+        if (lengthSum == 0) {
+            return 100;
+        }
+        int maxCommon = Math.min(candidateLength, prefixLength);
+        if (score(maxCommon, lengthSum) <= MINIMUM_SCORE) {
+            return score(maxCommon, lengthSum);
+        }
+
+        int[] row = mRow;
+        if (row == null || row.length < prefixLength + 1) {
+            row = mRow = new int[prefixLength + 1];
+        }
+        for (int j = 0; j <= prefixLength; j++) {
+            row[j] = 0;
+        }
+        for (int i = 0; i < candidateLength; i++) {
+            char c = candidate.charAt(i);
+            int diagonal = 0;
+            for (int j = 1; j <= prefixLength; j++) {
+                int above = row[j];
+                if (c == mPrefix.charAt(j - 1)) {
+                    row[j] = diagonal + 1;
+                } else if (row[j - 1] > above) {
+                    row[j] = row[j - 1];
+                }
+                diagonal = above;
+            }
+        }
+        return score(row[prefixLength], lengthSum);
+    }
+
+    private static int score(int common, int lengthSum) {
+        return (int) Math.round(100.0 * (2 * common) / lengthSum);
+    }
 }
@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Subclass this to provide completions on the given file.
@@ -38,6 +39,21 @@ public abstract class CompletionProvider {
 
     public abstract CompletionList complete(CompletionParameters parameters);
 
+    /**
+     * Streams the completion items to the consumer as they are computed. Providers that have
+     * both cheap and expensive results should override this to deliver the cheap ones first,
+     * the consumer may then be called more than once with the next tiers of items.
+     *
+     * The default implementation delivers the result of {@link #complete(CompletionParameters)}
+     * at once.
+     */
+    public void complete(CompletionParameters parameters, Consumer<CompletionList> consumer) {
+        CompletionList list = complete(parameters);
+        if (list != null && !list.getItems().isEmpty()) {
+            consumer.accept(list);
+        }
+    }
+
     @SuppressLint("NewApi")
     public static ImmutableList<CompletionProvider> forParameters(@NotNull CompletionParameters parameters) {
         File file = parameters.getFile();
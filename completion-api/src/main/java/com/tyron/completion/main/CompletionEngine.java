@@ -7,12 +7,19 @@ import com.tyron.common.logging.IdeLog;
 import com.tyron.completion.CompletionParameters;
 import com.tyron.completion.CompletionProvider;
 import com.tyron.completion.model.CompletionList;
+import com.tyron.completion.progress.PriorityScheduler;
 import com.tyron.completion.progress.ProcessCanceledException;
+import com.tyron.completion.progress.ProgressManager;
 import com.tyron.editor.Editor;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -31,6 +38,8 @@ public class CompletionEngine {
 
     private final Logger logger = IdeLog.getCurrentLogger(this);
 
+    private final Map<String, CompletionTimings> mTimings = new ConcurrentHashMap<>();
+
     public CompletionEngine() {
 
     }
@@ -64,24 +73,121 @@ public class CompletionEngine {
                 .build();
         List<CompletionProvider> providers = CompletionProvider.forParameters(parameters);
         for (CompletionProvider provider : providers) {
+            long start = System.nanoTime();
             try {
                 CompletionList complete = provider.complete(parameters);
                 if (complete != null) {
                     list.items.addAll(complete.items);
                 }
+                long elapsed = System.nanoTime() - start;
+                int count = complete == null ? 0 : complete.items.size();
+                recordTimings(provider, count > 0 ? elapsed : -1, elapsed, count);
             } catch (Throwable e) {
                 if (e instanceof ProcessCanceledException) {
                     throw e;
                 }
-
-                String message = "Failed to complete: \n" +
-                                 "index: " + index + "\n" +
-                                 "prefix: " + prefix + "\n" +
-                                 "File: " + file.getName() + "\n" +
-                                 "Stack trace: " + Throwables.getStackTraceAsString(e);
-                logger.severe(message);
+                logFailure(parameters, e);
             }
         }
         return list;
     }
+
+    /**
+     * Streams the completion items of every provider to the consumer as soon as they are
+     * available, the cheap results of a provider are delivered before its expensive ones.
+     * The completion runs on the interactive lane of the {@link ProgressManager} while the
+     * calling thread waits for it, a newer completion of the same file cancels it. The consumer
+     * may be called many times and the completion stops with a
+     * {@link ProcessCanceledException} as soon as it is canceled, such as when the prefix has
+     * changed.
+     */
+    public void complete(CompletionParameters parameters, Consumer<CompletionList> consumer) {
+        Project project = parameters.getProject();
+        if (project.isCompiling() || project.isIndexing()) {
+            return;
+        }
+
+        ProgressManager.getInstance().runAndWait(PriorityScheduler.Priority.INTERACTIVE,
+                new CompletionKey(parameters.getFile()), () -> doComplete(parameters, consumer));
+    }
+
+    private void doComplete(CompletionParameters parameters, Consumer<CompletionList> consumer) {
+        List<CompletionProvider> providers = CompletionProvider.forParameters(parameters);
+        for (CompletionProvider provider : providers) {
+            ProgressManager.checkCanceled();
+
+            long start = System.nanoTime();
+            long[] firstItem = {-1};
+            int[] count = {0};
+            try {
+                provider.complete(parameters, list -> {
+                    ProgressManager.checkCanceled();
+                    if (list.items.isEmpty()) {
+                        return;
+                    }
+                    if (firstItem[0] == -1) {
+                        firstItem[0] = System.nanoTime() - start;
+                    }
+                    count[0] += list.items.size();
+                    consumer.accept(list);
+                });
+                recordTimings(provider, firstItem[0], System.nanoTime() - start, count[0]);
+            } catch (Throwable e) {
+                if (e instanceof ProcessCanceledException) {
+                    throw e;
+                }
+                logFailure(parameters, e);
+            }
+        }
+    }
+
+    /**
+     * Distinguishes the completion of a file from the other tasks keyed by that file
+     */
+    private static class CompletionKey {
+
+        private final File mFile;
+
+        CompletionKey(File file) {
+            mFile = file;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CompletionKey && Objects.equals(mFile, ((CompletionKey) o).mFile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(mFile);
+        }
+    }
+
+    /**
+     * @return the timings of the last completion of each provider, keyed by the class name
+     *         of the provider
+     */
+    public Map<String, CompletionTimings> getTimings() {
+        return Collections.unmodifiableMap(mTimings);
+    }
+
+    private void recordTimings(CompletionProvider provider,
+                               long timeToFirstItem,
+                               long timeToComplete,
+                               int itemCount) {
+        String name = provider.getClass().getSimpleName();
+        CompletionTimings timings =
+                new CompletionTimings(name, timeToFirstItem, timeToComplete, itemCount);
+        mTimings.put(name, timings);
+        logger.fine("Completion timings: " + timings);
+    }
+
+    private void logFailure(CompletionParameters parameters, Throwable e) {
+        String message = "Failed to complete: \n" +
+                         "index: " + parameters.getIndex() + "\n" +
+                         "prefix: " + parameters.getPrefix() + "\n" +
+                         "File: " + parameters.getFile().getName() + "\n" +
+                         "Stack trace: " + Throwables.getStackTraceAsString(e);
+        logger.severe(message);
+    }
 }
@@ -0,0 +1,56 @@
+package com.tyron.completion.main;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings of the last completion of a single {@link com.tyron.completion.CompletionProvider}
+ */
+public class CompletionTimings {
+
+    private final String mProviderName;
+    private final long mTimeToFirstItem;
+    private final long mTimeToComplete;
+    private final int mItemCount;
+
+    CompletionTimings(String providerName,
+                      long timeToFirstItem,
+                      long timeToComplete,
+                      int itemCount) {
+        mProviderName = providerName;
+        mTimeToFirstItem = timeToFirstItem;
+        mTimeToComplete = timeToComplete;
+        mItemCount = itemCount;
+    }
+
+    public String getProviderName() {
+        return mProviderName;
+    }
+
+    /**
+     * @return the time in milliseconds until the first items were delivered,
+     *         or -1 if the provider did not return any items
+     */
+    public long getTimeToFirstItem() {
+        return mTimeToFirstItem < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(mTimeToFirstItem);
+    }
+
+    /**
+     * @return the time in milliseconds until the provider has delivered all of its items
+     */
+    public long getTimeToComplete() {
+        return TimeUnit.NANOSECONDS.toMillis(mTimeToComplete);
+    }
+
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    @Override
+    public String toString() {
+        return mProviderName + "{" +
+               "firstItem=" + getTimeToFirstItem() + "ms" +
+               ", complete=" + getTimeToComplete() + "ms" +
+               ", items=" + mItemCount +
+               '}';
+    }
+}
@@ -12,9 +12,9 @@ import com.tyron.completion.CompletionProvider;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Represents a list of completion items to be return from a {@link CompletionProvider}
@@ -66,12 +66,22 @@ public class CompletionList {
     public static class Builder {
         private final List<CompletionItem> items;
         private boolean incomplete;
+        private int maxItems = -1;
+
+        /**
+         * Receives the items added since the last {@link #flush()}, null if the items are
+         * only returned through {@link #build()}
+         */
+        private Consumer<CompletionList> consumer;
+        private int flushedCount;
 
         private final String completionPrefix;
+        private final CompletionPrefixMatcher matcher;
 
         public Builder(String completionPrefix) {
             items = new ArrayList<>();
             this.completionPrefix = completionPrefix;
+            this.matcher = CompletionPrefixMatcher.forPrefix(completionPrefix);
         }
 
         public String getPrefix() {
@@ -94,20 +104,16 @@ public class CompletionList {
         }
 
         public Builder addItem(CompletionItem item) {
-            List<MatchLevel> matchLevels = new ArrayList<>();
+            MatchLevel matchLevel = MatchLevel.NOT_MATCH;
             for (String filterText : item.getFilterTexts()) {
-                MatchLevel matchLevel =
-                        CompletionPrefixMatcher.computeMatchLevel(filterText, completionPrefix);
-                if (matchLevel == MatchLevel.NOT_MATCH) {
-                    continue;
+                MatchLevel level = matcher.match(filterText);
+                if (level.compareTo(matchLevel) > 0) {
+                    matchLevel = level;
                 }
-                matchLevels.add(matchLevel);
             }
-            if (matchLevels.isEmpty()) {
+            if (matchLevel == MatchLevel.NOT_MATCH) {
                 return this;
             }
-            Collections.sort(matchLevels);
-            MatchLevel matchLevel = matchLevels.get(matchLevels.size() - 1);
             item.setMatchLevel(matchLevel);
             items.add(item);
             return this;
@@ -125,11 +131,59 @@ public class CompletionList {
             return incomplete;
         }
 
-        @SuppressWarnings("NewApi")
+        /**
+         * Limit the amount of items of the built list to the best matching ones. Only those
+         * items are sorted, the list is marked as incomplete if items have been dropped.
+         */
+        public Builder maxItems(int maxItems) {
+            this.maxItems = maxItems;
+            return this;
+        }
+
+        /**
+         * Deliver the items to the given consumer as they are flushed instead of waiting
+         * for the whole list to be built.
+         *
+         * @see #flush()
+         */
+        public Builder streamTo(Consumer<CompletionList> consumer) {
+            this.consumer = consumer;
+            return this;
+        }
+
+        /**
+         * Delivers the items added since the last flush to the consumer of this builder, sorted
+         * among themselves. Providers call this after adding a cheap tier of items so it can
+         * be displayed while the more expensive tiers are still being computed.
+         * Does nothing if this builder is not streaming.
+         */
+        public void flush() {
+            if (consumer == null || flushedCount == items.size()) {
+                return;
+            }
+            List<CompletionItem> pending = items.subList(flushedCount, items.size());
+            flushedCount = items.size();
+            consumer.accept(sorted(pending, incomplete));
+        }
+
+        public boolean isStreaming() {
+            return consumer != null;
+        }
+
         public CompletionList build() {
+            return sorted(items, incomplete);
+        }
+
+        @SuppressWarnings("NewApi")
+        private CompletionList sorted(List<CompletionItem> toSort, boolean incomplete) {
             CompletionList list = new CompletionList();
-            list.isIncomplete = this.incomplete;
-            list.items = ITEM_ORDERING.immutableSortedCopy(items);
+            list.isIncomplete = incomplete;
+            if (maxItems >= 0 && toSort.size() > maxItems) {
+                list.isIncomplete = true;
+                list.items = ImmutableList.copyOf(ITEM_ORDERING.leastOf(toSort, maxItems));
+            } else {
+                list.items = ITEM_ORDERING.immutableSortedCopy(toSort);
+            }
             return list;
         }
     }
@@ -0,0 +1,224 @@
+package com.tyron.completion.progress;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a bounded amount of worker threads, picking the queued task with the
+ * highest priority whenever a worker becomes free.
+ *
+ * One worker is always kept available for {@link Priority#INTERACTIVE} tasks, so completion
+ * requests do not have to wait for long running background tasks such as indexing to finish.
+ * Tasks submitted with a key supersede the previous task with the same key, which is dropped
+ * if it has not started yet or canceled through its {@link ProgressIndicator} otherwise.
+ */
+public class PriorityScheduler {
+
+    /**
+     * The priority of a task, declared from the most important to the least important
+     */
+    public enum Priority {
+        /**
+         * Tasks the user is actively waiting for, such as code completion
+         */
+        INTERACTIVE,
+        /**
+         * Analysis of the file being edited
+         */
+        DIAGNOSTICS,
+        /**
+         * Everything else, such as indexing, opening projects and saving files
+         */
+        BACKGROUND
+    }
+
+    private static final long KEEP_ALIVE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * @return the amount of workers to use on this device, at least 4 since some of the
+     *         background tasks block for a long time
+     */
+    public static int defaultParallelism() {
+        return Math.max(4, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static class Task {
+        final Priority priority;
+        final Object key;
+        final Runnable runnable;
+        final ProgressIndicator indicator;
+
+        Task(Priority priority, Object key, Runnable runnable, ProgressIndicator indicator) {
+            this.priority = priority;
+            this.key = key;
+            this.runnable = runnable;
+            this.indicator = indicator;
+        }
+    }
+
+    private final int mParallelism;
+    private final ArrayDeque<Task>[] mQueues;
+    private final Map<Object, Task> mTasksByKey = new HashMap<>();
+    private final AtomicInteger mThreadCount = new AtomicInteger();
+    private final String mName;
+
+    private int mWorkers;
+    private int mIdleWorkers;
+
+    /**
+     * The amount of running tasks that are not {@link Priority#INTERACTIVE}
+     */
+    private int mRunningNonInteractive;
+
+    @SuppressWarnings("unchecked")
+    public PriorityScheduler(String name, int parallelism) {
+        if (parallelism < 2) {
+            throw new IllegalArgumentException("At least two workers are needed");
+        }
+        mName = name;
+        mParallelism = parallelism;
+        mQueues = new ArrayDeque[Priority.values().length];
+        for (int i = 0; i < mQueues.length; i++) {
+            mQueues[i] = new ArrayDeque<>();
+        }
+    }
+
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * @return an executor that submits its tasks with the given priority
+     */
+    public Executor executor(Priority priority) {
+        return runnable -> submit(priority, null, runnable, new ProgressIndicator());
+    }
+
+    /**
+     * Queue a task to be run
+     *
+     * @param priority  The priority of the task
+     * @param key       If not null, cancels the previous task submitted with an equal key
+     * @param runnable  The task to run
+     * @param indicator Used to cancel the task, a canceled task that has not started yet
+     *                  is not run at all
+     */
+    public synchronized void submit(Priority priority,
+                                    Object key,
+                                    Runnable runnable,
+                                    ProgressIndicator indicator) {
+        Task task = new Task(priority, key, runnable, indicator);
+        if (key != null) {
+            Task previous = mTasksByKey.put(key, task);
+            if (previous != null) {
+                previous.indicator.cancel();
+                mQueues[previous.priority.ordinal()].remove(previous);
+            }
+        }
+        mQueues[priority.ordinal()].add(task);
+
+        boolean canRun = priority == Priority.INTERACTIVE
+                         || mRunningNonInteractive < mParallelism - 1;
+        if (!canRun) {
+            // picked up by the next worker that finishes its task
+            return;
+        }
+        if (mIdleWorkers > 0) {
+            notifyAll();
+        } else if (mWorkers < mParallelism) {
+            startWorker();
+        }
+    }
+
+    /**
+     * @return the amount of tasks waiting to be run
+     */
+    public synchronized int getQueuedCount() {
+        int count = 0;
+        for (ArrayDeque<Task> queue : mQueues) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    private void startWorker() {
+        mWorkers++;
+        Thread thread = new Thread(this::runWorker, mName + "-" + mThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Takes the next task that is allowed to run, only called while holding the lock
+     */
+    private Task poll() {
+        for (Priority priority : Priority.values()) {
+            ArrayDeque<Task> queue = mQueues[priority.ordinal()];
+            if (queue.isEmpty()) {
+                continue;
+            }
+            if (priority != Priority.INTERACTIVE && mRunningNonInteractive >= mParallelism - 1) {
+                // the lower priorities are not allowed to run either
+                return null;
+            }
+            return queue.poll();
+        }
+        return null;
+    }
+
+    private void runWorker() {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = poll();
+                if (task == null) {
+                    mIdleWorkers++;
+                    try {
+                        wait(KEEP_ALIVE_MILLIS);
+                    } catch (InterruptedException e) {
+                        // exit below if there is nothing to do
+                    } finally {
+                        mIdleWorkers--;
+                    }
+                    task = poll();
+                    if (task == null) {
+                        mWorkers--;
+                        return;
+                    }
+                }
+                if (task.priority != Priority.INTERACTIVE) {
+                    mRunningNonInteractive++;
+                }
+            }
+
+            try {
+                if (!task.indicator.isCanceled()) {
+                    task.runnable.run();
+                }
+            } catch (Throwable t) {
+                Thread current = Thread.currentThread();
+                Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+                if (handler != null) {
+                    handler.uncaughtException(current, t);
+                }
+            } finally {
+                synchronized (this) {
+                    if (task.priority != Priority.INTERACTIVE) {
+                        mRunningNonInteractive--;
+                    }
+                    if (task.key != null && mTasksByKey.get(task.key) == task) {
+                        mTasksByKey.remove(task.key);
+                    }
+                    if (mIdleWorkers > 0 && getQueuedCount() > 0) {
+                        // a lower priority task may be allowed to run now
+                        notifyAll();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
+import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.AsyncCallable;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -16,9 +17,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 public class ProgressManager {
@@ -36,13 +39,16 @@ public class ProgressManager {
         getInstance().doCheckCanceled();
     }
 
-    private final ExecutorService mPool = Executors.newFixedThreadPool(32);
+    private static final long WAIT_CHECK_MILLIS = 50;
+
+    private final PriorityScheduler mScheduler =
+            new PriorityScheduler("ProgressManager", PriorityScheduler.defaultParallelism());
     private final HandlerInterface mMainHandler;
 
     private final Map<Thread, ProgressIndicator> mThreadToIndicator;
 
     public ProgressManager() {
-        mThreadToIndicator = new WeakHashMap<>();
+        mThreadToIndicator = Collections.synchronizedMap(new WeakHashMap<>());
         if (TestUtil.isDalvik()) {
             mMainHandler = new DefaultHandlerInterface(new Handler(Looper.getMainLooper()));
         } else {
@@ -61,7 +67,36 @@ public class ProgressManager {
     public void runAsync(Runnable runnable,
                          Consumer<ProgressIndicator> cancelConsumer,
                          ProgressIndicator indicator) {
-        mPool.execute(() -> {
+        runAsync(PriorityScheduler.Priority.INTERACTIVE, null, runnable, cancelConsumer, indicator);
+    }
+
+    /**
+     * Run a cancelable asynchronous task with the given priority.
+     *
+     * @param priority       The priority of the task, tasks the user is waiting for should be
+     *                       {@link PriorityScheduler.Priority#INTERACTIVE}
+     * @param key            If not null, the previous task submitted with the same key is
+     *                       canceled since its result is no longer needed
+     * @param runnable       The task to run
+     * @param cancelConsumer The code to run when this task has been canceled while running,
+     *                       called from background thread
+     * @return The indicator used to cancel the task
+     */
+    public ProgressIndicator runAsync(PriorityScheduler.Priority priority,
+                                      Object key,
+                                      Runnable runnable,
+                                      Consumer<ProgressIndicator> cancelConsumer) {
+        ProgressIndicator indicator = new ProgressIndicator();
+        runAsync(priority, key, runnable, cancelConsumer, indicator);
+        return indicator;
+    }
+
+    private void runAsync(PriorityScheduler.Priority priority,
+                          Object key,
+                          Runnable runnable,
+                          Consumer<ProgressIndicator> cancelConsumer,
+                          ProgressIndicator indicator) {
+        mScheduler.submit(priority, key, () -> {
             Thread currentThread = Thread.currentThread();
             try {
                 mThreadToIndicator.put(currentThread, indicator);
@@ -73,7 +108,63 @@ public class ProgressManager {
                 indicator.setRunning(false);
                 mThreadToIndicator.remove(currentThread);
             }
-        });
+        }, indicator);
+    }
+
+    /**
+     * Run a cancelable task with the given priority and block the calling thread until it
+     * has finished, so work started from threads the scheduler does not own, such as the
+     * completion thread of the editor, is still ordered by its priority. The task runs on
+     * the calling thread if it is already run by this manager.
+     *
+     * @param priority The priority of the task
+     * @param key      If not null, the previous task submitted with the same key is canceled
+     * @param runnable The task to run
+     * @throws ProcessCanceledException if the task was canceled or superseded by another task,
+     *                                  or the calling thread was interrupted while waiting
+     */
+    public void runAndWait(PriorityScheduler.Priority priority, Object key, Runnable runnable) {
+        if (mThreadToIndicator.containsKey(Thread.currentThread())) {
+            runnable.run();
+            return;
+        }
+
+        ProgressIndicator indicator = new ProgressIndicator();
+        AtomicBoolean started = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        runAsync(priority, key, () -> {
+            if (!started.compareAndSet(false, true)) {
+                // the waiting thread has already given up on this task
+                return;
+            }
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                failure.set(t);
+            } finally {
+                finished.countDown();
+            }
+        }, i -> {}, indicator);
+
+        try {
+            while (!finished.await(WAIT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                // a task canceled before it has started is never run by the scheduler
+                if (indicator.isCanceled() && started.compareAndSet(false, true)) {
+                    throw new ProcessCanceledException();
+                }
+            }
+        } catch (InterruptedException e) {
+            indicator.cancel();
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+        }
+
+        Throwable t = failure.get();
+        if (t != null) {
+            Throwables.throwIfUnchecked(t);
+            throw new RuntimeException(t);
+        }
     }
 
     public void runAsync(Context uiContext,
@@ -113,11 +204,20 @@ public class ProgressManager {
      * @param runnable The code to run
      */
     public void runNonCancelableAsync(Runnable runnable) {
-        mPool.execute(runnable);
+        runNonCancelableAsync(PriorityScheduler.Priority.BACKGROUND, runnable);
     }
 
+    public void runNonCancelableAsync(PriorityScheduler.Priority priority, Runnable runnable) {
+        mScheduler.executor(priority).execute(runnable);
+    }
+
+    /**
+     * Compute a value asynchronously, the user is assumed to be waiting for the result
+     * so it is run with an interactive priority.
+     */
     public <T> ListenableFuture<T> computeNonCancelableAsync(AsyncCallable<T> callable) {
-        return Futures.submitAsync(callable, mPool);
+        return Futures.submitAsync(callable,
+                mScheduler.executor(PriorityScheduler.Priority.INTERACTIVE));
     }
 
     /**
@@ -0,0 +1,105 @@
+package com.tyron.completion;
+
+import com.tyron.completion.CompletionPrefixMatcher.MatchLevel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+
+/**
+ * Compares matching a prefix against a class name sized set of candidates using the
+ * compiled {@link CompletionPrefixMatcher} with the previous implementation that lower cased
+ * both strings and computed the fuzzy ratio of every candidate.
+ *
+ * Run with the main method, it is not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionPrefixMatcherBenchmark {
+
+    private static final String[] WORDS = {"Array", "List", "Map", "Hash", "Linked", "Tree",
+            "Set", "View", "Group", "Layout", "Text", "Image", "Button", "Recycler", "Adapter",
+            "Fragment", "Activity", "Manager", "Factory", "Builder", "Listener", "Callback",
+            "URL", "Http", "Connection", "Stream", "Reader", "Writer", "Buffer", "Channel"};
+
+    @Param({"A", "Arr", "ArLi", "HUC", "Recyclr"})
+    public String prefix;
+
+    private String[] candidates;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        candidates = new String[10_000];
+        for (int i = 0; i < candidates.length; i++) {
+            StringBuilder builder = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int j = 0; j < words; j++) {
+                builder.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            candidates[i] = builder.toString();
+        }
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        CompletionPrefixMatcher matcher = CompletionPrefixMatcher.forPrefix(prefix);
+        for (String candidate : candidates) {
+            blackhole.consume(matcher.match(candidate));
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (String candidate : candidates) {
+            blackhole.consume(legacyMatchLevel(candidate, prefix));
+        }
+    }
+
+    private static MatchLevel legacyMatchLevel(String candidateName, String completionPrefix) {
+        if (candidateName.startsWith(completionPrefix)) {
+            return candidateName.length() == completionPrefix.length()
+                    ? MatchLevel.CASE_SENSITIVE_EQUAL
+                    : MatchLevel.CASE_SENSITIVE_PREFIX;
+        }
+
+        if (candidateName.toLowerCase().startsWith(completionPrefix.toLowerCase())) {
+            return candidateName.length() == completionPrefix.length()
+                    ? MatchLevel.CASE_INSENSITIVE_EQUAL
+                    : MatchLevel.CASE_INSENSITIVE_PREFIX;
+        }
+
+        int score = FuzzySearch.ratio(candidateName, completionPrefix);
+        if (score > 70) {
+            return MatchLevel.PARTIAL_MATCH;
+        }
+        return MatchLevel.NOT_MATCH;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompletionPrefixMatcherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,50 @@
+package com.tyron.completion;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.tyron.completion.CompletionPrefixMatcher.MatchLevel;
+
+import org.junit.Test;
+
+public class CompletionPrefixMatcherTest {
+
+    @Test
+    public void testPrefix() {
+        CompletionPrefixMatcher matcher = CompletionPrefixMatcher.forPrefix("Array");
+        assertThat(matcher.match("Array")).isEqualTo(MatchLevel.CASE_SENSITIVE_EQUAL);
+        assertThat(matcher.match("ArrayList")).isEqualTo(MatchLevel.CASE_SENSITIVE_PREFIX);
+        assertThat(matcher.match("array")).isEqualTo(MatchLevel.CASE_INSENSITIVE_EQUAL);
+        assertThat(matcher.match("arrayList")).isEqualTo(MatchLevel.CASE_INSENSITIVE_PREFIX);
+    }
+
+    @Test
+    public void testCamelHumps() {
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("ArrayList", "AL"))
+                .isEqualTo(MatchLevel.CAMEL_HUMP);
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("ArrayList", "arLi"))
+                .isEqualTo(MatchLevel.CAMEL_HUMP);
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("URLConnection", "URLC"))
+                .isEqualTo(MatchLevel.CASE_SENSITIVE_PREFIX);
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("HttpURLConnection", "HUC"))
+                .isEqualTo(MatchLevel.CAMEL_HUMP);
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("FooBarBaz", "FBaz"))
+                .isEqualTo(MatchLevel.CAMEL_HUMP);
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("MAX_VALUE", "MV"))
+                .isEqualTo(MatchLevel.CAMEL_HUMP);
+
+        // the first letter must match
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("ArrayList", "LA"))
+                .isEqualTo(MatchLevel.NOT_MATCH);
+    }
+
+    @Test
+    public void testPartialMatch() {
+        // a typo is still a partial match
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("toString", "toStirng"))
+                .isEqualTo(MatchLevel.PARTIAL_MATCH);
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("ArrayList", "xyz"))
+                .isEqualTo(MatchLevel.NOT_MATCH);
+        assertThat(CompletionPrefixMatcher.computeMatchLevel("AbstractMap", "ha"))
+                .isEqualTo(MatchLevel.NOT_MATCH);
+    }
+}
@@ -0,0 +1,77 @@
+package com.tyron.completion.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.tyron.completion.progress.PriorityScheduler.Priority;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PrioritySchedulerTest {
+
+    @Test
+    public void testInteractiveIsNotBlocked() throws InterruptedException {
+        PriorityScheduler scheduler = new PriorityScheduler("test", 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        // occupies the only worker available to non interactive tasks
+        scheduler.submit(Priority.BACKGROUND, null, () -> {
+            await(release);
+            done.countDown();
+        }, new ProgressIndicator());
+        scheduler.submit(Priority.BACKGROUND, null, () -> {
+            order.add("background");
+            done.countDown();
+        }, new ProgressIndicator());
+        scheduler.submit(Priority.DIAGNOSTICS, null, () -> {
+            order.add("diagnostics");
+            done.countDown();
+        }, new ProgressIndicator());
+
+        CountDownLatch interactive = new CountDownLatch(1);
+        scheduler.submit(Priority.INTERACTIVE, null, interactive::countDown,
+                new ProgressIndicator());
+        assertThat(interactive.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).isEmpty();
+
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("diagnostics", "background").inOrder();
+    }
+
+    @Test
+    public void testSupersede() throws InterruptedException {
+        PriorityScheduler scheduler = new PriorityScheduler("test", 2);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(Priority.BACKGROUND, null, () -> await(release),
+                new ProgressIndicator());
+
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        ProgressIndicator first = new ProgressIndicator();
+        scheduler.submit(Priority.DIAGNOSTICS, "key", () -> ran.add(1), first);
+        scheduler.submit(Priority.DIAGNOSTICS, "key", () -> {
+            ran.add(2);
+            done.countDown();
+        }, new ProgressIndicator());
+        assertThat(first.isCanceled()).isTrue();
+
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran).containsExactly(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
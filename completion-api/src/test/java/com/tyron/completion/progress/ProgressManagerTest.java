@@ -0,0 +1,63 @@
+package com.tyron.completion.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.tyron.completion.progress.PriorityScheduler.Priority;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ProgressManagerTest {
+
+    @Test
+    public void testRunAndWait() {
+        ProgressManager manager = ProgressManager.getInstance();
+        AtomicBoolean ran = new AtomicBoolean();
+        manager.runAndWait(Priority.INTERACTIVE, null, () -> {
+            ProgressManager.checkCanceled();
+            ran.set(true);
+        });
+        assertThat(ran.get()).isTrue();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> manager.runAndWait(Priority.INTERACTIVE, null, () -> {
+                    throw new IllegalStateException("failed");
+                }));
+        assertThat(e).hasMessageThat().isEqualTo("failed");
+    }
+
+    @Test
+    public void testRunAndWaitSuperseded() throws InterruptedException {
+        ProgressManager manager = ProgressManager.getInstance();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean canceled = new AtomicBoolean();
+
+        Thread waiting = new Thread(() -> {
+            try {
+                manager.runAndWait(Priority.INTERACTIVE, "key", () -> {
+                    started.countDown();
+                    while (true) {
+                        ProgressManager.checkCanceled();
+                        Thread.yield();
+                    }
+                });
+            } catch (ProcessCanceledException e) {
+                canceled.set(true);
+            } finally {
+                finished.countDown();
+            }
+        });
+        waiting.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // a newer task with the same key cancels the one that is still running
+        manager.runAndWait(Priority.INTERACTIVE, "key", () -> {});
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(canceled.get()).isTrue();
+    }
+}
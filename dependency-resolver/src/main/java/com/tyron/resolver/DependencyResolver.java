@@ -2,22 +2,45 @@ package com.tyron.resolver;
 
 import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.tyron.resolver.model.Dependency;
 import com.tyron.resolver.model.Pom;
 import com.tyron.resolver.repository.RepositoryManager;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Resolves the poms of a dependency graph, prioritizing the latest versions of conflicting
+ * libraries.
+ *
+ * Before resolving, the poms of the graph are fetched one level at a time with every pom of
+ * a level fetched concurrently, so the resolution itself only reads poms that the
+ * {@link RepositoryManager} already has.
+ */
 public class DependencyResolver {
 
+    private static final int FETCH_THREADS = 8;
+
     private final RepositoryManager repository;
     private final Map<Pom, String> resolvedPoms;
 
     private ResolveListener mListener;
+    private File mLockFile;
 
     public DependencyResolver(RepositoryManager repository) {
         this.repository = repository;
@@ -34,14 +57,40 @@ public class DependencyResolver {
         void onFailure(String message);
     }
 
+    /**
+     * Sets the file that the resolved graph of {@link #resolveDependencies(List)} is stored into.
+     * The graph is reused without reading any pom while the declared dependencies are the same,
+     * and only the poms of the declarations that changed are read otherwise.
+     */
+    public void setLockFile(@Nullable File lockFile) {
+        mLockFile = lockFile;
+    }
+
     public List<Pom> resolveDependencies(List<Dependency> declaredDependencies) {
-        List<Pom> poms = new ArrayList<>();
+        if (mLockFile != null) {
+            return resolveLocked(declaredDependencies);
+        }
+
+        List<String> declarations = new ArrayList<>();
         for (Dependency dependency : declaredDependencies) {
             if (mListener != null) {
                 mListener.onResolve("Getting POM: " + dependency);
             }
+            declarations.add(dependency.toString());
+        }
+
+        ExecutorService executor = createExecutor();
+        List<Pom> fetched;
+        try {
+            fetched = fetch(declarations, executor);
+        } finally {
+            executor.shutdown();
+        }
 
-            Pom pom = repository.getPom(dependency.toString());
+        List<Pom> poms = new ArrayList<>();
+        for (int i = 0; i < declaredDependencies.size(); i++) {
+            Dependency dependency = declaredDependencies.get(i);
+            Pom pom = fetched.get(i);
             if (pom != null) {
                 pom.setExcludes(dependency.getExcludes());
                 pom.setUserDefined(true);
@@ -55,11 +104,74 @@ public class DependencyResolver {
         return resolve(poms);
     }
 
+    private List<Pom> resolveLocked(List<Dependency> declaredDependencies) {
+        String key = ResolvedGraph.getKey(declaredDependencies);
+        ResolvedGraph lock = ResolvedGraph.read(mLockFile);
+        if (lock != null && key.equals(lock.key)) {
+            if (mListener != null) {
+                mListener.onResolve("Dependencies are up to date");
+            }
+            return lock.getResolvedPoms();
+        }
+        if (lock == null) {
+            lock = new ResolvedGraph();
+        }
+
+        // resolve the declarations that are not in the lock file on their own, to know the
+        // poms that need to be stored for them
+        Map<String, ResolvedGraph.PomEntry> knownPoms = new HashMap<>(lock.poms);
+        ResolvedGraph updated = new ResolvedGraph();
+        updated.key = key;
+        for (Dependency dependency : declaredDependencies) {
+            String declarationKey = ResolvedGraph.getDeclarationKey(dependency);
+            List<String> subgraph = lock.declarations.get(declarationKey);
+            if (subgraph == null || !knownPoms.keySet().containsAll(subgraph)) {
+                LockedRepositoryManager manager =
+                        new LockedRepositoryManager(repository, knownPoms);
+                DependencyResolver resolver = new DependencyResolver(manager);
+                resolver.setResolveListener(mListener);
+                resolver.resolveDependencies(Collections.singletonList(dependency));
+
+                subgraph = new ArrayList<>(manager.getPoms().keySet());
+                manager.getPoms().forEach((declaration, pom) ->
+                        knownPoms.put(declaration, ResolvedGraph.PomEntry.of(pom)));
+            }
+            updated.declarations.put(declarationKey, subgraph);
+        }
+
+        LockedRepositoryManager manager = new LockedRepositoryManager(repository, knownPoms);
+        DependencyResolver resolver = new DependencyResolver(manager);
+        resolver.setResolveListener(mListener);
+        List<Pom> resolved = resolver.resolveDependencies(declaredDependencies);
+
+        for (List<String> subgraph : updated.declarations.values()) {
+            for (String declaration : subgraph) {
+                ResolvedGraph.PomEntry entry = knownPoms.get(declaration);
+                if (entry != null) {
+                    updated.poms.put(declaration, entry);
+                }
+            }
+        }
+        manager.getPoms().forEach((declaration, pom) ->
+                updated.poms.putIfAbsent(declaration, ResolvedGraph.PomEntry.of(pom)));
+        updated.setResolvedPoms(resolved);
+        try {
+            updated.write(mLockFile);
+        } catch (IOException e) {
+            if (mListener != null) {
+                mListener.onFailure("Unable to write " + mLockFile.getName() + ": " + e.getMessage());
+            }
+        }
+        return resolved;
+    }
+
     /**
      * Resolve the list of given dependencies, prioritizing the latest versions of
      * the conflicting libraries
      */
     public List<Pom> resolve(List<Pom> declaredDependencies) {
+        prefetch(declaredDependencies);
+
         for (Pom pom : declaredDependencies) {
             resolve(pom);
         }
@@ -96,29 +208,7 @@ public class DependencyResolver {
                 continue;
             }
 
-            boolean excluded = excludes.stream().filter(Objects::nonNull).anyMatch(ex -> {
-                if (ex == null) {
-                    return false;
-                }
-                if (ex.getGroupId() == null) {
-                    return false;
-                }
-                if (!ex.getGroupId().equals(dependency.getGroupId())) {
-                    return false;
-                }
-
-                if (ex.getArtifactId() == null) {
-                    return false;
-                }
-
-                if (!ex.getArtifactId().equals(dependency.getArtifactId())) {
-                    return false;
-                }
-                if (TextUtils.isEmpty(ex.getVersionName())) {
-                    return true;
-                }
-                return ex.getVersionName().equals(dependency.getVersionName());
-            });
+            boolean excluded = isExcluded(excludes, dependency);
 
             if (excluded) {
                 continue;
@@ -139,6 +229,121 @@ public class DependencyResolver {
         resolvedPoms.put(pom, pom.getVersionName());
     }
 
+    /**
+     * Fetches the poms of the graph breadth first. Versions older than one already seen are not
+     * followed since the resolution does not visit them either, the excludes that a pom inherits
+     * from its dependents are not known yet so a few excluded poms may still be fetched.
+     */
+    private void prefetch(List<Pom> roots) {
+        ExecutorService executor = createExecutor();
+        try {
+            Map<String, String> highestVersions = new HashMap<>();
+            Set<String> visited = new HashSet<>();
+            for (Pom root : roots) {
+                visited.add(root.toString());
+                highestVersions.put(root.getGroupId() + ":" + root.getArtifactId(),
+                        root.getVersionName());
+            }
+
+            List<Pom> frontier = roots;
+            while (!frontier.isEmpty() && !Thread.currentThread().isInterrupted()) {
+                List<String> declarations = new ArrayList<>();
+                for (Pom pom : frontier) {
+                    for (Dependency dependency : pom.getDependencies()) {
+                        if ("test".equals(dependency.getScope())) {
+                            continue;
+                        }
+                        if (isExcluded(pom.getExcludes(), dependency)) {
+                            continue;
+                        }
+                        String declaration = dependency.toString();
+                        if (!visited.add(declaration)) {
+                            continue;
+                        }
+                        String id = dependency.getGroupId() + ":" + dependency.getArtifactId();
+                        String highestVersion = highestVersions.get(id);
+                        if (highestVersion != null &&
+                            getHigherVersion(highestVersion, dependency.getVersionName()) > 0) {
+                            continue;
+                        }
+                        highestVersions.put(id, dependency.getVersionName());
+                        declarations.add(declaration);
+                    }
+                }
+
+                List<Pom> next = new ArrayList<>();
+                for (Pom pom : fetch(declarations, executor)) {
+                    if (pom != null) {
+                        next.add(pom);
+                    }
+                }
+                frontier = next;
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return the poms of the declarations in the same order, {@code null} for the poms that
+     * could not be fetched. The poms that are not fetched yet when interrupted are also
+     * {@code null}, they are fetched again while resolving.
+     */
+    private List<Pom> fetch(List<String> declarations, ExecutorService executor) {
+        List<Future<Pom>> futures = new ArrayList<>(declarations.size());
+        for (String declaration : declarations) {
+            futures.add(executor.submit(() -> repository.getPom(declaration)));
+        }
+
+        List<Pom> poms = new ArrayList<>(futures.size());
+        for (Future<Pom> future : futures) {
+            try {
+                poms.add(future.get());
+            } catch (ExecutionException e) {
+                // fetched again while resolving, where the failure is reported
+                poms.add(null);
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                while (poms.size() < futures.size()) {
+                    poms.add(null);
+                }
+                break;
+            }
+        }
+        return poms;
+    }
+
+    private static ExecutorService createExecutor() {
+        return Executors.newFixedThreadPool(FETCH_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("dependency-resolver-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    private static boolean isExcluded(List<Dependency> excludes, Dependency dependency) {
+        return excludes.stream().filter(Objects::nonNull).anyMatch(ex -> {
+            if (ex.getGroupId() == null) {
+                return false;
+            }
+            if (!ex.getGroupId().equals(dependency.getGroupId())) {
+                return false;
+            }
+
+            if (ex.getArtifactId() == null) {
+                return false;
+            }
+
+            if (!ex.getArtifactId().equals(dependency.getArtifactId())) {
+                return false;
+            }
+            if (TextUtils.isEmpty(ex.getVersionName())) {
+                return true;
+            }
+            return ex.getVersionName().equals(dependency.getVersionName());
+        });
+    }
+
     private int getHigherVersion(String firstVersion, String secondVersion) {
         ComparableVersion firstComparableVersion = new ComparableVersion(firstVersion);
         ComparableVersion secondComparableVersion = new ComparableVersion(secondVersion);
@@ -0,0 +1,86 @@
+package com.tyron.resolver;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tyron.resolver.model.Pom;
+import com.tyron.resolver.repository.Repository;
+import com.tyron.resolver.repository.RepositoryManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Returns the poms stored in a lock file, and only asks the repositories for the poms that
+ * are not in it. Every pom that is returned is remembered so they can be stored again.
+ */
+class LockedRepositoryManager implements RepositoryManager {
+
+    private final RepositoryManager mDelegate;
+    private final Map<String, ResolvedGraph.PomEntry> mLockedPoms;
+    private final Map<String, Pom> mPoms = new ConcurrentHashMap<>();
+
+    LockedRepositoryManager(RepositoryManager delegate,
+                            Map<String, ResolvedGraph.PomEntry> lockedPoms) {
+        mDelegate = delegate;
+        mLockedPoms = lockedPoms;
+    }
+
+    @Nullable
+    @Override
+    public Pom getPom(String declaration) {
+        Pom pom = mPoms.get(declaration);
+        if (pom != null) {
+            return pom;
+        }
+
+        ResolvedGraph.PomEntry entry = mLockedPoms.get(declaration);
+        pom = entry != null ? entry.toPom(declaration) : mDelegate.getPom(declaration);
+        if (pom == null) {
+            return null;
+        }
+        Pom existing = mPoms.putIfAbsent(declaration, pom);
+        return existing != null ? existing : pom;
+    }
+
+    /**
+     * @return the poms that were returned, by their declaration
+     */
+    Map<String, Pom> getPoms() {
+        return mPoms;
+    }
+
+    @Nullable
+    @Override
+    public File getLibrary(Pom pom) throws IOException {
+        return mDelegate.getLibrary(pom);
+    }
+
+    @Override
+    public Map<Pom, File> getLibraries(List<Pom> poms) throws IOException {
+        return mDelegate.getLibraries(poms);
+    }
+
+    @Override
+    public void setCacheDirectory(File directory) {
+        mDelegate.setCacheDirectory(directory);
+    }
+
+    @Override
+    public void addRepository(@NonNull String name, @NonNull String url) {
+        mDelegate.addRepository(name, url);
+    }
+
+    @Override
+    public void addRepository(@NonNull Repository repository) {
+        mDelegate.addRepository(repository);
+    }
+
+    @Override
+    public void initialize() {
+        mDelegate.initialize();
+    }
+}
@@ -0,0 +1,172 @@
+package com.tyron.resolver;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.tyron.resolver.model.Dependency;
+import com.tyron.resolver.model.Pom;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The contents of the lock file of a {@link DependencyResolver}.
+ *
+ * It stores the poms that were resolved from the declared dependencies along with the poms
+ * visited while resolving each declaration, so the graph can be resolved again without
+ * reading any pom when the declarations did not change, and only the poms of a changed
+ * declaration are read when they did.
+ */
+class ResolvedGraph {
+
+    private static final int VERSION = 1;
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * The contents of a pom that are needed to resolve it
+     */
+    static class PomEntry {
+        String packaging;
+        List<Dependency> dependencies;
+
+        static PomEntry of(Pom pom) {
+            PomEntry entry = new PomEntry();
+            entry.packaging = pom.getPackaging();
+            entry.dependencies = new ArrayList<>(pom.getDependencies());
+            return entry;
+        }
+
+        Pom toPom(String declaration) {
+            Pom pom = Pom.valueOf(declaration);
+            pom.setPackaging(packaging);
+            List<Dependency> copies = new ArrayList<>();
+            if (dependencies != null) {
+                for (Dependency dependency : dependencies) {
+                    copies.add(new Dependency(dependency));
+                }
+            }
+            pom.setDependencies(copies);
+            return pom;
+        }
+    }
+
+    /**
+     * A pom chosen by the resolution
+     */
+    static class ResolvedPom {
+        String declaration;
+        String artifact;
+        boolean userDefined;
+        List<Dependency> excludes;
+    }
+
+    private int version = VERSION;
+    String key;
+    List<ResolvedPom> resolved = new ArrayList<>();
+    Map<String, List<String>> declarations = new HashMap<>();
+    Map<String, PomEntry> poms = new HashMap<>();
+
+    List<Pom> getResolvedPoms() {
+        List<Pom> resolvedPoms = new ArrayList<>(resolved.size());
+        for (ResolvedPom resolvedPom : resolved) {
+            PomEntry entry = poms.get(resolvedPom.declaration);
+            Pom pom = entry != null
+                    ? entry.toPom(resolvedPom.declaration)
+                    : Pom.valueOf(resolvedPom.declaration);
+            pom.setUserDefined(resolvedPom.userDefined);
+            if (resolvedPom.excludes != null) {
+                pom.setExcludes(new ArrayList<>(resolvedPom.excludes));
+            }
+            resolvedPoms.add(pom);
+        }
+        return resolvedPoms;
+    }
+
+    void setResolvedPoms(List<Pom> resolvedPoms) {
+        resolved = new ArrayList<>(resolvedPoms.size());
+        for (Pom pom : resolvedPoms) {
+            ResolvedPom resolvedPom = new ResolvedPom();
+            resolvedPom.declaration = pom.getDeclarationString();
+            resolvedPom.artifact = pom.getPath() + "/" + pom.getFileName() +
+                                   ("aar".equals(pom.getPackaging()) ? ".aar" : ".jar");
+            resolvedPom.userDefined = pom.isUserDefined();
+            resolvedPom.excludes = new ArrayList<>(pom.getExcludes());
+            resolved.add(resolvedPom);
+        }
+    }
+
+    /**
+     * @return the lock file, or null if it does not exist or was written by a different version
+     */
+    @Nullable
+    static ResolvedGraph read(@NonNull File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            String contents = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            ResolvedGraph graph = GSON.fromJson(contents, ResolvedGraph.class);
+            if (graph == null || graph.version != VERSION || graph.key == null) {
+                return null;
+            }
+            if (graph.resolved == null || graph.declarations == null || graph.poms == null) {
+                return null;
+            }
+            return graph;
+        } catch (IOException | JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes to a temporary file first so a partially written lock file is never read.
+     */
+    void write(@NonNull File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileUtils.writeStringToFile(temp, GSON.toJson(this), StandardCharsets.UTF_8);
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the key of the declarations of the dependencies along with their excludes
+     */
+    static String getKey(List<Dependency> dependencies) {
+        StringBuilder identity = new StringBuilder();
+        for (Dependency dependency : dependencies) {
+            identity.append(getDeclarationKey(dependency)).append('\n');
+        }
+        return Hashing.sha256().hashString(identity, StandardCharsets.UTF_8).toString();
+    }
+
+    static String getDeclarationKey(Dependency dependency) {
+        StringBuilder key = new StringBuilder(dependency.toString());
+        for (Dependency exclude : dependency.getExcludes()) {
+            key.append(" -").append(exclude.getGroupId()).append(':')
+                    .append(exclude.getArtifactId());
+            if (!exclude.getVersionName().isEmpty()) {
+                key.append(':').append(exclude.getVersionName());
+            }
+        }
+        return key.toString();
+    }
+}
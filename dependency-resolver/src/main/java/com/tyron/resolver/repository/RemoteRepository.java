@@ -3,20 +3,46 @@ package com.tyron.resolver.repository;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.google.common.util.concurrent.Striped;
+import com.tyron.common.logging.IdeLog;
+
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Logger;
+import java.util.zip.ZipFile;
+
+/**
+ * A repository that downloads files from a url and stores them into a {@link LocalRepository}.
+ *
+ * Files are downloaded into a {@code .part} file first, which is resumed by the next download
+ * if it fails midway. Artifacts are verified against the {@code .sha1} file published next to
+ * them, or checked to be a valid zip file if there is none.
+ */
 
 public class RemoteRepository extends DefaultRepository {
 
+    private static final Logger sLogger = IdeLog.getCurrentLogger(RemoteRepository.class);
+
+    private static final int DOWNLOAD_LOCKS = 32;
+
     private final String mName;
     private final String mUrl;
 
     private final LocalRepository mLocalRepository;
 
+    /**
+     * Locks of the paths being downloaded, a fixed number of them is shared between every path
+     */
+    private final Striped<Lock> mDownloadLocks = Striped.lock(DOWNLOAD_LOCKS);
+
     /**
      * @param name The name of the directory on which this repository will store caches into
      * @param url The url to search for files
@@ -68,18 +94,79 @@ public class RemoteRepository extends DefaultRepository {
         return mLocalRepository.getCachedFile(path);
     }
 
+    /**
+     * @return the downloaded file, or null if the repository does not have it
+     * @throws IOException if the download failed for any other reason, such as a timeout
+     */
     private File getFileInternal(String path) throws IOException {
-        String downloadUrl = mUrl + path;
-        URL url = new URL(downloadUrl);
+        // the same file is only downloaded by one thread, the others wait for it
+        Lock lock = mDownloadLocks.get(path);
+        lock.lock();
+        try {
+            File file = mLocalRepository.getFile(path);
+            if (file != null && file.exists()) {
+                return file;
+            }
+            return download(path);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private File download(String path) throws IOException {
+        File file = new File(mLocalRepository.getRootDirectory(), path);
+        File partial = new File(file.getPath() + ".part");
+
+        String actual;
         try {
-            InputStream inputStream = url.openStream();
-            if (inputStream != null) {
-                // save the file to cache, and then return the one from there
-                return mLocalRepository.save(path, inputStream);
+            actual = ResumableDownload.download(new URL(mUrl + path), partial);
+        } catch (FileNotFoundException e) {
+            FileUtils.deleteQuietly(partial);
+            return null;
+        }
+
+        if (isArtifact(path)) {
+            String expected = getChecksum(path);
+            boolean valid = expected != null
+                    ? expected.equals(actual)
+                    : isValidZipFile(partial);
+            if (!valid) {
+                sLogger.warning("Downloaded file " + path + " from " + mName + " is corrupt.");
+                FileUtils.deleteQuietly(partial);
+                return null;
             }
+        }
+
+        FileUtils.deleteQuietly(file);
+        if (!partial.renameTo(file)) {
+            throw new IOException("Unable to move " + partial + " to " + file);
+        }
+        return file;
+    }
+
+    /**
+     * @return the SHA-1 published for the file in lower case, or null if there is none
+     */
+    private String getChecksum(String path) {
+        try (InputStream inputStream = new URL(mUrl + path + ".sha1").openStream()) {
+            String contents = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+            String[] tokens = contents.trim().split("\\s+");
+            return tokens[0].isEmpty() ? null : tokens[0].toLowerCase();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isArtifact(String path) {
+        return path.endsWith(".jar") || path.endsWith(".aar");
+    }
+
+    private static boolean isValidZipFile(File file) {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            // a jar or an aar without any entry is as unusable as a truncated one
+            return zipFile.size() > 0;
         } catch (IOException e) {
-            // ignored, return null
+            return false;
         }
-        return null;
     }
 }
@@ -7,6 +7,9 @@ import com.tyron.resolver.model.Pom;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public interface RepositoryManager {
 
@@ -24,6 +27,23 @@ public interface RepositoryManager {
     @Nullable
     File getLibrary(Pom pom) throws IOException;
 
+    /**
+     * Retrieves the libraries of the given poms, implementations may download them concurrently.
+     * @return the library of each pom that was found, in the order of the given poms
+     * @throws IOException if an error occurred while retrieving one of the libraries, the
+     * other libraries are still retrieved
+     */
+    default Map<Pom, File> getLibraries(List<Pom> poms) throws IOException {
+        Map<Pom, File> libraries = new LinkedHashMap<>();
+        for (Pom pom : poms) {
+            File library = getLibrary(pom);
+            if (library != null) {
+                libraries.put(pom, library);
+            }
+        }
+        return libraries;
+    }
+
     void setCacheDirectory(File directory);
 
     /**
@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.tyron.common.logging.IdeLog;
 import com.tyron.common.util.FileUtilsEx;
 import com.tyron.resolver.model.Pom;
@@ -23,24 +24,48 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.jar.JarFile;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
-import java.util.zip.ZipFile;
 
 import kotlin.text.Charsets;
 
+/**
+ * Finds pom files from the repositories in the order they were added.
+ *
+ * Poms are indexed by their {@code groupId:artifactId:version} coordinate and the paths that a
+ * repository does not have are remembered, so asking for a missing pom again does not go through
+ * every repository. This is safe to call from multiple threads, a pom that is being fetched by
+ * one thread is waited for by the others instead of being fetched again.
+ */
 public class RepositoryManagerImpl implements RepositoryManager {
 
     private static final Logger sLogger = IdeLog.getCurrentLogger(RepositoryManagerImpl.class);
 
+    /**
+     * The number of libraries that are downloaded at the same time
+     */
+    private static final int DOWNLOAD_THREADS = 4;
+
     private File cacheDir;
     private final List<Repository> repositories;
-    private final List<Pom> pomFiles;
+    private final Map<String, Pom> pomFiles;
+    private final Map<String, Object> pomLocks;
+    private final Map<Repository, Set<String>> missingFiles;
 
     public RepositoryManagerImpl() {
-        this.repositories = new ArrayList<>();
-        this.pomFiles = new ArrayList<>();
+        this.repositories = new CopyOnWriteArrayList<>();
+        this.pomFiles = new ConcurrentHashMap<>();
+        this.pomLocks = new ConcurrentHashMap<>();
+        this.missingFiles = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -50,19 +75,26 @@ public class RepositoryManagerImpl implements RepositoryManager {
         if (pomNames == null) {
             return null;
         }
-        for (Pom pom : pomFiles) {
-            if (!pomNames[0].equals(pom.getGroupId())) {
-                continue;
-            }
-            if (!pomNames[1].equals(pom.getArtifactId())) {
-                continue;
-            }
-            if (!pomNames[2].equals(pom.getVersionName())) {
-                continue;
+        String key = getKey(pomNames[0], pomNames[1], pomNames[2]);
+        Pom pom = pomFiles.get(key);
+        if (pom != null) {
+            return pom;
+        }
+
+        // the parser may ask for the parent pom while holding this lock, parents never
+        // depend on their children so this can't deadlock
+        Object lock = pomLocks.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            pom = pomFiles.get(key);
+            if (pom == null) {
+                pom = getPomFromUrls(pomNames);
             }
             return pom;
         }
-        return getPomFromUrls(pomNames);
+    }
+
+    private static String getKey(String groupId, String artifactId, String versionName) {
+        return groupId + ":" + artifactId + ":" + versionName;
     }
 
     private Pom getPomFromUrls(String[] names) {
@@ -75,8 +107,8 @@ public class RepositoryManagerImpl implements RepositoryManager {
                 parsed.setGroupId(names[0]);
                 parsed.setArtifactId(names[1]);
                 parsed.setVersionName(names[2]);
-                pomFiles.add(parsed);
-                return parsed;
+                Pom existing = pomFiles.putIfAbsent(getKey(names[0], names[1], names[2]), parsed);
+                return existing != null ? existing : parsed;
             } catch (IOException | XmlPullParserException | SAXException e) {
                 String message = "Failed to parse input stream.\n" +
                                  "Declaration: " + Arrays.toString(names) + "\n" +
@@ -90,15 +122,22 @@ public class RepositoryManagerImpl implements RepositoryManager {
     private InputStream getFromUrls(String appendUrl) {
         for (int i = 0; i < repositories.size(); i++) {
             Repository repository = repositories.get(i);
+            Set<String> missing = missingFiles.computeIfAbsent(repository,
+                    r -> ConcurrentHashMap.newKeySet());
+            if (missing.contains(appendUrl)) {
+                continue;
+            }
             try {
                 InputStream is = repository.getInputStream(appendUrl);
                 if (is != null) {
                     return is;
                 }
+                // only a file that the repository does not have is remembered, a failed
+                // request is tried again the next time it is asked for
+                missing.add(appendUrl);
             } catch (IOException e) {
-                if (i == repositories.size() - 1) {
-                    sLogger.warning("Dependency " + appendUrl + " is not found.");
-                }
+                sLogger.warning("Failed to get " + appendUrl + " from " + repository.getName() +
+                                ": " + e.getMessage());
             }
         }
         return null;
@@ -149,22 +188,72 @@ public class RepositoryManagerImpl implements RepositoryManager {
         }
 
         // cannot find file from disk, try from network
+        IOException failure = null;
         for (Repository repository : repositories) {
-            File file = repository.getFile(sb.toString());
+            File file;
+            try {
+                file = repository.getFile(sb.toString());
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+                continue;
+            }
             if (file != null && file.exists()) {
                 return file;
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
         return null;
     }
 
-    private boolean isValidZipFile(File file) {
+    @Override
+    public Map<Pom, File> getLibraries(List<Pom> poms) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(DOWNLOAD_THREADS,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("library-download-%d")
+                        .setDaemon(true)
+                        .build());
         try {
-            // noinspection unused
-            ZipFile zipFile = new ZipFile(file);
-            return true;
-        } catch (IOException e) {
-            return false;
+            List<Future<File>> futures = new ArrayList<>(poms.size());
+            for (Pom pom : poms) {
+                futures.add(executor.submit(() -> getLibrary(pom)));
+            }
+
+            Map<Pom, File> libraries = new LinkedHashMap<>();
+            IOException failure = null;
+            for (int i = 0; i < poms.size(); i++) {
+                try {
+                    File library = futures.get(i).get();
+                    if (library != null) {
+                        libraries.put(poms.get(i), library);
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (!(cause instanceof IOException)) {
+                        throw new IllegalStateException(cause);
+                    }
+                    if (failure == null) {
+                        failure = (IOException) cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                } catch (InterruptedException e) {
+                    futures.forEach(future -> future.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while downloading libraries", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return libraries;
+        } finally {
+            executor.shutdown();
         }
     }
 
@@ -219,7 +308,10 @@ public class RepositoryManagerImpl implements RepositoryManager {
                 PomParser parser = new PomParser(this);
                 try {
                     Pom parsed = parser.parse(pom);
-                    this.pomFiles.add(parsed);
+                    if (parsed != null) {
+                        this.pomFiles.putIfAbsent(getKey(parsed.getGroupId(),
+                                parsed.getArtifactId(), parsed.getVersionName()), parsed);
+                    }
                 } catch (XmlPullParserException | IOException | SAXException e) {
                     // ignored
                     // TODO: should the file be deleted if its corrupt?
@@ -0,0 +1,99 @@
+package com.tyron.resolver.repository;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * Downloads a file into a partial file, continuing from the bytes that are already in it when
+ * the server supports range requests. The SHA-1 of the file is computed while it is written so
+ * it can be verified without reading the file again.
+ */
+class ResumableDownload {
+
+    private static final int CONNECT_TIMEOUT = 15_000;
+    private static final int READ_TIMEOUT = 30_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ResumableDownload() {
+
+    }
+
+    /**
+     * @param url the url of the file
+     * @param partial the file to download into, the bytes already in it are kept if the server
+     *                can send the rest of the file
+     * @return the SHA-1 of the whole file in lower case hex
+     * @throws FileNotFoundException if the url does not exist
+     * @throws IOException if the download failed, the partial file is kept so it can be resumed
+     */
+    @NonNull
+    static String download(@NonNull URL url, @NonNull File partial) throws IOException {
+        FileUtils.forceMkdirParent(partial);
+
+        @SuppressWarnings("deprecation") // SHA-1 is what maven repositories publish
+        Hasher hasher = Hashing.sha1().newHasher();
+        long offset = partial.exists() ? partial.length() : 0;
+
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        boolean append = false;
+        if (connection instanceof HttpURLConnection && offset > 0) {
+            HttpURLConnection http = (HttpURLConnection) connection;
+            http.setRequestProperty("Range", "bytes=" + offset + "-");
+            int code = http.getResponseCode();
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                append = true;
+            } else if (code == 416) {
+                // the range is past the end, the partial file is not from this url
+                http.disconnect();
+                FileUtils.deleteQuietly(partial);
+                return download(url, partial);
+            }
+        }
+
+        if (append) {
+            try (InputStream in = new FileInputStream(partial)) {
+                update(hasher, in);
+            }
+        }
+
+        try (InputStream in = connection.getInputStream();
+             OutputStream out = new FileOutputStream(partial, append)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                hasher.putBytes(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void update(Hasher hasher, InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            hasher.putBytes(buffer, 0, read);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.tyron.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.collect.ImmutableList;
+import com.tyron.resolver.model.Dependency;
+import com.tyron.resolver.model.Pom;
+import com.tyron.resolver.repository.LocalRepository;
+import com.tyron.resolver.repository.RepositoryManagerImpl;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves poms from a repository on the disk instead of the network.
+ */
+public class LocalRepositoryResolverTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private CountingRepository mRepository;
+    private RepositoryManagerImpl mManager;
+
+    @Before
+    public void setup() throws IOException {
+        mRepository = new CountingRepository("local");
+        mManager = new RepositoryManagerImpl();
+        mManager.addRepository(mRepository);
+        mManager.setCacheDirectory(mFolder.getRoot());
+        mManager.initialize();
+
+        // written after initializing so they are fetched through the repository
+        writePom("test", "app", "1.0",
+                dependency("test", "a", "1.0"),
+                dependency("test", "b", "1.0"));
+        writePom("test", "a", "1.0",
+                dependency("test", "b", "2.0"),
+                dependency("test", "missing", "1.0"));
+        writePom("test", "b", "1.0",
+                dependency("test", "c", "1.0"));
+        writePom("test", "b", "2.0",
+                dependency("test", "c", "2.0"));
+        writePom("test", "c", "1.0");
+        writePom("test", "c", "2.0",
+                "<dependency><groupId>test</groupId><artifactId>junit</artifactId>" +
+                "<version>1.0</version><scope>test</scope></dependency>");
+    }
+
+    @Test
+    public void testResolveLatestVersions() {
+        DependencyResolver resolver = new DependencyResolver(mManager);
+        List<Pom> resolved = resolver.resolveDependencies(
+                ImmutableList.of(Dependency.valueOf("test:app:1.0")));
+
+        assertEquals(4, resolved.size());
+        assertEquals("1.0", find(resolved, "app").getVersionName());
+        assertEquals("1.0", find(resolved, "a").getVersionName());
+        assertEquals("2.0", find(resolved, "b").getVersionName());
+        assertEquals("2.0", find(resolved, "c").getVersionName());
+    }
+
+    @Test
+    public void testPomsAreFetchedOnce() {
+        DependencyResolver resolver = new DependencyResolver(mManager);
+        resolver.resolveDependencies(ImmutableList.of(Dependency.valueOf("test:app:1.0")));
+
+        assertNull(mManager.getPom("test:missing:1.0"));
+        assertNotNull(mManager.getPom("test:b:2.0"));
+
+        assertEquals(1, mRepository.getRequestCount("test/missing/1.0/missing-1.0.pom"));
+        assertEquals(1, mRepository.getRequestCount("test/b/2.0/b-2.0.pom"));
+    }
+
+    @Test
+    public void testLockFile() throws IOException {
+        File lockFile = new File(mFolder.getRoot(), "dependencies.lock");
+        DependencyResolver resolver = new DependencyResolver(mManager);
+        resolver.setLockFile(lockFile);
+        resolver.resolveDependencies(ImmutableList.of(Dependency.valueOf("test:app:1.0")));
+        int requestCount = mRepository.getTotalRequestCount();
+
+        // a new manager has none of the poms in memory, they are read from the lock file
+        RepositoryManagerImpl manager = new RepositoryManagerImpl();
+        manager.addRepository(mRepository);
+        manager.setCacheDirectory(mFolder.getRoot());
+
+        resolver = new DependencyResolver(manager);
+        resolver.setLockFile(lockFile);
+        List<Pom> resolved = resolver.resolveDependencies(
+                ImmutableList.of(Dependency.valueOf("test:app:1.0")));
+        assertEquals(requestCount, mRepository.getTotalRequestCount());
+        assertEquals(4, resolved.size());
+        assertEquals("2.0", find(resolved, "c").getVersionName());
+
+        // only the poms of the new declaration are read
+        writePom("test", "d", "1.0",
+                dependency("test", "c", "1.0"));
+        resolved = resolver.resolveDependencies(ImmutableList.of(
+                Dependency.valueOf("test:app:1.0"), Dependency.valueOf("test:d:1.0")));
+        assertEquals(5, resolved.size());
+        assertEquals("2.0", find(resolved, "c").getVersionName());
+        assertEquals(1, mRepository.getRequestCount("test/d/1.0/d-1.0.pom"));
+        assertEquals(1, mRepository.getRequestCount("test/a/1.0/a-1.0.pom"));
+        assertEquals(1, mRepository.getRequestCount("test/c/2.0/c-2.0.pom"));
+    }
+
+    private Pom find(List<Pom> poms, String artifactId) {
+        for (Pom pom : poms) {
+            if (artifactId.equals(pom.getArtifactId())) {
+                return pom;
+            }
+        }
+        throw new AssertionError(artifactId + " is not resolved");
+    }
+
+    private static String dependency(String groupId, String artifactId, String version) {
+        return "<dependency><groupId>" + groupId + "</groupId>" +
+               "<artifactId>" + artifactId + "</artifactId>" +
+               "<version>" + version + "</version></dependency>";
+    }
+
+    private void writePom(String groupId, String artifactId, String version,
+                          String... dependencies) throws IOException {
+        String path = groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" +
+                      artifactId + "-" + version + ".pom";
+        String contents = "<project>" +
+                          "<groupId>" + groupId + "</groupId>" +
+                          "<artifactId>" + artifactId + "</artifactId>" +
+                          "<version>" + version + "</version>" +
+                          "<dependencies>" + String.join("", dependencies) + "</dependencies>" +
+                          "</project>";
+        File file = new File(new File(mFolder.getRoot(), mRepository.getName()), path);
+        FileUtils.writeStringToFile(file, contents, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A repository on the disk that counts the requests made to it.
+     */
+    private static class CountingRepository extends LocalRepository {
+
+        private final Map<String, AtomicInteger> mRequests = new ConcurrentHashMap<>();
+
+        CountingRepository(String name) {
+            super(name);
+        }
+
+        @Override
+        public InputStream getInputStream(String path) throws IOException {
+            mRequests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            return super.getInputStream(path);
+        }
+
+        int getRequestCount(String path) {
+            AtomicInteger count = mRequests.get(path);
+            return count != null ? count.get() : 0;
+        }
+
+        int getTotalRequestCount() {
+            return mRequests.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+    }
+}
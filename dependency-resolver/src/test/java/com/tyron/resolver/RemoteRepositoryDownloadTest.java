@@ -0,0 +1,214 @@
+package com.tyron.resolver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tyron.resolver.model.Pom;
+import com.tyron.resolver.repository.RemoteRepository;
+import com.tyron.resolver.repository.RepositoryManagerImpl;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Downloads from a local http server that supports range requests.
+ */
+public class RemoteRepositoryDownloadTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final Map<String, byte[]> mFiles = new ConcurrentHashMap<>();
+    private final List<String> mRanges = new ArrayList<>();
+    private final Set<String> mFailures = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> mRequests = new ConcurrentHashMap<>();
+
+    private HttpServer mServer;
+    private RemoteRepository mRepository;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/", this::handle);
+        mServer.start();
+
+        mRepository = new RemoteRepository("remote",
+                "http://127.0.0.1:" + mServer.getAddress().getPort());
+        mRepository.setCacheDirectory(mFolder.getRoot());
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void testChecksumIsVerified() throws Exception {
+        byte[] library = createZip("valid");
+        publish("test/valid/1.0/valid-1.0.jar", library, sha1(library));
+        byte[] corrupt = createZip("corrupt");
+        publish("test/corrupt/1.0/corrupt-1.0.jar", corrupt, sha1(library));
+
+        File file = mRepository.getFile("test/valid/1.0/valid-1.0.jar");
+        assertNotNull(file);
+        assertArrayEquals(library, FileUtils.readFileToByteArray(file));
+
+        assertNull(mRepository.getFile("test/corrupt/1.0/corrupt-1.0.jar"));
+        assertNull(mRepository.getCachedFile("test/corrupt/1.0/corrupt-1.0.jar"));
+    }
+
+    @Test
+    public void testPartialDownloadIsResumed() throws Exception {
+        byte[] library = createZip("resumed");
+        String path = "test/resumed/1.0/resumed-1.0.jar";
+        publish(path, library, sha1(library));
+
+        File partial = new File(mFolder.getRoot(), "remote/" + path + ".part");
+        FileUtils.writeByteArrayToFile(partial, Arrays.copyOf(library, library.length / 2));
+
+        File file = mRepository.getFile(path);
+        assertNotNull(file);
+        assertArrayEquals(library, FileUtils.readFileToByteArray(file));
+        assertFalse(partial.exists());
+        synchronized (mRanges) {
+            assertEquals(Arrays.asList("bytes=" + library.length / 2 + "-"), mRanges);
+        }
+    }
+
+    @Test
+    public void testGetLibraries() throws Exception {
+        RepositoryManagerImpl manager = new RepositoryManagerImpl();
+        manager.addRepository(mRepository);
+        manager.setCacheDirectory(mFolder.getRoot());
+        manager.initialize();
+
+        List<Pom> poms = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            byte[] library = createZip("library" + i);
+            publish("test/library" + i + "/1.0/library" + i + "-1.0.jar", library, sha1(library));
+            poms.add(Pom.valueOf("test", "library" + i, "1.0"));
+        }
+        poms.add(Pom.valueOf("test", "missing", "1.0"));
+
+        Map<Pom, File> libraries = manager.getLibraries(poms);
+        assertEquals(10, libraries.size());
+        for (int i = 0; i < 10; i++) {
+            File library = libraries.get(poms.get(i));
+            assertNotNull(library);
+            assertEquals("library" + i + "-1.0.jar", library.getName());
+        }
+    }
+
+    @Test
+    public void testFailedPomIsRetried() throws Exception {
+        RepositoryManagerImpl manager = new RepositoryManagerImpl();
+        manager.addRepository(mRepository);
+        manager.setCacheDirectory(mFolder.getRoot());
+        manager.initialize();
+
+        String path = "/test/flaky/1.0/flaky-1.0.pom";
+        mFiles.put(path, ("<project><modelVersion>4.0.0</modelVersion>" +
+                          "<groupId>test</groupId><artifactId>flaky</artifactId>" +
+                          "<version>1.0</version></project>").getBytes(StandardCharsets.UTF_8));
+        mFailures.add(path);
+
+        assertNull(manager.getPom("test:flaky:1.0"));
+        Pom pom = manager.getPom("test:flaky:1.0");
+        assertNotNull(pom);
+        assertEquals("flaky", pom.getArtifactId());
+        assertEquals(2, mRequests.get(path).get());
+    }
+
+    @Test
+    public void testMissingPomIsNotRequestedAgain() throws Exception {
+        RepositoryManagerImpl manager = new RepositoryManagerImpl();
+        manager.addRepository(mRepository);
+        manager.setCacheDirectory(mFolder.getRoot());
+        manager.initialize();
+
+        assertNull(manager.getPom("test:missing:1.0"));
+        assertNull(manager.getPom("test:missing:1.0"));
+        assertEquals(1, mRequests.get("/test/missing/1.0/missing-1.0.pom").get());
+    }
+
+    private void publish(String path, byte[] contents, String sha1) {
+        mFiles.put("/" + path, contents);
+        mFiles.put("/" + path + ".sha1", sha1.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        mRequests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+        if (mFailures.remove(path)) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        byte[] contents = mFiles.get(path);
+        if (contents == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int start = 0;
+        if (range != null) {
+            synchronized (mRanges) {
+                mRanges.add(range);
+            }
+            start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+            exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + start + "-" + (contents.length - 1) + "/" + contents.length);
+            exchange.sendResponseHeaders(206, contents.length - start);
+        } else {
+            exchange.sendResponseHeaders(200, contents.length);
+        }
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(contents, start, contents.length - start);
+        }
+    }
+
+    private static byte[] createZip(String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry(name + ".txt"));
+            for (int i = 0; i < 1000; i++) {
+                zip.write((name + " " + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String sha1(byte[] contents) {
+        return Hashing.sha1().hashBytes(contents).toString();
+    }
+}
@@ -57,6 +57,7 @@ import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -80,6 +81,21 @@ public class JavaCompletionProvider extends CompletionProvider {
 
     @Override
     public CompletionList complete(CompletionParameters params) {
+        return complete(params, null, false);
+    }
+
+    /**
+     * Delivers the local, member and keyword completions first while the unimported
+     * class names are still being searched.
+     */
+    @Override
+    public void complete(CompletionParameters params, Consumer<CompletionList> consumer) {
+        complete(params, consumer, true);
+    }
+
+    private CompletionList complete(CompletionParameters params,
+                                    Consumer<CompletionList> consumer,
+                                    boolean streaming) {
         if (!(params.getModule() instanceof JavaModule)) {
             return CompletionList.EMPTY;
         }
@@ -94,20 +110,28 @@ public class JavaCompletionProvider extends CompletionProvider {
             // chances are there will be new items that are not in the cache
             // so don't return the cached items
             if (!copy.isIncomplete && !copy.items.isEmpty()) {
+                if (streaming) {
+                    consumer.accept(copy);
+                }
                 return copy;
             }
         }
 
         CompletionList.Builder complete = null;
         try {
-            complete = completeV2(params);
+            complete = completeV2(params, streaming ? consumer : null);
         } catch (Throwable t) {
+            if (t instanceof ProcessCanceledException) {
+                throw t;
+            }
             IdeLog.getCurrentLogger(getClass()).severe("Failed to complete: " +
                                                        Throwables.getStackTraceAsString(t));
         }
         if (complete == null) {
             return CompletionList.EMPTY;
         }
+        // deliver the last tier, the items that have been streamed are not delivered again
+        complete.flush();
         CompletionList list = complete.build();
 
         String newPrefix = params.getPrefix();
@@ -122,6 +146,15 @@ public class JavaCompletionProvider extends CompletionProvider {
     }
 
     public CompletionList.Builder completeV2(CompletionParameters parameters) {
+        return completeV2(parameters, null);
+    }
+
+    /**
+     * @param consumer Receives the items as they are computed, null to only return them
+     *                 through the returned builder
+     */
+    public CompletionList.Builder completeV2(CompletionParameters parameters,
+                                             Consumer<CompletionList> consumer) {
         CompilationInfo compilationInfo = CompilationInfo.get(parameters.getProject(), parameters.getFile());
         if (compilationInfo == null) {
             return null;
@@ -149,7 +182,12 @@ public class JavaCompletionProvider extends CompletionProvider {
         if (scanned == null || scanned.getLeaf() == null) {
             return null;
         }
-        CompletionList.Builder builder = CompletionList.builder(parameters.getPrefix());
+        // only the items that can be displayed are sorted
+        CompletionList.Builder builder = CompletionList.builder(parameters.getPrefix())
+                .maxItems(Completions.MAX_COMPLETION_ITEMS);
+        if (consumer != null) {
+            builder.streamTo(consumer);
+        }
 
         switch (scanned.getLeaf().getKind()) {
             case IDENTIFIER:
@@ -4,14 +4,20 @@ import com.tyron.builder.model.CodeAssistLibrary;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
 import com.tyron.builder.project.impl.JavaModuleImpl;
+import com.tyron.builder.project.util.JarClassIndex;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.function.Predicate;
 
 /**
  * Allows to retrieve java classes in a project by non-qualified names
@@ -44,15 +50,65 @@ public class ShortNamesCache {
     }
 
     /**
-     * Returns the list of fully qualified names of all classes in the project and (optionally)
-     * libraries.
+     * Process the fully qualified names of all the classes in the project and its libraries
+     * whose simple name starts with the given prefix. Library classes are looked up through
+     * their persistent index so only the matching class names are created.
+     *
+     * @param prefix The prefix of the simple name of the class
+     * @param caseSensitive Whether the prefix should match case sensitively
+     * @param processor Returns false to stop processing
+     * @return false if the processor has stopped the iteration, true otherwise
      */
-    public String[] getAllClassNames() {
+    public boolean processClassNames(String prefix,
+                                     boolean caseSensitive,
+                                     Predicate<String> processor) {
         if (!(module instanceof JavaModule)) {
-            return new String[0];
+            return true;
         }
 
-        Set<String> classNames = new HashSet<>();
+        Set<JarClassIndex> visitedIndexes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (JavaModule javaModule : getModules()) {
+            for (String className : javaModule.getJavaFiles().keySet()) {
+                String simpleName = className.substring(className.lastIndexOf('.') + 1);
+                boolean matches = caseSensitive
+                        ? simpleName.startsWith(prefix)
+                        : simpleName.regionMatches(true, 0, prefix, 0, prefix.length());
+                if (matches && !processor.test(className)) {
+                    return false;
+                }
+            }
+            for (JarClassIndex index : javaModule.getLibraryClassIndexes()) {
+                if (visitedIndexes.add(index)
+                    && !index.processClassNames(prefix, caseSensitive, processor)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param simpleName The simple name of the class
+     * @return The fully qualified names of the classes with the given simple name
+     */
+    public List<String> getClassNamesBySimpleName(String simpleName) {
+        List<String> classNames = new ArrayList<>();
+        processClassNames(simpleName, true, className -> {
+            if (className.length() == simpleName.length()
+                || className.endsWith("." + simpleName)) {
+                classNames.add(className);
+            }
+            return true;
+        });
+        return classNames;
+    }
+
+    /**
+     * @return this module, the modules it depends on and the module used to store the JDK
+     * indexes
+     */
+    private List<JavaModule> getModules() {
+        List<JavaModule> modules = new ArrayList<>();
 
         Deque<Module> queue = new LinkedList<>();
         Set<Module> visitedModules = new HashSet<>();
@@ -62,8 +118,7 @@ public class ShortNamesCache {
             Module current = queue.removeFirst();
 
             if (current instanceof JavaModule) {
-                JavaModule javaModule = (JavaModule) current;
-                classNames.addAll(javaModule.getClassIndex().getLeafNodes());
+                modules.add((JavaModule) current);
             }
 
             visitedModules.add(current);
@@ -75,7 +130,7 @@ public class ShortNamesCache {
             }
         }
 
-        classNames.addAll(JDK_MODULE.getClassIndex().getLeafNodes());
-        return classNames.toArray(new String[0]);
+        modules.add(JDK_MODULE);
+        return modules;
     }
 }
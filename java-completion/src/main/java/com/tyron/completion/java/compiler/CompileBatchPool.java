@@ -0,0 +1,249 @@
+package com.tyron.completion.java.compiler;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * A least recently used pool of {@link CompileBatch}es keyed by the set of sources that
+ * were compiled.
+ *
+ * Each entry owns its own {@link ReusableCompiler} so the attributed javac context of a batch
+ * stays alive while other source sets are being compiled, switching back to a recently used
+ * file will then reuse the existing batch instead of compiling it again from scratch.
+ *
+ * The pool is bounded by both a maximum number of entries derived from the heap size of the
+ * device and by the amount of free memory at the time a new batch is added.
+ */
+public class CompileBatchPool {
+
+    private static final String TAG = CompileBatchPool.class.getSimpleName();
+
+    /**
+     * The estimated amount of heap a single javac context needs, used to derive the
+     * maximum amount of batches that can be kept alive at the same time.
+     */
+    private static final long ESTIMATED_BATCH_SIZE = 96L * 1024 * 1024;
+
+    private static final int MAX_BATCHES = 4;
+
+    static class Entry {
+        final ReusableCompiler compiler = new ReusableCompiler();
+        final Map<JavaFileObject, Long> modified = new HashMap<>();
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<>();
+        /**
+         * The contents of the source when it was compiled, only kept for single file batches
+         * since those are the ones that can be updated by reparsing a single method
+         */
+        final Map<URI, String> contents = new HashMap<>();
+        CompileBatch batch;
+
+        void close() {
+            if (batch != null) {
+                batch.close();
+                batch.borrow.close();
+            }
+            batch = null;
+            modified.clear();
+            diagnostics.clear();
+            contents.clear();
+        }
+    }
+
+    private final LinkedHashMap<Set<URI>, Entry> mEntries = new LinkedHashMap<>(8, 0.75f, true);
+    private final int mMaxSize;
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mEvictionCount = new AtomicLong();
+    private final AtomicLong mReparseCount = new AtomicLong();
+
+    public CompileBatchPool() {
+        this(computeMaxSize(Runtime.getRuntime().maxMemory()));
+    }
+
+    public CompileBatchPool(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        mMaxSize = maxSize;
+    }
+
+    static int computeMaxSize(long maxMemory) {
+        // keep a quarter of the heap for everything else
+        long available = maxMemory - maxMemory / 4;
+        long batches = available / ESTIMATED_BATCH_SIZE;
+        return (int) Math.max(1, Math.min(MAX_BATCHES, batches));
+    }
+
+    static Set<URI> key(Collection<? extends JavaFileObject> sources) {
+        Set<URI> key = new HashSet<>(sources.size());
+        for (JavaFileObject source : sources) {
+            key.add(source.toUri());
+        }
+        return Collections.unmodifiableSet(key);
+    }
+
+    /**
+     * Returns the entry that was used to compile the given sources, creating a new one
+     * if needed. The returned entry is marked as the most recently used.
+     */
+    @NonNull
+    synchronized Entry acquire(Collection<? extends JavaFileObject> sources) {
+        Set<URI> key = key(sources);
+        Entry entry = mEntries.get(key);
+        if (entry != null && !needsCompile(entry, sources)) {
+            mHitCount.incrementAndGet();
+            return entry;
+        }
+        mMissCount.incrementAndGet();
+        if (entry == null) {
+            trimToSize(mMaxSize - 1);
+            trimToMemory();
+            entry = new Entry();
+            mEntries.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Checks whether the entry has a valid batch for the given sources
+     */
+    static boolean needsCompile(Entry entry, Collection<? extends JavaFileObject> sources) {
+        if (entry.batch == null || entry.batch.borrow.closed) {
+            return true;
+        }
+        if (entry.modified.size() != sources.size()) {
+            return true;
+        }
+        for (JavaFileObject f : sources) {
+            Long cached = entry.modified.get(f);
+            if (cached == null) {
+                return true;
+            }
+            if (f.getLastModified() != cached) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the given sources from every batch that contains them, the next compilation
+     * that includes these files will create a new batch.
+     */
+    public synchronized void invalidate(Collection<? extends JavaFileObject> sources) {
+        for (Entry entry : mEntries.values()) {
+            for (JavaFileObject source : sources) {
+                entry.modified.remove(source);
+            }
+        }
+    }
+
+    /**
+     * Removes the batch of the given sources without closing it, used when its context
+     * can no longer be trusted.
+     */
+    synchronized void remove(Collection<? extends JavaFileObject> sources) {
+        mEntries.remove(key(sources));
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mEntries.size() > Math.max(0, maxSize) && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            eldest.close();
+            mEvictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Evicts the least recently used batches if there is not enough free heap left
+     * for another javac context.
+     */
+    private void trimToMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        long free = runtime.maxMemory() - used;
+        if (free < ESTIMATED_BATCH_SIZE && !mEntries.isEmpty()) {
+            Log.d(TAG, "Low on memory, evicting " + mEntries.size() + " compile batches");
+            trimToSize(0);
+        }
+    }
+
+    /**
+     * Closes and removes all the batches in this pool
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    public long getEvictionCount() {
+        return mEvictionCount.get();
+    }
+
+    /**
+     * @return the number of misses that were resolved by reparsing a single method
+     *         instead of compiling the whole batch again
+     */
+    public long getReparseCount() {
+        return mReparseCount.get();
+    }
+
+    void recordReparse() {
+        mReparseCount.incrementAndGet();
+    }
+
+    public void resetStatistics() {
+        mHitCount.set(0);
+        mMissCount.set(0);
+        mEvictionCount.set(0);
+        mReparseCount.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CompileBatchPool{" +
+               "size=" + size() +
+               ", maxSize=" + mMaxSize +
+               ", hits=" + getHitCount() +
+               ", misses=" + getMissCount() +
+               ", evictions=" + getEvictionCount() +
+               ", reparses=" + getReparseCount() +
+               '}';
+    }
+}
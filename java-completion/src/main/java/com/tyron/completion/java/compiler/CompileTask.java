@@ -70,11 +70,9 @@ public class CompileTask implements AutoCloseable {
 
     @Override
     public void close() {
+        // The borrowed javac task is kept open so the batch can be reused from the
+        // CompileBatchPool, it is returned when the batch is recompiled or evicted.
         mCompileBatch.close();
-        ReusableCompiler.Borrow borrow = mCompileBatch.borrow;
-        if (borrow != null && !borrow.closed) {
-            borrow.close();
-        }
     }
 
     public boolean isClosed() {
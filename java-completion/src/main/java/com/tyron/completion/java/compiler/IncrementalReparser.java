@@ -0,0 +1,299 @@
+package com.tyron.completion.java.compiler;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.util.Position;
+import com.tyron.completion.java.compiler.services.NBLog;
+import com.tyron.completion.java.parse.CompilationInfoImpl;
+import com.tyron.completion.java.parse.DefaultPartialReparser;
+import com.tyron.completion.java.parse.PartialReparser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Updates an existing {@link CompileBatch} in place when the only change to its source is inside
+ * the body of a single method.
+ *
+ * Only the body of that method is reparsed and attributed again, the rest of the compilation
+ * unit keeps its attributed trees. Changes that touch anything outside of a method body such as
+ * signatures, fields or imports return false so the caller falls back to a full compilation.
+ */
+class IncrementalReparser {
+
+    private static final String TAG = IncrementalReparser.class.getSimpleName();
+
+    private final PartialReparser mReparser = new DefaultPartialReparser();
+
+    /**
+     * Reparse the method containing the difference between the old and new contents.
+     *
+     * @param batch The batch that was compiled with the old contents, it must not be in use
+     * @param source The source that has been modified
+     * @param oldContents The contents of the source when the batch was compiled
+     * @param newContents The current contents of the source
+     * @param diagnostics The diagnostics of the batch, those inside the reparsed method are
+     *                    removed and those after it are moved by the length of the edit.
+     *                    New diagnostics are reported to the listener of the batch.
+     * @return true if the batch is up to date with the new contents
+     */
+    boolean reparse(CompileBatch batch,
+                    JavaFileObject source,
+                    String oldContents,
+                    String newContents,
+                    List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        if (oldContents.equals(newContents)) {
+            return true;
+        }
+        if (!(batch.task instanceof JavacTaskImpl)) {
+            return false;
+        }
+        CompilationUnitTree root = findRoot(batch, source.toUri());
+        if (root == null) {
+            return false;
+        }
+
+        int prefix = commonPrefix(oldContents, newContents);
+        int suffix = commonSuffix(oldContents, newContents, prefix);
+        int oldChangeEnd = oldContents.length() - suffix;
+
+        SourcePositions positions = batch.trees.getSourcePositions();
+        MethodTree method = findMethod(root, positions, prefix, oldChangeEnd);
+        if (method == null) {
+            return false;
+        }
+
+        BlockTree body = method.getBody();
+        int bodyStart = (int) positions.getStartPosition(root, body);
+        int bodyEnd = (int) positions.getEndPosition(root, body);
+        int delta = newContents.length() - oldContents.length();
+        String newBody = newContents.substring(bodyStart, bodyEnd + delta);
+
+        JavacTaskImpl task = (JavacTaskImpl) batch.task;
+        // the cached source of the log still has the old contents
+        NBLog.instance(task.getContext()).removeFileObject(root.getSourceFile());
+        updateDiagnostics(diagnostics, root, bodyStart, bodyEnd, delta);
+
+        CompilationInfoImpl info = new CompilationInfoImpl(null, null, null,
+                Collections.emptyList(), Collections.emptyList(), task, null);
+        try {
+            if (!mReparser.reparseMethod(info, newContents, root, method, newBody)) {
+                return false;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to reparse method " + method.getName(), e);
+            return false;
+        }
+
+        char[] chars = newContents.toCharArray();
+        ((JCTree.JCCompilationUnit) root).lineMap = Position.makeLineMap(chars, chars.length, true);
+        return true;
+    }
+
+    @Nullable
+    private static CompilationUnitTree findRoot(CompileBatch batch, URI uri) {
+        for (CompilationUnitTree root : batch.roots) {
+            if (root.getSourceFile().toUri().equals(uri)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the method whose body strictly contains the changed range, the braces of the body
+     * itself must not be part of the change.
+     */
+    @Nullable
+    private static MethodTree findMethod(CompilationUnitTree root,
+                                         SourcePositions positions,
+                                         int changeStart,
+                                         int changeEnd) {
+        for (Tree type : root.getTypeDecls()) {
+            if (type instanceof ClassTree) {
+                MethodTree method = findMethod(root, (ClassTree) type, positions, changeStart, changeEnd);
+                if (method != null) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static MethodTree findMethod(CompilationUnitTree root,
+                                         ClassTree classTree,
+                                         SourcePositions positions,
+                                         int changeStart,
+                                         int changeEnd) {
+        long classStart = positions.getStartPosition(root, classTree);
+        long classEnd = positions.getEndPosition(root, classTree);
+        if (changeStart < classStart || changeEnd > classEnd) {
+            return null;
+        }
+        for (Tree member : classTree.getMembers()) {
+            if (member instanceof ClassTree) {
+                MethodTree method = findMethod(root, (ClassTree) member, positions, changeStart, changeEnd);
+                if (method != null) {
+                    return method;
+                }
+            } else if (member instanceof MethodTree) {
+                BlockTree body = ((MethodTree) member).getBody();
+                if (body == null) {
+                    continue;
+                }
+                long start = positions.getStartPosition(root, body);
+                long end = positions.getEndPosition(root, body);
+                if (start >= 0 && changeStart > start && changeEnd < end) {
+                    return (MethodTree) member;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the diagnostics inside the reparsed method body and moves the ones after it by
+     * the same delta the trees are translated by, the diagnostics before it are unchanged.
+     */
+    private static void updateDiagnostics(List<Diagnostic<? extends JavaFileObject>> diagnostics,
+                                          CompilationUnitTree root,
+                                          long start,
+                                          long end,
+                                          int delta) {
+        URI uri = root.getSourceFile().toUri();
+        ListIterator<Diagnostic<? extends JavaFileObject>> iterator = diagnostics.listIterator();
+        while (iterator.hasNext()) {
+            Diagnostic<? extends JavaFileObject> diagnostic = iterator.next();
+            if (diagnostic.getSource() == null || !uri.equals(diagnostic.getSource().toUri())) {
+                continue;
+            }
+            long position = diagnostic.getStartPosition();
+            if (position >= start && position < end) {
+                iterator.remove();
+            } else if (position >= end && delta != 0) {
+                iterator.set(new ShiftedDiagnostic(diagnostic, root, delta));
+            }
+        }
+    }
+
+    /**
+     * A diagnostic moved by the length of an edit before it, the line and column are computed
+     * from the line map of the compilation unit which is updated after the reparse.
+     */
+    private static class ShiftedDiagnostic implements Diagnostic<JavaFileObject> {
+
+        private final Diagnostic<? extends JavaFileObject> mDelegate;
+        private final CompilationUnitTree mRoot;
+        private final int mDelta;
+
+        ShiftedDiagnostic(Diagnostic<? extends JavaFileObject> delegate,
+                          CompilationUnitTree root,
+                          int delta) {
+            if (delegate instanceof ShiftedDiagnostic) {
+                ShiftedDiagnostic shifted = (ShiftedDiagnostic) delegate;
+                mDelegate = shifted.mDelegate;
+                mDelta = shifted.mDelta + delta;
+            } else {
+                mDelegate = delegate;
+                mDelta = delta;
+            }
+            mRoot = root;
+        }
+
+        private long shift(long position) {
+            return position == NOPOS ? NOPOS : position + mDelta;
+        }
+
+        @Override
+        public Kind getKind() {
+            return mDelegate.getKind();
+        }
+
+        @Override
+        public JavaFileObject getSource() {
+            return mDelegate.getSource();
+        }
+
+        @Override
+        public long getPosition() {
+            return shift(mDelegate.getPosition());
+        }
+
+        @Override
+        public long getStartPosition() {
+            return shift(mDelegate.getStartPosition());
+        }
+
+        @Override
+        public long getEndPosition() {
+            return shift(mDelegate.getEndPosition());
+        }
+
+        @Override
+        public long getLineNumber() {
+            long position = getPosition();
+            return position == NOPOS ? NOPOS : mRoot.getLineMap().getLineNumber(position);
+        }
+
+        @Override
+        public long getColumnNumber() {
+            long position = getPosition();
+            return position == NOPOS ? NOPOS : mRoot.getLineMap().getColumnNumber(position);
+        }
+
+        @Override
+        public String getCode() {
+            return mDelegate.getCode();
+        }
+
+        @Override
+        public String getMessage(Locale locale) {
+            return mDelegate.getMessage(locale);
+        }
+
+        @Override
+        public String toString() {
+            return mDelegate.toString();
+        }
+    }
+
+    private static int commonPrefix(String first, String second) {
+        int length = Math.min(first.length(), second.length());
+        int i = 0;
+        while (i < length && first.charAt(i) == second.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param prefix The length of the common prefix, the suffix will not overlap with it
+     */
+    private static int commonSuffix(String first, String second, int prefix) {
+        int length = Math.min(first.length(), second.length()) - prefix;
+        int i = 0;
+        while (i < length
+               && first.charAt(first.length() - 1 - i) == second.charAt(second.length() - 1 - i)) {
+            i++;
+        }
+        return i;
+    }
+}
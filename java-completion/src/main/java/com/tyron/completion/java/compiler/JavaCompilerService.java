@@ -7,14 +7,15 @@ import androidx.annotation.NonNull;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.sun.tools.javac.api.JavacTaskImpl;
 import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
+import com.tyron.builder.project.listener.FileListener;
 import com.tyron.builder.project.util.PackageTrie;
-import com.tyron.common.util.Cache;
+import com.tyron.common.util.FileCache;
 import com.tyron.common.util.StringSearch;
+import com.tyron.common.util.TrigramIndex;
 import com.tyron.completion.java.CompilerProvider;
 import com.tyron.completion.java.Docs;
 import com.tyron.completion.java.FindTypeDeclarations;
@@ -28,6 +29,7 @@ import com.sun.source.tree.CompilationUnitTree;
 import com.sun.tools.javac.file.PathFileObject;
 import com.tyron.completion.java.compiler.services.CancelAbort;
 import com.tyron.completion.progress.ProcessCanceledException;
+import com.tyron.completion.progress.ProgressManager;
 
 import java.io.File;
 import java.io.IOException;
@@ -38,10 +40,8 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -66,8 +66,30 @@ public class JavaCompilerService implements CompilerProvider {
     private final Docs docs;
 
     private final CompilerContainer mContainer = new CompilerContainer();
+    private final CompileBatchPool mBatchPool = new CompileBatchPool();
+    private final IncrementalReparser mReparser = new IncrementalReparser();
+
+    /**
+     * Drops the cached information of a file as soon as its contents are changed in the editor,
+     * files changed outside of it are dropped by {@link #invalidateChangedCaches()}
+     */
+    private final FileListener mFileListener = (file, contents) -> {
+        invalidateCaches(file.toPath());
+        TrigramIndex index = mTrigramIndex;
+        if (index != null) {
+            // indexed again from disk once it is saved
+            index.remove(file.toPath());
+        }
+    };
+
+    /**
+     * Used to skip the files that cannot contain the searched words when finding references,
+     * loaded from the build directory of the project on the first search
+     */
+    private volatile TrigramIndex mTrigramIndex;
+    private boolean mUseTrigramIndex = true;
+
     private CompileBatch cachedCompile;
-    private final Map<JavaFileObject, Long> cachedModified = new HashMap<>();
 
     public final ReentrantLock mLock = new ReentrantLock();
 
@@ -88,47 +110,108 @@ public class JavaCompilerService implements CompilerProvider {
     }
 
     public void setCurrentModule(@NonNull JavaModule module) {
+        if (mCurrentModule != module) {
+            if (mCurrentModule != null) {
+                mCurrentModule.getFileManager().removeSnapshotListener(mFileListener);
+            }
+            module.getFileManager().addSnapshotListener(mFileListener);
+        }
         mSourceFileManager.setCurrentModule(module);
         mCurrentModule = module;
     }
 
-    /**
-     * Checks whether this list has been compiled before
-     *
-     * @param sources list of java files to compile
-     * @return true if there's a valid cache for it, false otherwise
-     */
-    private boolean needsCompile(Collection<? extends JavaFileObject> sources) {
-        if (cachedModified.size() != sources.size()) {
-            return true;
+    private synchronized CompileBatch loadCompile(Collection<? extends JavaFileObject> sources) {
+        CompileBatchPool.Entry entry = mBatchPool.acquire(sources);
+        compiler = entry.compiler;
+        if (!CompileBatchPool.needsCompile(entry, sources)) {
+            // cache hit, restore the diagnostics of this batch
+            diagnostics.clear();
+            diagnostics.addAll(entry.diagnostics);
+            return entry.batch;
         }
-        for (JavaFileObject f : sources) {
-            if (!cachedModified.containsKey(f)) {
-                return true;
+        if (entry.batch != null) {
+            if (!entry.batch.closed) {
+                throw new RuntimeException("Compiler is still in-use!");
             }
-            Long cached = cachedModified.get(f);
-            if (cached == null) {
-                return true;
+            if (reparse(entry, sources)) {
+                return entry.batch;
             }
-            if (f.getLastModified() != cached) {
-                return true;
+            entry.batch.borrow.close();
+        }
+        entry.batch = null;
+        entry.modified.clear();
+        entry.diagnostics.clear();
+        entry.contents.clear();
+        try {
+            entry.batch = doCompile(entry.compiler, sources);
+        } catch (Throwable t) {
+            // the context of this entry may be in a broken state, do not reuse it
+            mBatchPool.remove(sources);
+            throw t;
+        }
+        for (JavaFileObject f : sources) {
+            entry.modified.put(f, f.getLastModified());
+        }
+        entry.diagnostics.addAll(diagnostics);
+        if (sources.size() == 1) {
+            JavaFileObject source = sources.iterator().next();
+            try {
+                entry.contents.put(source.toUri(), source.getCharContent(true).toString());
+            } catch (IOException e) {
+                // not an error, the next change will be compiled fully
             }
         }
-        return false;
+        return entry.batch;
     }
 
-    private synchronized void loadCompile(Collection<? extends JavaFileObject> sources) {
-        if (cachedCompile != null) {
-            if (!cachedCompile.closed) {
-                throw new RuntimeException("Compiler is still in-use!");
+    /**
+     * Brings the batch of a single file up to date by reparsing only the method that was
+     * edited, used while typing inside a method body where a full compilation is wasteful.
+     *
+     * @return false if the batch needs to be compiled again
+     */
+    private boolean reparse(CompileBatchPool.Entry entry,
+                            Collection<? extends JavaFileObject> sources) {
+        if (sources.size() != 1 || entry.batch.borrow.closed) {
+            return false;
+        }
+        JavaFileObject source = sources.iterator().next();
+        String oldContents = entry.contents.get(source.toUri());
+        if (oldContents == null) {
+            return false;
+        }
+        String newContents;
+        try {
+            newContents = source.getCharContent(true).toString();
+        } catch (IOException e) {
+            return false;
+        }
+
+        diagnostics.clear();
+        diagnostics.addAll(entry.diagnostics);
+        boolean reparsed;
+        try {
+            reparsed = mReparser.reparse(entry.batch, source, oldContents, newContents, diagnostics);
+        } catch (Throwable t) {
+            // the trees may have been partially modified, do not reparse this batch again
+            entry.contents.clear();
+            if (t instanceof CancelAbort || t.getCause() instanceof CancelAbort) {
+                throw t;
             }
-            cachedCompile.borrow.close();
+            Log.w("JavaCompilerService", "Failed to reparse " + source.getName(), t);
+            reparsed = false;
         }
-        cachedCompile = doCompile(sources);
-        cachedModified.clear();
-        for (JavaFileObject f : sources) {
-            cachedModified.put(f, f.getLastModified());
+        if (!reparsed) {
+            return false;
         }
+
+        entry.modified.clear();
+        entry.modified.put(source, source.getLastModified());
+        entry.contents.put(source.toUri(), newContents);
+        entry.diagnostics.clear();
+        entry.diagnostics.addAll(diagnostics);
+        mBatchPool.recordReparse();
+        return true;
     }
 
     public void invalidate(Path source) {
@@ -136,16 +219,44 @@ public class JavaCompilerService implements CompilerProvider {
     }
 
     public void invalidate(Collection<? extends JavaFileObject> sources) {
+        mBatchPool.invalidate(sources);
         for (JavaFileObject source : sources) {
-            cachedModified.remove(source);
+            if (!"file".equals(source.toUri().getScheme())) {
+                continue;
+            }
+            invalidateCaches(Paths.get(source.toUri()));
         }
     }
 
-    private CompileBatch doCompile(Collection<? extends JavaFileObject> sources) {
+    private void invalidateCaches(Path file) {
+        parseCache.invalidate(file);
+        cacheContainsWord.invalidate(file);
+        cacheContainsType.invalidate(file);
+    }
+
+    /**
+     * Drops the cached information of the files changed outside of the editor, called once
+     * per compilation or search so that lookups do not have to check the files
+     */
+    private void invalidateChangedCaches() {
+        parseCache.invalidateChanged();
+        cacheContainsWord.invalidateChanged();
+        cacheContainsType.invalidateChanged();
+    }
+
+    /**
+     * @return the pool of compile batches, used to inspect its hit and miss counts
+     */
+    public CompileBatchPool getCompileBatchPool() {
+        return mBatchPool;
+    }
+
+    private CompileBatch doCompile(ReusableCompiler compiler,
+                                   Collection<? extends JavaFileObject> sources) {
         if (sources.isEmpty()) {
             throw new RuntimeException("empty sources");
         }
-        CompileBatch firstAttempt = new CompileBatch(this, sources);
+        CompileBatch firstAttempt = new CompileBatch(this, compiler, sources);
         Set<Path> addFiles = firstAttempt.needsAdditionalSources();
         if (addFiles.isEmpty()) {
             return firstAttempt;
@@ -159,7 +270,7 @@ public class JavaCompilerService implements CompilerProvider {
         for (Path add : addFiles) {
             moreSources.add(new SourceFileObject(add, mCurrentModule));
         }
-        return new CompileBatch(this, moreSources);
+        return new CompileBatch(this, compiler, moreSources);
     }
 
     /**
@@ -171,21 +282,15 @@ public class JavaCompilerService implements CompilerProvider {
     private CompilerContainer compileBatch(Collection<? extends JavaFileObject> sources) {
         try {
             mContainer.initialize(() -> {
-                if (needsCompile(sources)) {
-                    loadCompile(sources);
-                }
-                if (cachedCompile.task == null || ((JavacTaskImpl) cachedCompile.task).getContext() == null) {
-                    System.out.println();
-                }
+                cachedCompile = loadCompile(sources);
                 CompileTask task = new CompileTask(cachedCompile);
                 mContainer.setCompileTask(task);
             });
             return mContainer;
         } catch (Throwable t) {
             if (t instanceof CancelAbort || t.getCause() instanceof CancelAbort) {
-                if (cachedCompile != null) {
-                    cachedCompile.borrow.close();
-                }
+                // the context of the batch that was being compiled may be in a broken state
+                invalidate(sources);
                 throw new ProcessCanceledException();
             }
             throw t;
@@ -330,25 +435,45 @@ public class JavaCompilerService implements CompilerProvider {
         return "";
     }
 
-    private static final Cache<String, Boolean> cacheContainsWord = new Cache<>();
+    private static final FileCache<String, Boolean> cacheContainsWord =
+            FileCache.<String, Boolean>builder()
+                    .maximumSize(10_000)
+                    .build();
 
     private boolean containsWord(Path file, String word) {
-        if (cacheContainsWord.needs(file, word)) {
-            cacheContainsWord.load(file, word, StringSearch.containsWord(file, word));
+        Boolean contains = cacheContainsWord.getIfPresent(file, word);
+        if (contains == null) {
+            TrigramIndex index = mTrigramIndex;
+            Optional<CharSequence> contents = mCurrentModule == null
+                    ? Optional.empty()
+                    : mCurrentModule.getFileManager().getFileContent(file.toFile());
+            if (contents.isPresent()) {
+                // search the unsaved contents of opened files
+                contains = StringSearch.containsWord(contents.get(), word);
+            } else if (index != null && !index.mayContain(file, word)) {
+                contains = false;
+            } else {
+                contains = StringSearch.containsWord(file, word);
+            }
+            cacheContainsWord.load(file, word, contains);
         }
-        return cacheContainsWord.get(file, word);
+        return contains;
     }
 
-    private static final Cache<Void, List<String>> cacheContainsType = new Cache<>();
+    private static final FileCache<Void, List<String>> cacheContainsType =
+            FileCache.<Void, List<String>>builder()
+                    .maximumSize(2_000)
+                    .build();
 
     private boolean containsType(Path file, String className) {
-        if (cacheContainsType.needs(file, null)) {
+        List<String> types = cacheContainsType.getIfPresent(file, null);
+        if (types == null) {
             CompilationUnitTree root = parse(file).root;
-            List<String> types = new ArrayList<>();
+            types = new ArrayList<>();
             new FindTypeDeclarations().scan(root, types);
             cacheContainsType.load(file, null, types);
         }
-        return cacheContainsType.get(file, null).contains(className);
+        return types.contains(className);
     }
 
 
@@ -421,24 +546,98 @@ public class JavaCompilerService implements CompilerProvider {
         return Optional.ofNullable(source);
     }
 
+    /**
+     * Enable or disable the persistent trigram index used to narrow down the files searched
+     * when finding references, enabled by default
+     */
+    public void setUseTrigramIndex(boolean useTrigramIndex) {
+        mUseTrigramIndex = useTrigramIndex;
+        if (!useTrigramIndex) {
+            mTrigramIndex = null;
+        }
+    }
+
     @Override
     public Path[] findTypeReferences(String className) {
-        return null;
+        String packageName = packageName(className);
+        String simpleName = simpleName(className);
+        // types of java.lang and of the default package can be used without mentioning them
+        boolean implicit = packageName.isEmpty() || "java.lang".equals(packageName);
+        return findReferences(file -> containsWord(file, simpleName)
+                                      && (implicit || containsWord(file, packageName)));
     }
 
     @Override
     public Path[] findMemberReferences(String className, String memberName) {
-        return null;
+        return findReferences(file -> containsWord(file, memberName));
+    }
+
+    /**
+     * Searches the source files of every module of the project in parallel, each file
+     * is memory mapped or read into a buffer owned by the searching thread.
+     */
+    private Path[] findReferences(Predicate<Path> test) {
+        invalidateChangedCaches();
+        TrigramIndex index = getTrigramIndex();
+        Path[] result = getSourceFiles().parallelStream()
+                .filter(test)
+                .toArray(Path[]::new);
+        if (index != null && index.isModified()) {
+            ProgressManager.getInstance().runNonCancelableAsync(() -> {
+                try {
+                    index.save(getTrigramIndexFile());
+                } catch (IOException e) {
+                    Log.w("JavaCompilerService", "Failed to save the trigram index", e);
+                }
+            });
+        }
+        return result;
     }
 
-    private final Cache<String, ParseTask> parseCache = new Cache<>();
+    private List<Path> getSourceFiles() {
+        Set<Path> files = new HashSet<>();
+        for (Module module : mProject.getModules()) {
+            if (module instanceof JavaModule) {
+                for (File file : ((JavaModule) module).getJavaFiles().values()) {
+                    files.add(file.toPath());
+                }
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private File getTrigramIndexFile() {
+        return new File(mProject.getMainModule().getBuildDirectory(), "intermediate/trigram.index");
+    }
+
+    private TrigramIndex getTrigramIndex() {
+        if (!mUseTrigramIndex) {
+            return null;
+        }
+        TrigramIndex index = mTrigramIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = mTrigramIndex;
+                if (index == null) {
+                    index = mTrigramIndex = TrigramIndex.load(getTrigramIndexFile());
+                }
+            }
+        }
+        return index;
+    }
+
+    private final FileCache<String, ParseTask> parseCache = FileCache.<String, ParseTask>builder()
+            .maximumSize(100)
+            .build();
 
     private ParseTask cachedParse(Path file) {
-        if (parseCache.needs(file, file.toFile().getName())) {
+        ParseTask task = parseCache.getIfPresent(file, file.toFile().getName());
+        if (task == null) {
             Parser parser = Parser.parseFile(mProject, file);
-            parseCache.load(file, file.toFile().getName(), new ParseTask(parser.task, parser.root));
+            task = new ParseTask(parser.task, parser.root);
+            parseCache.load(file, file.toFile().getName(), task);
         }
-        return parseCache.get(file, file.toFile().getName());
+        return task;
     }
 
     private ParseTask cachedParse(JavaFileObject file) {
@@ -448,14 +647,15 @@ public class JavaCompilerService implements CompilerProvider {
                     file.toUri().toString().substring(4, file.toUri().toString().lastIndexOf("!"));
 
             Path parsedPath = new File(URI.create(path)).toPath();
-            if (parseCache.needs(parsedPath, file.getName())) {
+            ParseTask task = parseCache.getIfPresent(parsedPath, file.getName());
+            if (task == null) {
                 Parser parser = Parser.parseJavaFileObject(mProject, file);
-                parseCache
-                        .load(parsedPath, file.getName(), new ParseTask(parser.task, parser.root));
+                task = new ParseTask(parser.task, parser.root);
+                parseCache.load(parsedPath, file.getName(), task);
             } else {
                 Log.d("JavaCompilerService", "Using cached parse for " + file.getName());
             }
-            return parseCache.get(parsedPath, file.getName());
+            return task;
         } else if (file instanceof SourceFileObject) {
             return cachedParse(((SourceFileObject) file).mFile);
         }
@@ -518,6 +718,7 @@ public class JavaCompilerService implements CompilerProvider {
      */
     @Override
     public synchronized CompilerContainer compile(Collection<? extends JavaFileObject> sources) {
+        invalidateChangedCaches();
         return compileBatch(sources);
     }
 
@@ -537,14 +738,8 @@ public class JavaCompilerService implements CompilerProvider {
     public void destroy() {
         mContainer.initialize(() -> {
             close();
-            if (cachedCompile != null) {
-                final ReusableCompiler.Borrow borrow = cachedCompile.borrow;
-                if (borrow != null) {
-                    borrow.close();
-                }
-            }
+            mBatchPool.clear();
             cachedCompile = null;
-            cachedModified.clear();
             compiler = new ReusableCompiler();
         });
     }
@@ -0,0 +1,353 @@
+package com.tyron.completion.java.compiler;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.tools.JavaFileObject;
+
+/**
+ * A process wide, read only cache of the class files of the platform class path, which is
+ * the android.jar and the lambda stubs jar used by every compiler.
+ *
+ * Without it, every {@link SourceFileManager} opens and indexes both jars on its own, and each
+ * of them reads the same class files again. The jars are indexed once by package here and the
+ * contents of the class files are kept in a bounded cache shared by all the file managers.
+ *
+ * Note that the javac symbols themselves cannot be shared, they belong to the context of a
+ * single compiler and are completed lazily from these class files.
+ */
+public class PlatformClassCache {
+
+    private static final String TAG = PlatformClassCache.class.getSimpleName();
+
+    /**
+     * The maximum total size of the cached class files
+     */
+    private static final long MAX_CACHED_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * A rough size of an indexed class file object, used to report the heap saved
+     */
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private static PlatformClassCache sInstance;
+
+    /**
+     * Returns the cache of the given platform class path and registers the caller as one of its
+     * users, a new cache is created if the class path is different from the one of the current
+     * cache. Every call must be followed by a call to {@link #detach()} once the cache is no
+     * longer used.
+     */
+    @NonNull
+    public static synchronized PlatformClassCache attach(@NonNull List<File> classPath) {
+        PlatformClassCache cache = sInstance;
+        if (cache == null || !cache.mClassPath.equals(classPath)) {
+            if (cache != null && cache.mUsers.get() == 0) {
+                cache.close();
+            }
+            cache = sInstance = new PlatformClassCache(classPath);
+        }
+        int users = cache.mUsers.incrementAndGet();
+        if (users > 1) {
+            Log.d(TAG, "Platform classes shared by " + users + " file managers, saving about "
+                       + cache.getSavedBytes() / 1024 + " KB for each additional one");
+        }
+        return cache;
+    }
+
+    private final List<File> mClassPath;
+    private final List<ZipFile> mZipFiles = new ArrayList<>();
+
+    /**
+     * Class files of each package, classes of earlier jars shadow the ones of later jars
+     */
+    private volatile Map<String, List<ClassFile>> mPackages;
+    private volatile Map<String, ClassFile> mClasses;
+
+    private final Cache<ClassFile, byte[]> mContents = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_BYTES)
+            .<ClassFile, byte[]>weigher((file, bytes) -> bytes.length)
+            .softValues()
+            .build();
+
+    private final AtomicInteger mUsers = new AtomicInteger();
+
+    private PlatformClassCache(List<File> classPath) {
+        mClassPath = Collections.unmodifiableList(new ArrayList<>(classPath));
+    }
+
+    /**
+     * Called when a user of this cache no longer uses it. The jars of a cache that was replaced
+     * by a cache of another class path are closed once its last user detaches, the current
+     * cache keeps them open for the next users.
+     */
+    public void detach() {
+        synchronized (PlatformClassCache.class) {
+            if (mUsers.decrementAndGet() == 0 && sInstance != this) {
+                close();
+            }
+        }
+    }
+
+    public int getUserCount() {
+        return mUsers.get();
+    }
+
+    /**
+     * @return an estimate of the heap that each additional user of this cache does not need,
+     *         which is the size of the index plus the class files read so far
+     */
+    public long getSavedBytes() {
+        long bytes = 0;
+        for (byte[] contents : mContents.asMap().values()) {
+            bytes += contents.length;
+        }
+        Map<String, ClassFile> classes = mClasses;
+        if (classes != null) {
+            bytes += (long) classes.size() * ENTRY_OVERHEAD;
+        }
+        return bytes;
+    }
+
+    public List<File> getClassPath() {
+        return mClassPath;
+    }
+
+    /**
+     * @return the class files of the given package, including the ones of its sub packages
+     *         if recurse is true
+     */
+    public List<JavaFileObject> list(String packageName, boolean recurse) {
+        Map<String, List<ClassFile>> packages = getPackages();
+        if (!recurse) {
+            List<ClassFile> files = packages.get(packageName);
+            if (files == null) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(files);
+        }
+        String prefix = packageName.isEmpty() ? "" : packageName + ".";
+        List<JavaFileObject> result = new ArrayList<>();
+        for (Map.Entry<String, List<ClassFile>> entry : packages.entrySet()) {
+            String name = entry.getKey();
+            if (name.equals(packageName) || name.startsWith(prefix)) {
+                result.addAll(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    public JavaFileObject find(String className) {
+        getPackages();
+        return mClasses.get(className);
+    }
+
+    /**
+     * @return the binary name of the file if it belongs to this cache, null otherwise
+     */
+    @Nullable
+    public String inferBinaryName(JavaFileObject file) {
+        if (file instanceof ClassFile && ((ClassFile) file).mCache == this) {
+            return ((ClassFile) file).mBinaryName;
+        }
+        return null;
+    }
+
+    private Map<String, List<ClassFile>> getPackages() {
+        Map<String, List<ClassFile>> packages = mPackages;
+        if (packages == null) {
+            synchronized (this) {
+                packages = mPackages;
+                if (packages == null) {
+                    packages = mPackages = index();
+                }
+            }
+        }
+        return packages;
+    }
+
+    private Map<String, List<ClassFile>> index() {
+        Map<String, List<ClassFile>> packages = new HashMap<>();
+        Map<String, ClassFile> classes = new HashMap<>();
+        for (File file : mClassPath) {
+            ZipFile zipFile;
+            try {
+                zipFile = new ZipFile(file);
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to open " + file, e);
+                continue;
+            }
+            mZipFiles.add(zipFile);
+
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(".class")) {
+                    continue;
+                }
+                String binaryName = name.substring(0, name.length() - ".class".length())
+                        .replace('/', '.');
+                if (classes.containsKey(binaryName)) {
+                    continue;
+                }
+                int lastDot = binaryName.lastIndexOf('.');
+                String packageName = lastDot == -1 ? "" : binaryName.substring(0, lastDot);
+                ClassFile classFile = new ClassFile(this, file, zipFile, entry, binaryName);
+                classes.put(binaryName, classFile);
+                packages.computeIfAbsent(packageName, k -> new ArrayList<>()).add(classFile);
+            }
+        }
+        mClasses = classes;
+        return packages;
+    }
+
+    private byte[] read(ClassFile file) throws IOException {
+        try {
+            return mContents.get(file, () -> {
+                try (InputStream in = file.mZipFile.getInputStream(file.mEntry)) {
+                    return ByteStreams.toByteArray(in);
+                }
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private synchronized void close() {
+        for (ZipFile zipFile : mZipFiles) {
+            try {
+                zipFile.close();
+            } catch (IOException ignored) {
+                // nothing to do, the file is not used anymore
+            }
+        }
+        mZipFiles.clear();
+        mContents.invalidateAll();
+    }
+
+    private static class ClassFile implements JavaFileObject {
+
+        private final PlatformClassCache mCache;
+        private final File mJar;
+        private final ZipFile mZipFile;
+        private final ZipEntry mEntry;
+        private final String mBinaryName;
+
+        ClassFile(PlatformClassCache cache,
+                  File jar,
+                  ZipFile zipFile,
+                  ZipEntry entry,
+                  String binaryName) {
+            mCache = cache;
+            mJar = jar;
+            mZipFile = zipFile;
+            mEntry = entry;
+            mBinaryName = binaryName;
+        }
+
+        @Override
+        public Kind getKind() {
+            return Kind.CLASS;
+        }
+
+        @Override
+        public boolean isNameCompatible(String simpleName, Kind kind) {
+            if (kind != Kind.CLASS) {
+                return false;
+            }
+            int lastDot = mBinaryName.lastIndexOf('.');
+            return mBinaryName.substring(lastDot + 1).equals(simpleName);
+        }
+
+        @Override
+        public NestingKind getNestingKind() {
+            return null;
+        }
+
+        @Override
+        public Modifier getAccessLevel() {
+            return null;
+        }
+
+        @Override
+        public URI toUri() {
+            return URI.create("jar:" + mJar.toURI() + "!/" + mEntry.getName());
+        }
+
+        @Override
+        public String getName() {
+            return mJar.getPath() + "(" + mEntry.getName() + ")";
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException {
+            return new ByteArrayInputStream(mCache.read(this));
+        }
+
+        @Override
+        public java.io.OutputStream openOutputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Reader openReader(boolean ignoreEncodingErrors) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Writer openWriter() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getLastModified() {
+            return mEntry.getTime();
+        }
+
+        @Override
+        public boolean delete() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.sun.tools.javac.model.JavacElements;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.DefinedBy;
 import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Pair;
 import com.tyron.common.logging.IdeLog;
 import com.tyron.completion.java.compiler.services.CancelService;
 import com.tyron.completion.java.compiler.services.NBAttr;
@@ -297,9 +298,10 @@ public class ReusableCompiler {
 
         /**
          * Reusable Log; exposes a method to clean up the component from leftovers associated with previous
-         * compilations.
+         * compilations. It is an {@link NBLog} so the attributed trees of a context can be partially
+         * reparsed, but unlike {@link NBLog} the diagnostics are still passed to the listener of the task.
          */
-        static class ReusableLog extends Log {
+        static class ReusableLog extends NBLog {
 
             private static final Factory<Log> factory = ReusableLog::new;
 
@@ -310,9 +312,21 @@ public class ReusableCompiler {
                 this.context = context;
             }
 
+            @Override
+            protected boolean shouldReport(JavaFileObject file, int pos) {
+                if (file == null) {
+                    return true;
+                }
+                if (isPartialReparse()) {
+                    return shouldReportPartialReparse(file, pos);
+                }
+                return recorded.add(new Pair<>(file, pos));
+            }
+
             void clear() {
                 recorded.clear();
                 sourceMap.clear();
+                clearDiagnostics();
                 nerrors = 0;
                 nwarnings = 0;
                 // Set a fake listener that will lazily lookup the context for the 'real' listener. Since
@@ -2,11 +2,14 @@ package com.tyron.completion.java.compiler;
 
 import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
+
 import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
 import com.tyron.common.util.StringSearch;
+import com.tyron.completion.java.CompletionModule;
 
 import javax.tools.Diagnostic;
 import javax.tools.FileObject;
@@ -21,9 +24,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -35,6 +40,12 @@ public class SourceFileManager extends ForwardingJavaFileManager<StandardJavaFil
 
     private final Project mProject;
     private Module mCurrentModule;
+    private volatile PlatformClassCache mPlatformClassCache;
+    /**
+     * Set when the platform class path may have changed, it is only compared with the default
+     * one again after the options or the locations of this file manager are changed
+     */
+    private volatile boolean mPlatformClassPathChanged = true;
 
 	public SourceFileManager(Project project) {
 		super(createDelegateFileManager());
@@ -65,8 +76,79 @@ public class SourceFileManager extends ForwardingJavaFileManager<StandardJavaFil
                     .map(this::asJavaFileObject);
             return stream.collect(Collectors.toList());
 		}
+		if (location == StandardLocation.PLATFORM_CLASS_PATH && kinds.contains(JavaFileObject.Kind.CLASS)) {
+		    PlatformClassCache cache = getPlatformClassCache();
+		    if (cache != null) {
+		        return cache.list(packageName, recurse);
+            }
+        }
 		return super.list(location, packageName, kinds, recurse);
 	}
+
+    /**
+     * @return the shared cache of the platform classes, or null if the platform class path of
+     *         this file manager is not the default one
+     */
+    private PlatformClassCache getPlatformClassCache() {
+        if (!mPlatformClassPathChanged) {
+            return mPlatformClassCache;
+        }
+        synchronized (this) {
+            if (mPlatformClassPathChanged) {
+                List<File> classPath = getDefaultPlatformClassPath();
+                PlatformClassCache cache = mPlatformClassCache;
+                if (cache == null ? classPath != null : !cache.getClassPath().equals(classPath)) {
+                    if (cache != null) {
+                        cache.detach();
+                    }
+                    mPlatformClassCache = classPath == null
+                            ? null
+                            : PlatformClassCache.attach(classPath);
+                }
+                mPlatformClassPathChanged = false;
+            }
+            return mPlatformClassCache;
+        }
+    }
+
+    /**
+     * @return the platform class path of this file manager, or null if it is not the default one
+     */
+    @Nullable
+    private List<File> getDefaultPlatformClassPath() {
+        Iterable<? extends File> location = fileManager.getLocation(StandardLocation.PLATFORM_CLASS_PATH);
+        if (location == null) {
+            return null;
+        }
+        List<File> classPath = new ArrayList<>();
+        location.forEach(classPath::add);
+        if (!classPath.equals(Arrays.asList(CompletionModule.getAndroidJar(), CompletionModule.getLambdaStubs()))) {
+            return null;
+        }
+        return classPath;
+    }
+
+    @Override
+    public boolean handleOption(String current, Iterator<String> remaining) {
+        boolean handled = super.handleOption(current, remaining);
+        if (handled) {
+            // -bootclasspath is applied to the file manager when a task is created
+            mPlatformClassPathChanged = true;
+        }
+        return handled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (mPlatformClassCache != null) {
+                mPlatformClassCache.detach();
+                mPlatformClassCache = null;
+            }
+            mPlatformClassPathChanged = true;
+        }
+        super.close();
+    }
 	
 	private JavaFileObject asJavaFileObject(File file) {
 		return new SourceFileObject(file.toPath(), (JavaModule) mProject.getModule(file));
@@ -81,6 +163,11 @@ public class SourceFileManager extends ForwardingJavaFileManager<StandardJavaFil
             if (!packageName.isEmpty()) className = packageName + "." + className;
             return className;
         } else {
+            PlatformClassCache cache = mPlatformClassCache;
+            String binaryName = cache == null ? null : cache.inferBinaryName(file);
+            if (binaryName != null) {
+                return binaryName;
+            }
             return super.inferBinaryName(location, file);
         }
     }
@@ -112,6 +199,12 @@ public class SourceFileManager extends ForwardingJavaFileManager<StandardJavaFil
             }
             // Fall through to disk in case we have .jar or .zip files on the source path
         }
+        if (location == StandardLocation.PLATFORM_CLASS_PATH && kind == JavaFileObject.Kind.CLASS) {
+            PlatformClassCache cache = getPlatformClassCache();
+            if (cache != null) {
+                return cache.find(className);
+            }
+        }
         return super.getJavaFileForInput(location, className, kind);
     }
 	
@@ -133,6 +226,9 @@ public class SourceFileManager extends ForwardingJavaFileManager<StandardJavaFil
 
     public void setLocation(Location location, Iterable<? extends  File> path) throws IOException {
 	    fileManager.setLocation(location, path);
+        if (location == StandardLocation.PLATFORM_CLASS_PATH) {
+            mPlatformClassPathChanged = true;
+        }
     }
 
     public static List<File> list(Module module, String packageName) {
@@ -40,6 +40,10 @@ public class NBLog extends Log {
         super(context, output);
     }
 
+    protected NBLog(final Context context) {
+        super(context);
+    }
+
 
     private final ArrayListMultimap<URI, JCDiagnostic> diagnosticMap = ArrayListMultimap.create();
 
@@ -78,7 +82,9 @@ public class NBLog extends Log {
 
     @Override
     public void report(JCDiagnostic diagnostic) {
-        diagnosticMap.put(diagnostic.getSource().toUri(), diagnostic);
+        if (diagnostic.getSource() != null) {
+            diagnosticMap.put(diagnostic.getSource().toUri(), diagnostic);
+        }
 
         //XXX: needs testing!
         if (diagnostic.getKind() == Diagnostic.Kind.ERROR &&
@@ -104,13 +110,24 @@ public class NBLog extends Log {
         if (true) {
             return false;
         }
-        if (partialReparseFile != null) {
-            return file.toUri().equals(partialReparseFile.toUri()) && seenPartialReparsePositions.add(pos);
+        if (isPartialReparse()) {
+            return shouldReportPartialReparse(file, pos);
         } else {
             return super.shouldReport(file, pos);
         }
     }
 
+    protected boolean isPartialReparse() {
+        return partialReparseFile != null;
+    }
+
+    /**
+     * Only report the diagnostics of the file being reparsed, once per position
+     */
+    protected boolean shouldReportPartialReparse(JavaFileObject file, int pos) {
+        return file.toUri().equals(partialReparseFile.toUri()) && seenPartialReparsePositions.add(pos);
+    }
+
     Collection<? extends Symbol.ClassSymbol> removeNotInProfile(final URI uri) {
         return uri == null ? null : notInProfiles.remove(uri);
     }
@@ -141,4 +158,8 @@ public class NBLog extends Log {
     public void removeDiagnostics(URI toUri) {
         diagnosticMap.removeAll(toUri);
     }
+
+    public void clearDiagnostics() {
+        diagnosticMap.clear();
+    }
 }
\ No newline at end of file
@@ -31,6 +31,7 @@ import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.JCDiagnostic;
 import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Names;
+import com.tyron.completion.java.compiler.services.CancelAbort;
 import com.tyron.completion.java.compiler.services.CancelService;
 import com.tyron.completion.java.compiler.services.NBLog;
 import com.tyron.completion.java.compiler.services.NBParserFactory;
@@ -98,11 +99,10 @@ public class DefaultPartialReparser implements PartialReparser {
         }
         final int noInner = fav.noInner;
         final Context ctx = task.getContext();
+        final NBLog l = NBLog.instance(ctx);
+        l.startPartialReparse(cu.getSourceFile());
+        final JavaFileObject prevLogged = l.useSource(cu.getSourceFile());
         try {
-            final NBLog l = NBLog.instance(ctx);
-            l.startPartialReparse(cu.getSourceFile());
-            final JavaFileObject prevLogged = l.useSource(cu.getSourceFile());
-
             long start = System.currentTimeMillis();
             Map<JCTree, LazyDocCommentTable.Entry> docComments = new HashMap<>();
             JCTree.JCBlock block = reparseMethodBody(ctx, cu, orig, newBody + " ", docComments);
@@ -145,12 +145,18 @@ public class DefaultPartialReparser implements PartialReparser {
             }
 
 
+        } catch (CancelAbort e) {
+            // the compilation was cancelled, the caller has to know the trees are incomplete
+            throw e;
         } catch (Throwable t) {
             if (t instanceof ThreadDeath) {
                 throw (ThreadDeath) t;
             }
             t.printStackTrace();
             return false;
+        } finally {
+            l.useSource(prevLogged);
+            l.endPartialReparse(cu.getSourceFile());
         }
         return true;
     }
@@ -44,6 +44,11 @@ public class IdentifierCompletionProvider extends BaseCompletionProvider {
 
         ScopeCompletionProvider.addCompletionItems(task, path, partial, endsWithParen, builder);
         addStaticImports(task, path.getCompilationUnit(), partial, endsWithParen, builder);
+        KeywordCompletionProvider.addKeywords(task, path, partial, builder);
+
+        // the class names are expensive to search, show the items in scope first
+        builder.flush();
+
         if (!builder.isIncomplete()) {
             if (!caseSensitiveMatch ||
                 partial.length() > 0 && Character.isUpperCase(partial.charAt(0))) {
@@ -51,7 +56,5 @@ public class IdentifierCompletionProvider extends BaseCompletionProvider {
                         caseSensitiveMatch);
             }
         }
-
-        KeywordCompletionProvider.addKeywords(task, path, partial, builder);
     }
 }
@@ -47,6 +47,7 @@ import com.flipkart.android.proteus.value.Value;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ProteusContext
@@ -81,8 +82,12 @@ public class ProteusContext extends ContextWrapper {
         // TODO: add other views
     }
 
+    private static final Style MISSING_STYLE = new Style("");
+
     private Style style;
 
+    private final Map<String, Style> styles = new ConcurrentHashMap<>();
+
     @NonNull
     private final ProteusResources resources;
 
@@ -189,9 +194,26 @@ public class ProteusContext extends ContextWrapper {
         return resources;
     }
 
+    /**
+     * Styles are looked up for every parent of a style each time one of its attributes is
+     * resolved, so the results are memoized, including the styles that are not found.
+     */
     @Nullable
     public Style getStyle(String name) {
-        return resources.getStyle(name);
+        Style style = styles.get(name);
+        if (style == null) {
+            style = resources.getStyle(name);
+            styles.put(name, style != null ? style : MISSING_STYLE);
+        }
+        return style != MISSING_STYLE ? style : null;
+    }
+
+    /**
+     * Clears the memoized styles, this must be called after the styles of the
+     * {@link StyleManager} change.
+     */
+    public void clearStyleCache() {
+        styles.clear();
     }
 
     /**
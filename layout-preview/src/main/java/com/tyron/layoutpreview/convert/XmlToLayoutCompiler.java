@@ -0,0 +1,215 @@
+package com.tyron.layoutpreview.convert;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.flipkart.android.proteus.FunctionManager;
+import com.flipkart.android.proteus.ProteusContext;
+import com.flipkart.android.proteus.ViewTypeParser;
+import com.flipkart.android.proteus.processor.AttributeProcessor;
+import com.flipkart.android.proteus.toolbox.Attributes;
+import com.flipkart.android.proteus.value.Array;
+import com.flipkart.android.proteus.value.Binding;
+import com.flipkart.android.proteus.value.Layout;
+import com.flipkart.android.proteus.value.ObjectValue;
+import com.flipkart.android.proteus.value.Primitive;
+import com.flipkart.android.proteus.value.Value;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles layout XML straight to a Proteus {@link Layout}, producing the same layout as
+ * converting it with {@link XmlToJsonConverter} and reading the json with
+ * {@link com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory} but without the
+ * intermediate json.
+ *
+ * Attribute values are pre-compiled by the processor of their attribute and cached per processor
+ * and attribute string, so compiling the layout again after an edit only compiles the attributes
+ * that changed. The compiled values may reference the resources of the context, call
+ * {@link #clearCache()} after they change.
+ */
+public class XmlToLayoutCompiler {
+
+    private static final int MAX_CACHED_VALUES = 4096;
+
+    private final ProteusContext mContext;
+
+    private final Map<CacheKey, Value> mCompiledValues =
+            new LinkedHashMap<CacheKey, Value>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, Value> eldest) {
+                    return size() > MAX_CACHED_VALUES;
+                }
+            };
+
+    public XmlToLayoutCompiler(@NonNull ProteusContext context) {
+        mContext = context;
+    }
+
+    /**
+     * Main entry point for the compiler
+     * @param contents The xml string to compile
+     * @return The layout compiled from the root element of the XML
+     * @throws IOException if an error has occurred while reading the string content
+     * @throws XmlPullParserException if the XML content is malformed
+     * @throws ConvertException if the XML has no root element
+     */
+    public Layout compile(String contents) throws IOException, XmlPullParserException, ConvertException {
+        XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+        parser.setInput(new StringReader(contents));
+        advanceToRootNode(parser);
+
+        return compile(parser);
+    }
+
+    /**
+     * Compiles the element at the current position of the parser along with its children, the
+     * parser is left at the end tag of the element.
+     */
+    public Layout compile(XmlPullParser parser) throws IOException, XmlPullParserException {
+        String type = parser.getName();
+        ViewTypeParser<View> viewParser = mContext.getParser(type);
+        ViewTypeParser.AttributeSet attributeSet = viewParser != null
+                ? viewParser.getAttributeSet()
+                : null;
+
+        List<Layout.Attribute> attributes = new ArrayList<>();
+        ObjectValue extras = new ObjectValue();
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            String name = parser.getAttributeName(i);
+            String value = parser.getAttributeValue(i);
+            ViewTypeParser.AttributeSet.Attribute attribute = attributeSet != null
+                    ? attributeSet.getAttribute(name)
+                    : null;
+            if (attribute != null) {
+                attributes.add(new Layout.Attribute(attribute.id,
+                        getCompiledValue(attribute.processor, value)));
+            } else {
+                extras.add(name, getCompiledValue(null, value));
+            }
+        }
+
+        Array children = compileChildren(parser);
+        if (children.size() > 0) {
+            ViewTypeParser.AttributeSet.Attribute attribute = attributeSet != null
+                    ? attributeSet.getAttribute(Attributes.ViewGroup.Children)
+                    : null;
+            if (attribute != null) {
+                FunctionManager manager = mContext.getFunctionManager();
+                attributes.add(new Layout.Attribute(attribute.id,
+                        attribute.processor.precompile(children, mContext, manager)));
+            } else {
+                extras.add(Attributes.ViewGroup.Children, children);
+            }
+        }
+
+        return new Layout(type, attributes.size() > 0 ? attributes : null, null,
+                extras.entrySet().size() > 0 ? extras : null);
+    }
+
+    private Array compileChildren(XmlPullParser parser) throws IOException, XmlPullParserException {
+        Array children = new Array();
+        final int depth = parser.getDepth();
+        int type;
+
+        while (((type = parser.next()) != XmlPullParser.END_TAG ||
+                parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
+            if (type != XmlPullParser.START_TAG) {
+                continue;
+            }
+
+            children.add(compile(parser));
+        }
+
+        return children;
+    }
+
+    /**
+     * Returns the value of the attribute string compiled by the processor, attributes that are
+     * not known to the view are given a {@code null} processor and are only checked for bindings.
+     */
+    private Value getCompiledValue(@Nullable AttributeProcessor<?> processor, String string) {
+        CacheKey key = new CacheKey(processor, string);
+        synchronized (mCompiledValues) {
+            Value value = mCompiledValues.get(key);
+            if (value == null) {
+                value = compileValue(processor, string);
+                mCompiledValues.put(key, value);
+            }
+            return value;
+        }
+    }
+
+    private Value compileValue(@Nullable AttributeProcessor<?> processor, String string) {
+        FunctionManager manager = mContext.getFunctionManager();
+        Value value = Binding.isBindingValue(string)
+                ? Binding.valueOf(string, mContext, manager)
+                : new Primitive(string);
+        return processor != null ? processor.precompile(value, mContext, manager) : value;
+    }
+
+    /**
+     * Removes the compiled values, they are compiled again the next time they are used.
+     */
+    public void clearCache() {
+        synchronized (mCompiledValues) {
+            mCompiledValues.clear();
+        }
+    }
+
+    /**
+     * Advances the given parser to the first START_TAG. Throws ConvertException if no start tag is
+     * found.
+     */
+    private void advanceToRootNode(XmlPullParser parser) throws IOException, XmlPullParserException, ConvertException {
+        int type;
+        while ((type = parser.next()) != XmlPullParser.START_TAG &&
+                type != XmlPullParser.END_DOCUMENT) {
+            // Empty
+        }
+
+        if (type != XmlPullParser.START_TAG) {
+            throw new ConvertException(parser.getPositionDescription()
+                    + ": No start tag found!");
+        }
+    }
+
+    private static final class CacheKey {
+
+        private final AttributeProcessor<?> mProcessor;
+        private final String mString;
+
+        CacheKey(@Nullable AttributeProcessor<?> processor, String string) {
+            mProcessor = processor;
+            mString = string;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return mProcessor == that.mProcessor && mString.equals(that.mString);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(mProcessor) + mString.hashCode();
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.tyron.layoutpreview.inflate;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.flipkart.android.proteus.ProteusContext;
+import com.flipkart.android.proteus.ProteusView;
+import com.flipkart.android.proteus.ViewTypeParser;
+import com.flipkart.android.proteus.toolbox.Attributes;
+import com.flipkart.android.proteus.value.Array;
+import com.flipkart.android.proteus.value.Layout;
+import com.flipkart.android.proteus.value.ObjectValue;
+import com.flipkart.android.proteus.value.Value;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Applies the differences between the layout of an inflated view and a new layout to the view,
+ * so an edit of the layout XML does not inflate the whole view hierarchy again.
+ *
+ * Changed and added attributes are set on the existing views and children that were inserted or
+ * removed are added to or removed from their parent. Attributes cannot be unset from a view, so a
+ * view that lost attributes, whose style or theme changed or whose attributes are data bound is
+ * inflated again along with its children. The layout of an updated view is replaced in place by the
+ * new layout so the next update is compared against it.
+ */
+public class LayoutUpdater {
+
+    private static final String STYLE = "style";
+    private static final String THEME = "android:theme";
+    private static final String ID = "android:id";
+
+    private final ProteusContext mContext;
+
+    public LayoutUpdater(@NonNull ProteusContext context) {
+        mContext = context;
+    }
+
+    /**
+     * Updates the view and its children to the given layout.
+     *
+     * @param view the view to update, it must have been inflated by Proteus
+     * @param layout the new layout of the view
+     * @return the same view if it was updated, or a new view inflated from the layout if the
+     * root view could not be updated
+     */
+    @NonNull
+    public ProteusView update(@NonNull ProteusView view, @NonNull Layout layout) {
+        ProteusView.Manager manager = view.getViewManager();
+        if (manager == null || !canUpdate(view, manager.getLayout(), layout)) {
+            return mContext.getInflater().inflate(layout, new ObjectValue());
+        }
+        updateView(view, layout);
+        view.getAsView().requestLayout();
+        return view;
+    }
+
+    /**
+     * Checks whether the view inflated from the old layout can be updated in place to the new
+     * layout, the children of the view are checked when they are updated.
+     */
+    private boolean canUpdate(ProteusView view, Layout old, Layout layout) {
+        if (!old.type.equals(layout.type)) {
+            return false;
+        }
+
+        ViewTypeParser<View> parser = mContext.getParser(layout.type);
+        if (parser == null) {
+            // unknown views are created by the callback, they are only kept if nothing changed
+            return isSameLayout(old, layout);
+        }
+
+        int childrenId = parser.getAttributeId(Attributes.ViewGroup.Children);
+        int styleId = parser.getAttributeId(STYLE);
+        int themeId = parser.getAttributeId(THEME);
+
+        Map<Integer, Value> oldAttributes = getAttributes(old);
+        Map<Integer, Value> newAttributes = getAttributes(layout);
+        for (Integer id : oldAttributes.keySet()) {
+            if (id != childrenId && !newAttributes.containsKey(id)) {
+                return false;
+            }
+        }
+        for (Map.Entry<Integer, Value> entry : newAttributes.entrySet()) {
+            int id = entry.getKey();
+            Value oldValue = oldAttributes.get(id);
+            if (id == childrenId) {
+                continue;
+            }
+            if (isSameValue(oldValue, entry.getValue())) {
+                continue;
+            }
+            if (id == styleId || id == themeId || isBound(oldValue, entry.getValue())) {
+                return false;
+            }
+        }
+        if (!canUpdateChildren(view, oldAttributes.get(childrenId), newAttributes.get(childrenId))) {
+            return false;
+        }
+
+        Map<String, Value> oldExtras = getExtras(old);
+        Map<String, Value> newExtras = getExtras(layout);
+        if (!newExtras.keySet().containsAll(oldExtras.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Value> entry : newExtras.entrySet()) {
+            Value oldValue = oldExtras.get(entry.getKey());
+            if (!isSameValue(oldValue, entry.getValue()) && isBound(oldValue, entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Children can only be updated if both layouts have plain arrays of layouts as children
+     * and the view still has a child for each of the old layouts.
+     */
+    private boolean canUpdateChildren(ProteusView view, @Nullable Value oldChildren,
+                                      @Nullable Value newChildren) {
+        if (oldChildren == null && newChildren == null) {
+            return true;
+        }
+        if (!(view.getAsView() instanceof ViewGroup)) {
+            return false;
+        }
+        if (!isLayoutArray(oldChildren) || !isLayoutArray(newChildren)) {
+            return false;
+        }
+
+        ViewGroup viewGroup = (ViewGroup) view.getAsView();
+        int oldCount = oldChildren != null ? oldChildren.getAsArray().size() : 0;
+        if (viewGroup.getChildCount() != oldCount) {
+            return false;
+        }
+        for (int i = 0; i < oldCount; i++) {
+            View child = viewGroup.getChildAt(i);
+            if (!(child instanceof ProteusView) || ((ProteusView) child).getViewManager() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void updateView(ProteusView view, Layout layout) {
+        Layout old = view.getViewManager().getLayout();
+        ViewTypeParser<View> parser = mContext.getParser(layout.type);
+        if (parser == null) {
+            // the layout did not change
+            return;
+        }
+
+        View parent = view.getAsView().getParent() instanceof View
+                ? (View) view.getAsView().getParent()
+                : null;
+        int childrenId = parser.getAttributeId(Attributes.ViewGroup.Children);
+        Map<Integer, Value> oldAttributes = getAttributes(old);
+        Map<Integer, Value> newAttributes = getAttributes(layout);
+
+        // children are handled first like when inflating, so attributes can refer to them
+        Value children = newAttributes.get(childrenId);
+        if (view.getAsView() instanceof ViewGroup && (children != null || oldAttributes.containsKey(childrenId))) {
+            children = updateChildren(view, children != null
+                    ? children.getAsArray()
+                    : new Array());
+        }
+
+        for (Map.Entry<Integer, Value> entry : newAttributes.entrySet()) {
+            int id = entry.getKey();
+            if (id == childrenId || isSameValue(oldAttributes.get(id), entry.getValue())) {
+                continue;
+            }
+            parser.handleAttribute(parent, view.getAsView(), id, entry.getValue());
+        }
+
+        Map<String, Value> oldExtras = getExtras(old);
+        ViewTypeParser<View> parentParser = parent instanceof ProteusView
+                && ((ProteusView) parent).getViewManager() != null
+                ? ((ProteusView) parent).getViewManager().getViewTypeParser()
+                : null;
+        for (Map.Entry<String, Value> entry : getExtras(layout).entrySet()) {
+            if (parentParser == null || isSameValue(oldExtras.get(entry.getKey()), entry.getValue())) {
+                continue;
+            }
+            int id = parentParser.getAttributeId(entry.getKey());
+            if (id != -1) {
+                parentParser.handleAttribute(parent, view.getAsView(), id, entry.getValue());
+            }
+        }
+
+        // the view manager keeps the old layout, replace its contents with the new layout
+        List<Layout.Attribute> attributes = new ArrayList<>();
+        for (Map.Entry<Integer, Value> entry : newAttributes.entrySet()) {
+            int id = entry.getKey();
+            if (id == childrenId) {
+                continue;
+            }
+            attributes.add(new Layout.Attribute(id, entry.getValue()));
+        }
+        if (children != null && children.getAsArray().size() > 0) {
+            attributes.add(new Layout.Attribute(childrenId, children));
+        }
+        old.attributes = attributes.size() > 0 ? attributes : null;
+        old.extras = layout.extras;
+    }
+
+    /**
+     * Matches the current children of the view to the new layouts by their type and id, using
+     * the longest common subsequence so the children that are kept are updated in place. The
+     * others are removed, or inflated and inserted at their position.
+     *
+     * @return the layouts of the children after the update
+     */
+    private Array updateChildren(ProteusView view, Array layouts) {
+        ViewGroup viewGroup = (ViewGroup) view.getAsView();
+        List<ProteusView> oldViews = new ArrayList<>();
+        for (int i = 0; i < viewGroup.getChildCount(); i++) {
+            oldViews.add((ProteusView) viewGroup.getChildAt(i));
+        }
+        List<Layout> newLayouts = new ArrayList<>();
+        for (int i = 0; i < layouts.size(); i++) {
+            newLayouts.add(layouts.get(i).getAsLayout());
+        }
+
+        int oldCount = oldViews.size();
+        int newCount = newLayouts.size();
+        String[] oldKeys = new String[oldCount];
+        for (int i = 0; i < oldCount; i++) {
+            oldKeys[i] = getKey(oldViews.get(i).getViewManager().getLayout());
+        }
+        String[] newKeys = new String[newCount];
+        for (int i = 0; i < newCount; i++) {
+            newKeys[i] = getKey(newLayouts.get(i));
+        }
+
+        // lengths of the longest common subsequences of the suffixes of the keys
+        int[][] lcs = new int[oldCount + 1][newCount + 1];
+        for (int i = oldCount - 1; i >= 0; i--) {
+            for (int j = newCount - 1; j >= 0; j--) {
+                lcs[i][j] = oldKeys[i].equals(newKeys[j])
+                        ? lcs[i + 1][j + 1] + 1
+                        : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+
+        int i = 0;
+        int j = 0;
+        int index = 0;
+        while (i < oldCount || j < newCount) {
+            if (i < oldCount && j < newCount && oldKeys[i].equals(newKeys[j])
+                && lcs[i][j] == lcs[i + 1][j + 1] + 1) {
+                ProteusView child = oldViews.get(i);
+                Layout layout = newLayouts.get(j);
+                if (canUpdate(child, child.getViewManager().getLayout(), layout)) {
+                    updateView(child, layout);
+                } else {
+                    viewGroup.removeViewAt(index);
+                    insertChild(view, layout, index, child.getViewManager());
+                }
+                i++;
+                j++;
+                index++;
+            } else if (j < newCount && (i == oldCount || lcs[i][j + 1] >= lcs[i + 1][j])) {
+                insertChild(view, newLayouts.get(j), index, view.getViewManager());
+                j++;
+                index++;
+            } else {
+                viewGroup.removeViewAt(index);
+                i++;
+            }
+        }
+
+        Value[] children = new Value[viewGroup.getChildCount()];
+        for (int k = 0; k < children.length; k++) {
+            children[k] = ((ProteusView) viewGroup.getChildAt(k)).getViewManager().getLayout();
+        }
+        return new Array(children);
+    }
+
+    private void insertChild(ProteusView parent, Layout layout, int index,
+                             ProteusView.Manager listeners) {
+        ProteusView.Manager manager = parent.getViewManager();
+        ObjectValue data = manager.getDataContext().getData();
+        int dataIndex = manager.getDataContext().getIndex();
+        ProteusView child = mContext.getInflater()
+                .inflate(layout, data, (ViewGroup) parent.getAsView(), dataIndex);
+        ((ViewGroup) parent.getAsView()).addView(child.getAsView(), index);
+        setListeners(child, listeners);
+    }
+
+    /**
+     * The layout editor sets its listeners on every view, give them to the inflated views too
+     */
+    private static void setListeners(ProteusView view, ProteusView.Manager listeners) {
+        view.getViewManager().setOnClickListener(listeners.getOnClickListener());
+        view.getViewManager().setOnLongClickListener(listeners.getOnLongClickListener());
+
+        if (view.getAsView() instanceof ViewGroup) {
+            view.getViewManager().setOnDragListener(listeners.getOnDragListener());
+
+            ViewGroup viewGroup = (ViewGroup) view.getAsView();
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                View child = viewGroup.getChildAt(i);
+                if (child instanceof ProteusView && ((ProteusView) child).getViewManager() != null) {
+                    setListeners((ProteusView) child, listeners);
+                }
+            }
+        }
+    }
+
+    private String getKey(Layout layout) {
+        ViewTypeParser<View> parser = mContext.getParser(layout.type);
+        Value id = null;
+        if (parser != null) {
+            id = getAttributes(layout).get(parser.getAttributeId(ID));
+        } else if (layout.extras != null) {
+            id = layout.extras.get(ID);
+        }
+        return id != null ? layout.type + "#" + id : layout.type;
+    }
+
+    private static Map<Integer, Value> getAttributes(Layout layout) {
+        Map<Integer, Value> attributes = new LinkedHashMap<>();
+        if (layout.attributes != null) {
+            for (Layout.Attribute attribute : layout.attributes) {
+                attributes.put(attribute.id, attribute.value);
+            }
+        }
+        return attributes;
+    }
+
+    private static Map<String, Value> getExtras(Layout layout) {
+        Map<String, Value> extras = new LinkedHashMap<>();
+        if (layout.extras != null) {
+            for (Map.Entry<String, Value> entry : layout.extras.entrySet()) {
+                extras.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return extras;
+    }
+
+    private static boolean isLayoutArray(@Nullable Value value) {
+        if (value == null) {
+            return true;
+        }
+        if (!value.isArray()) {
+            return false;
+        }
+        Array array = value.getAsArray();
+        for (int i = 0; i < array.size(); i++) {
+            if (!array.get(i).isLayout()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBound(@Nullable Value oldValue, @Nullable Value newValue) {
+        return (oldValue != null && oldValue.isBinding()) || (newValue != null && newValue.isBinding());
+    }
+
+    private static boolean isSameLayout(Layout old, Layout layout) {
+        if (!old.type.equals(layout.type)) {
+            return false;
+        }
+        Map<Integer, Value> oldAttributes = getAttributes(old);
+        Map<Integer, Value> newAttributes = getAttributes(layout);
+        if (!oldAttributes.keySet().equals(newAttributes.keySet())) {
+            return false;
+        }
+        for (Map.Entry<Integer, Value> entry : newAttributes.entrySet()) {
+            if (!isSameValue(oldAttributes.get(entry.getKey()), entry.getValue())) {
+                return false;
+            }
+        }
+        Map<String, Value> oldExtras = getExtras(old);
+        Map<String, Value> newExtras = getExtras(layout);
+        if (!oldExtras.keySet().equals(newExtras.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Value> entry : newExtras.entrySet()) {
+            if (!isSameValue(oldExtras.get(entry.getKey()), entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Values compiled by {@link com.tyron.layoutpreview.convert.XmlToLayoutCompiler} are cached,
+     * so unchanged attributes are usually the same instance even if the value does not implement
+     * equals. A value that is not recognized as the same is just set again.
+     */
+    private static boolean isSameValue(@Nullable Value oldValue, @Nullable Value newValue) {
+        if (oldValue == newValue) {
+            return true;
+        }
+        if (oldValue == null || newValue == null) {
+            return false;
+        }
+        if (oldValue.isLayout() && newValue.isLayout()) {
+            return isSameLayout(oldValue.getAsLayout(), newValue.getAsLayout());
+        }
+        if (oldValue.isArray() && newValue.isArray()) {
+            Array oldArray = oldValue.getAsArray();
+            Array newArray = newValue.getAsArray();
+            if (oldArray.size() != newArray.size()) {
+                return false;
+            }
+            for (int i = 0; i < oldArray.size(); i++) {
+                if (!isSameValue(oldArray.get(i), newArray.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return Objects.equals(oldValue, newValue);
+    }
+}
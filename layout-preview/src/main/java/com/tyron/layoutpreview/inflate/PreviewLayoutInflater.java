@@ -33,7 +33,7 @@ import com.tyron.layout.appcompat.AppCompatModule;
 import com.tyron.layout.cardview.CardViewModule;
 import com.tyron.layout.constraintlayout.ConstraintLayoutModule;
 import com.tyron.layoutpreview.ResourceManager;
-import com.tyron.layoutpreview.convert.XmlToJsonConverter;
+import com.tyron.layoutpreview.convert.XmlToLayoutCompiler;
 import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
 import com.tyron.layoutpreview.manager.ResourceDrawableManager;
 import com.tyron.layoutpreview.manager.ResourceLayoutManager;
@@ -42,6 +42,7 @@ import com.tyron.layoutpreview.resource.ResourceValueParser;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -54,6 +55,8 @@ public class PreviewLayoutInflater {
     private final Proteus mProteus;
     private final AndroidModule mProject;
     private ProteusContext mContext;
+    private final XmlToLayoutCompiler mCompiler;
+    private final LayoutUpdater mUpdater;
 
     private final ProteusLayoutInflater.Callback mCallback = new ProteusLayoutInflater.Callback() {
         @Override
@@ -161,6 +164,8 @@ public class PreviewLayoutInflater {
         ProteusTypeAdapterFactory.PROTEUS_INSTANCE_HOLDER.setProteus(mProteus);
 
         mParser.setProteusContext(mContext);
+        mCompiler = new XmlToLayoutCompiler(mContext);
+        mUpdater = new LayoutUpdater(mContext);
     }
 
     public CompletableFuture<PreviewLayoutInflater> parseResources(Executor executor) {
@@ -178,9 +183,13 @@ public class PreviewLayoutInflater {
             if (valuesFile.exists()) {
                 File[] children = valuesFile.listFiles(c -> c.getName().endsWith(".xml"));
                 if (children != null) {
-                    mParser.parse(children, "android");
+                    // sorted so the cache of the framework values is found again
+                    Arrays.sort(children);
+                    mParser.parseFramework(children, "android",
+                            new File(mContext.getCacheDir(), "framework-values"));
                 }
             }
+            mContext.clearStyleCache();
 
             try {
                 ManifestData parse = AndroidManifestParser.parse(mProject.getManifestFile());
@@ -196,6 +205,9 @@ public class PreviewLayoutInflater {
             } catch (IOException e) {
                 // ignored
             }
+
+            // the compiled attribute values may refer to the previous resources
+            mCompiler.clearCache();
             return this;
         }, executor);
     }
@@ -216,17 +228,38 @@ public class PreviewLayoutInflater {
                 inflate(name, value));
     }
 
-    @Deprecated
+    /**
+     * Compiles the layout XML directly to a {@link Layout} and inflates it. Attribute values are
+     * cached between calls so inflating the layout again after an edit is cheaper.
+     *
+     * @param xml The layout XML to inflate
+     * @return The inflated view
+     */
     public ProteusView inflate(String xml) throws InflateException {
         try {
-            JsonObject object = new XmlToJsonConverter()
-                    .convert(xml);
-            return inflate(object);
+            return inflate(mCompiler.compile(xml));
         } catch (Exception e) {
             throw new InflateException("Unable to inflate layout: " + e.getMessage());
         }
     }
 
+    /**
+     * Updates a view inflated by this inflater to the given layout XML. Only the attributes and
+     * children that changed are applied to the existing views, the whole layout is inflated
+     * again only if its root view can't be updated.
+     *
+     * @param view The view previously inflated from the layout
+     * @param xml The new layout XML
+     * @return The updated view, or a new view if the whole layout was inflated again
+     */
+    public ProteusView update(ProteusView view, String xml) throws InflateException {
+        try {
+            return mUpdater.update(view, mCompiler.compile(xml));
+        } catch (Exception e) {
+            throw new InflateException("Unable to update layout: " + e.getMessage());
+        }
+    }
+
     /**
      * Convenience method to inflate a layout using a {@link JsonObject}
      *
@@ -0,0 +1,387 @@
+package com.tyron.layoutpreview.resource;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.tyron.layoutpreview.util.XmlUtils;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The resources declared in a values XML file, kept as the text read from the file.
+ *
+ * {@link ResourceValueParser} creates the values of the resources from them every time they are
+ * added, so the same file can be reused by every preview while it does not change. The most
+ * recently used files are kept in memory by their path, and the framework values are also stored
+ * on disk so they are only parsed once.
+ */
+class ParsedValuesFile {
+
+    private static final String TAG = ParsedValuesFile.class.getSimpleName();
+
+    private static final int MAGIC = 0x52564C53; // RVLS
+    private static final int VERSION = 1;
+
+    /**
+     * The maximum number of files kept in memory, enough for the framework values and the
+     * values of a few projects
+     */
+    private static final int MAX_PARSED_FILES = 512;
+
+    static final int STRING = 0;
+    static final int ITEM = 1;
+    static final int STYLE = 2;
+    static final int COLOR = 3;
+    static final int DIMEN = 4;
+
+    static class Entry {
+        final int kind;
+        @Nullable
+        final String name;
+        /**
+         * The text of the resource, or the parent of a style
+         */
+        @Nullable
+        final String value;
+        /**
+         * The names and values of the items of a style, one after the other
+         */
+        final String[] items;
+
+        Entry(int kind, @Nullable String name, @Nullable String value, String[] items) {
+            this.kind = kind;
+            this.name = name;
+            this.value = value;
+            this.items = items;
+        }
+    }
+
+    private static final class Stamp {
+        private final long mLastModified;
+        private final long mLength;
+        private final ParsedValuesFile mValues;
+
+        private Stamp(long lastModified, long length, ParsedValuesFile values) {
+            mLastModified = lastModified;
+            mLength = length;
+            mValues = values;
+        }
+    }
+
+    private static final Cache<String, Stamp> sParsedFiles = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PARSED_FILES)
+            .build();
+
+    private final List<Entry> mEntries;
+
+    private ParsedValuesFile(List<Entry> entries) {
+        mEntries = Collections.unmodifiableList(entries);
+    }
+
+    List<Entry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Returns the resources of the file, parsing it only if it has changed since the last time
+     * it was parsed. This is safe to call from multiple threads.
+     */
+    @NonNull
+    static ParsedValuesFile forFile(@NonNull File file) throws IOException, XmlPullParserException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        Stamp stamp = sParsedFiles.getIfPresent(file.getAbsolutePath());
+        if (stamp != null && stamp.mLastModified == lastModified && stamp.mLength == length) {
+            return stamp.mValues;
+        }
+
+        ParsedValuesFile values;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file))) {
+            values = parse(reader);
+        }
+        sParsedFiles.put(file.getAbsolutePath(), new Stamp(lastModified, length, values));
+        return values;
+    }
+
+    /**
+     * Returns the resources of each of the files, in the same order. They are read from a single
+     * file in the cache directory if none of the files have changed since it was written,
+     * otherwise the files are parsed in parallel and the cache file is written again. The cache
+     * directory only keeps the file of the latest files.
+     *
+     * Files that cannot be parsed are returned as empty.
+     */
+    @NonNull
+    static List<ParsedValuesFile> forFiles(@NonNull File[] files, @NonNull File cacheDirectory) {
+        File cacheFile = new File(cacheDirectory, computeKey(files));
+        if (cacheFile.exists()) {
+            try {
+                List<ParsedValuesFile> values = read(cacheFile);
+                if (values.size() == files.length) {
+                    for (int i = 0; i < files.length; i++) {
+                        sParsedFiles.put(files[i].getAbsolutePath(), new Stamp(
+                                files[i].lastModified(), files[i].length(), values.get(i)));
+                    }
+                    return values;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to read the cached values of " + cacheDirectory, e);
+            }
+        }
+
+        List<ParsedValuesFile> values = Arrays.stream(files)
+                .parallel()
+                .map(file -> {
+                    try {
+                        return forFile(file);
+                    } catch (XmlPullParserException | IOException e) {
+                        Log.e(TAG, "Unable to parse " + file.getName(), e);
+                        return new ParsedValuesFile(Collections.emptyList());
+                    }
+                })
+                .collect(Collectors.toList());
+        try {
+            write(values, cacheFile);
+            deleteOtherFiles(cacheDirectory, cacheFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to store the values of " + cacheDirectory, e);
+        }
+        return values;
+    }
+
+    @NonNull
+    static ParsedValuesFile parse(@NonNull Reader reader) throws IOException, XmlPullParserException {
+        XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+        parser.setInput(reader);
+
+        XmlUtils.advanceToRootNode(parser);
+
+        List<Entry> entries = new ArrayList<>();
+        try {
+            while (parser.next() != XmlPullParser.END_DOCUMENT) {
+                if (parser.getEventType() != XmlPullParser.START_TAG) {
+                    continue;
+                }
+
+                try {
+                    Entry entry = parseTag(parser);
+                    if (entry != null) {
+                        entries.add(entry);
+                    }
+                } catch (XmlPullParserException | IOException e) {
+                    Log.w(TAG, "Unable to parse " + parser.getName() + " tag", e);
+                }
+            }
+        } catch (XmlPullParserException e) {
+            // keep the resources before the malformed part of the file
+            Log.e(TAG, "Unable to parse XML", e);
+        }
+        return new ParsedValuesFile(entries);
+    }
+
+    @Nullable
+    private static Entry parseTag(XmlPullParser parser) throws IOException, XmlPullParserException {
+        String tag = parser.getName();
+        switch (tag) {
+            case "string":
+            case "color":
+            case "dimen": {
+                String name = getAttributeValue(parser, "name");
+                String text = XmlUtils.readText(parser);
+                parser.require(XmlPullParser.END_TAG, null, tag);
+                int kind = "string".equals(tag) ? STRING : "color".equals(tag) ? COLOR : DIMEN;
+                return new Entry(kind, name, text, new String[0]);
+            }
+            case "item": {
+                String name = getAttributeValue(parser, "name");
+                String type = getAttributeValue(parser, "type");
+                if (type == null) {
+                    XmlUtils.skip(parser);
+                    return null;
+                }
+                String text = XmlUtils.readText(parser);
+                parser.require(XmlPullParser.END_TAG, null, "item");
+                return new Entry(ITEM, name, text, new String[0]);
+            }
+            case "style":
+                return parseStyleTag(parser);
+            default:
+                XmlUtils.skip(parser);
+                return null;
+        }
+    }
+
+    /**
+     * Reads a style the same way as {@link ResourceStyleParser#parseStyleTag(XmlPullParser)}
+     */
+    private static Entry parseStyleTag(XmlPullParser parser) throws IOException, XmlPullParserException {
+        String name = getAttributeValue(parser, "name");
+        String parent = getAttributeValue(parser, "parent");
+
+        List<String> items = new ArrayList<>();
+        if (parser.next() != XmlPullParser.END_TAG) {
+            int type;
+            final int depth = parser.getDepth();
+            while (((type = parser.next()) != XmlPullParser.END_TAG ||
+                    parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
+                if (type != XmlPullParser.START_TAG) {
+                    continue;
+                }
+
+                if ("item".equals(parser.getName())) {
+                    String itemName = getAttributeValue(parser, "name");
+                    String text = XmlUtils.readText(parser);
+                    if (text.contains("@")) {
+                        text = text.substring(text.indexOf("@"));
+                    }
+                    parser.require(XmlPullParser.END_TAG, null, "item");
+                    items.add(itemName);
+                    items.add(text.trim());
+                } else {
+                    XmlUtils.skip(parser);
+                }
+            }
+        }
+
+        parser.require(XmlPullParser.END_TAG, null, "style");
+        return new Entry(STYLE, name, parent, items.toArray(new String[0]));
+    }
+
+    /**
+     * @return the value of the last attribute with the name, like the resource parsers do
+     */
+    @Nullable
+    private static String getAttributeValue(XmlPullParser parser, String name) {
+        String value = null;
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            if (name.equals(parser.getAttributeName(i))) {
+                value = parser.getAttributeValue(i);
+            }
+        }
+        return value;
+    }
+
+    private static String computeKey(File[] files) {
+        StringBuilder identity = new StringBuilder();
+        for (File file : files) {
+            identity.append(file.getAbsolutePath()).append(':')
+                    .append(file.length()).append(':')
+                    .append(file.lastModified()).append('\n');
+        }
+        return Hashing.sha256().hashString(identity, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Deletes the cache files of previous versions of the files, they are never read again
+     */
+    private static void deleteOtherFiles(File cacheDirectory, File cacheFile) {
+        File[] files = cacheDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            // temporary files may still be written by another preview
+            if (file.equals(cacheFile) || file.getName().endsWith(".tmp")) {
+                continue;
+            }
+            if (!file.delete()) {
+                Log.w(TAG, "Unable to delete " + file);
+            }
+        }
+    }
+
+    private static List<ParsedValuesFile> read(File cacheFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown cache format");
+            }
+            int fileCount = in.readInt();
+            List<ParsedValuesFile> files = new ArrayList<>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                int entryCount = in.readInt();
+                List<Entry> entries = new ArrayList<>(entryCount);
+                for (int j = 0; j < entryCount; j++) {
+                    int kind = in.readByte();
+                    String name = readNullableString(in);
+                    String value = readNullableString(in);
+                    String[] items = new String[in.readInt()];
+                    for (int k = 0; k < items.length; k++) {
+                        items[k] = readNullableString(in);
+                    }
+                    entries.add(new Entry(kind, name, value, items));
+                }
+                files.add(new ParsedValuesFile(entries));
+            }
+            return files;
+        }
+    }
+
+    /**
+     * Writes to a temporary file first so a partially written cache is never read.
+     */
+    private static void write(List<ParsedValuesFile> files, File cacheFile) throws IOException {
+        File parent = cacheFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        File temp = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(files.size());
+            for (ParsedValuesFile file : files) {
+                out.writeInt(file.mEntries.size());
+                for (Entry entry : file.mEntries) {
+                    out.writeByte(entry.kind);
+                    writeNullableString(out, entry.name);
+                    writeNullableString(out, entry.value);
+                    out.writeInt(entry.items.length);
+                    for (String item : entry.items) {
+                        writeNullableString(out, item);
+                    }
+                }
+            }
+        }
+        Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Nullable
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, @Nullable String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+}
@@ -31,13 +31,18 @@ public class ResourceColorParser {
 
         String text = XmlUtils.readText(parser);
 
-        Value value;
-        if (Color.isColor(text)) {
-            value = Color.valueOf(text);
-        } else {
-            value = new Resource(text);
-        }
+        Value value = valueOf(text);
         parser.require(XmlPullParser.END_TAG, null, "color");
         return Pair.create(name, value);
     }
+
+    /**
+     * @return the value of a color resource from its text
+     */
+    public static Value valueOf(String text) {
+        if (Color.isColor(text)) {
+            return Color.valueOf(text);
+        }
+        return new Resource(text);
+    }
 }
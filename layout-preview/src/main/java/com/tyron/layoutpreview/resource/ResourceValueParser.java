@@ -2,7 +2,6 @@ package com.tyron.layoutpreview.resource;
 
 import android.content.res.ColorStateList;
 import android.util.Log;
-import android.util.Pair;
 import android.util.SparseIntArray;
 
 import androidx.annotation.NonNull;
@@ -18,6 +17,7 @@ import com.flipkart.android.proteus.value.Array;
 import com.flipkart.android.proteus.value.Color;
 import com.flipkart.android.proteus.value.DrawableValue;
 import com.flipkart.android.proteus.value.ObjectValue;
+import com.flipkart.android.proteus.value.Primitive;
 import com.flipkart.android.proteus.value.Style;
 import com.flipkart.android.proteus.value.Value;
 import com.google.gson.JsonObject;
@@ -40,11 +40,13 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class ResourceValueParser {
 
@@ -151,27 +153,47 @@ public class ResourceValueParser {
     }
 
     public void parse(@NonNull File[] children, String namePrefix) {
-        for (File child : children) {
-            try {
-                parse(child, namePrefix);
-            } catch (XmlPullParserException e) {
-                Log.e("ResourceValueParser", "Unable to parse XML", e);
-            } catch (IOException e) {
-                Log.e("ResourceValueParser", "File error", e);
+        // the files are parsed in parallel but added in order, so the same resources are kept
+        List<ParsedValuesFile> parsedFiles = Arrays.stream(children)
+                .parallel()
+                .map(child -> {
+                    try {
+                        return ParsedValuesFile.forFile(child);
+                    } catch (XmlPullParserException e) {
+                        Log.e("ResourceValueParser", "Unable to parse XML", e);
+                    } catch (IOException e) {
+                        Log.e("ResourceValueParser", "File error", e);
+                    }
+                    return null;
+                })
+                .collect(Collectors.toList());
+        for (ParsedValuesFile parsedFile : parsedFiles) {
+            if (parsedFile != null) {
+                add(parsedFile, namePrefix);
             }
         }
     }
 
+    /**
+     * Parses the values of the framework, they are read from the cache directory if the files
+     * have not changed since they were last parsed.
+     */
+    public void parseFramework(@NonNull File[] children, String namePrefix, File cacheDirectory) {
+        for (ParsedValuesFile parsedFile : ParsedValuesFile.forFiles(children, cacheDirectory)) {
+            add(parsedFile, namePrefix);
+        }
+    }
+
     private void parse(@NonNull File[] children) {
         parse(children, "");
     }
 
     public void parse(File file, String namePrefix) throws IOException, XmlPullParserException {
-        parse(new InputStreamReader(new FileInputStream(file)), namePrefix);
+        add(ParsedValuesFile.forFile(file), namePrefix);
     }
 
     public void parse(File file) throws IOException, XmlPullParserException {
-        parse(new InputStreamReader(new FileInputStream(file)), "");
+        parse(file, "");
     }
 
     public void parse(String contents) throws IOException, XmlPullParserException {
@@ -179,45 +201,35 @@ public class ResourceValueParser {
     }
 
     public void parse(Reader reader, String namePrefix) throws IOException, XmlPullParserException {
+        add(ParsedValuesFile.parse(reader), namePrefix);
+    }
+
+    private void add(ParsedValuesFile parsedFile, String namePrefix) {
         if (!namePrefix.isEmpty() && !namePrefix.endsWith(":")) {
             namePrefix = namePrefix + ":";
         }
-        XmlPullParser parser;
-
-        parser = XmlPullParserFactory.newInstance().newPullParser();
-        parser.setInput(reader);
-
-        XmlUtils.advanceToRootNode(parser);
-
-        while (parser.next() != XmlPullParser.END_DOCUMENT) {
-            if (parser.getEventType() != XmlPullParser.START_TAG) {
-                continue;
-            }
-
-            try {
-                String tag = parser.getName();
-                switch (tag) {
-                    case "string":
-                        parseStringTag(parser, namePrefix);
-                        break;
-                    case "item":
-                        parseItemTag(parser, namePrefix);
-                        break;
-                    case "style":
-                        parseStyleTag(parser, namePrefix);
-                        break;
-                    case "color":
-                        parseColorTag(parser, namePrefix);
-                        break;
-                    case "dimen":
-                        parseDimension(parser, namePrefix);
-                        break;
-                    default:
-                        XmlUtils.skip(parser);
-                }
 
-            } catch (XmlPullParserException | IOException e) {
-                System.out.println(e);
+        for (ParsedValuesFile.Entry entry : parsedFile.getEntries()) {
+            switch (entry.kind) {
+                case ParsedValuesFile.STRING:
+                    addString(entry.name, new Primitive(entry.value), namePrefix);
+                    break;
+                case ParsedValuesFile.ITEM:
+                    mStrings.put(namePrefix + entry.name, new Primitive(entry.value));
+                    break;
+                case ParsedValuesFile.STYLE:
+                    Style style = new Style(entry.name, entry.value);
+                    for (int i = 0; i < entry.items.length; i += 2) {
+                        style.addValue(entry.items[i], entry.items[i + 1]);
+                    }
+                    addStyle(entry.name, style, namePrefix);
+                    break;
+                case ParsedValuesFile.COLOR:
+                    addColor(entry.name, ResourceColorParser.valueOf(entry.value), namePrefix);
+                    break;
+                case ParsedValuesFile.DIMEN:
+                    mDimensions.put(namePrefix + entry.name, new Primitive(entry.value));
+                    break;
             }
         }
     }
@@ -285,41 +297,21 @@ public class ResourceValueParser {
         }
     }
 
-    private void parseDimension(XmlPullParser parser, String namePrefix) throws IOException,
-            XmlPullParserException {
-        Pair<String, Value> pair = ResourceDimensionParser.parseDimension(parser);
-        mDimensions.put(namePrefix + pair.first, pair.second);
-    }
-
-    private void parseStyleTag(XmlPullParser parser, String namePrefix) throws IOException,
-            XmlPullParserException {
-        Pair<String, Style> pair = ResourceStyleParser.parseStyleTag(parser);
-        if (!mStyles.containsKey(pair.first)) {
-            mStyles.put(namePrefix + pair.first, pair.second);
-        }
-    }
-
-    private void parseStringTag(XmlPullParser parser, String namePrefix) throws IOException,
-            XmlPullParserException {
-        Pair<String, Value> pair = ResourceStringParser.parseStringXmlInternal(parser);
-        if (!mStrings.containsKey(pair.first)) {
-            mStrings.put(namePrefix + pair.first, pair.second);
+    private void addStyle(String name, Style style, String namePrefix) {
+        if (!mStyles.containsKey(name)) {
+            mStyles.put(namePrefix + name, style);
         }
     }
 
-    private void parseColorTag(XmlPullParser parser, String namePrefix) throws IOException,
-            XmlPullParserException {
-        Pair<String, Value> pair = ResourceColorParser.parseColor(parser);
-        if (!mColors.containsKey(pair.first)) {
-            mColors.put(namePrefix + pair.first, pair.second);
+    private void addString(String name, Value value, String namePrefix) {
+        if (!mStrings.containsKey(name)) {
+            mStrings.put(namePrefix + name, value);
         }
     }
 
-    private void parseItemTag(XmlPullParser parser, String namePrefix) throws IOException,
-            XmlPullParserException {
-        Pair<String, Value> pair = ResourceStringParser.parseItemString(parser);
-        if (pair != null) {
-            mStrings.put(namePrefix + pair.first, pair.second);
+    private void addColor(String name, Value value, String namePrefix) {
+        if (!mColors.containsKey(name)) {
+            mColors.put(namePrefix + name, value);
         }
     }
 }
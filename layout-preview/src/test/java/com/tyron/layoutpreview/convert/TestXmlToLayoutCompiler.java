@@ -0,0 +1,147 @@
+package com.tyron.layoutpreview.convert;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.flipkart.android.proteus.value.Array;
+import com.flipkart.android.proteus.value.Layout;
+import com.flipkart.android.proteus.value.Value;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.tyron.layoutpreview.BaseTest;
+import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TestXmlToLayoutCompiler extends BaseTest {
+
+    static final String TEST_LAYOUT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+            "    xmlns:app=\"http://schemas.android.com/apk/res-auto\"\n" +
+            "    android:layout_width=\"match_parent\"\n" +
+            "    android:layout_height=\"match_parent\"\n" +
+            "    android:orientation=\"vertical\"\n" +
+            "    android:padding=\"16dp\">\n" +
+            "\n" +
+            "    <TextView\n" +
+            "        android:id=\"@+id/title\"\n" +
+            "        android:layout_width=\"wrap_content\"\n" +
+            "        android:layout_height=\"wrap_content\"\n" +
+            "        android:layout_gravity=\"center_horizontal\"\n" +
+            "        android:text=\"@string/app_name\"\n" +
+            "        android:textSize=\"18sp\" />\n" +
+            "\n" +
+            "    <LinearLayout\n" +
+            "        android:layout_width=\"match_parent\"\n" +
+            "        android:layout_height=\"wrap_content\"\n" +
+            "        android:orientation=\"horizontal\">\n" +
+            "\n" +
+            "        <Button\n" +
+            "            android:layout_width=\"0dp\"\n" +
+            "            android:layout_height=\"wrap_content\"\n" +
+            "            android:layout_weight=\"1\"\n" +
+            "            android:text=\"Cancel\" />\n" +
+            "\n" +
+            "        <Button\n" +
+            "            android:layout_width=\"0dp\"\n" +
+            "            android:layout_height=\"wrap_content\"\n" +
+            "            android:layout_weight=\"1\"\n" +
+            "            android:text=\"Ok\" />\n" +
+            "    </LinearLayout>\n" +
+            "\n" +
+            "    <com.example.UnknownView\n" +
+            "        android:layout_width=\"match_parent\"\n" +
+            "        android:layout_height=\"48dp\"\n" +
+            "        app:customAttribute=\"value\">\n" +
+            "\n" +
+            "        <View\n" +
+            "            android:layout_width=\"match_parent\"\n" +
+            "            android:layout_height=\"1dp\" />\n" +
+            "    </com.example.UnknownView>\n" +
+            "</LinearLayout>";
+
+    @Test
+    public void testSameLayoutAsJsonConversion() throws Exception {
+        JsonObject object = new XmlToJsonConverter().convert(TEST_LAYOUT);
+        Value expected = new ProteusTypeAdapterFactory(mInflater.getContext())
+                .VALUE_TYPE_ADAPTER.read(new JsonReader(new StringReader(object.toString())), false);
+
+        Layout actual = new XmlToLayoutCompiler(mInflater.getContext()).compile(TEST_LAYOUT);
+
+        assertThat(expected.isLayout()).isTrue();
+        assertSameLayout(expected.getAsLayout(), actual);
+    }
+
+    @Test
+    public void testCachedValuesAreReused() throws Exception {
+        XmlToLayoutCompiler compiler = new XmlToLayoutCompiler(mInflater.getContext());
+        Layout first = compiler.compile(TEST_LAYOUT);
+        Layout second = compiler.compile(TEST_LAYOUT);
+
+        assertThat(second.attributes).isNotNull();
+        for (int i = 0; i < second.attributes.size(); i++) {
+            Value value = second.attributes.get(i).value;
+            if (!value.isArray()) {
+                assertThat(value).isSameInstanceAs(first.attributes.get(i).value);
+            }
+        }
+
+        compiler.clearCache();
+        Layout third = compiler.compile(TEST_LAYOUT);
+        assertSameLayout(first, third);
+    }
+
+    private static void assertSameLayout(Layout expected, Layout actual) {
+        assertThat(actual.type).isEqualTo(expected.type);
+
+        assertThat(getIds(actual.attributes)).isEqualTo(getIds(expected.attributes));
+        if (expected.attributes != null) {
+            for (int i = 0; i < expected.attributes.size(); i++) {
+                assertSameValue(expected.attributes.get(i).value, actual.attributes.get(i).value);
+            }
+        }
+
+        if (expected.extras == null) {
+            assertThat(actual.extras).isNull();
+        } else {
+            assertThat(actual.extras).isNotNull();
+            assertThat(actual.extras.size()).isEqualTo(expected.extras.size());
+            for (Map.Entry<String, Value> entry : expected.extras.entrySet()) {
+                assertThat(actual.extras.has(entry.getKey())).isTrue();
+                assertSameValue(entry.getValue(), actual.extras.get(entry.getKey()));
+            }
+        }
+    }
+
+    private static void assertSameValue(Value expected, Value actual) {
+        if (expected.isLayout()) {
+            assertThat(actual.isLayout()).isTrue();
+            assertSameLayout(expected.getAsLayout(), actual.getAsLayout());
+        } else if (expected.isArray()) {
+            assertThat(actual.isArray()).isTrue();
+            Array expectedArray = expected.getAsArray();
+            Array actualArray = actual.getAsArray();
+            assertThat(actualArray.size()).isEqualTo(expectedArray.size());
+            for (int i = 0; i < expectedArray.size(); i++) {
+                assertSameValue(expectedArray.get(i), actualArray.get(i));
+            }
+        } else {
+            assertThat(actual.getClass()).isEqualTo(expected.getClass());
+            assertThat(actual.toString()).isEqualTo(expected.toString());
+        }
+    }
+
+    private static List<Integer> getIds(List<Layout.Attribute> attributes) {
+        List<Integer> ids = new ArrayList<>();
+        if (attributes != null) {
+            for (Layout.Attribute attribute : attributes) {
+                ids.add(attribute.id);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,80 @@
+package com.tyron.layoutpreview.convert;
+
+import com.flipkart.android.proteus.ProteusContext;
+import com.flipkart.android.proteus.value.Value;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.tyron.layoutpreview.BaseTest;
+import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares compiling a layout with {@link XmlToLayoutCompiler} against converting it to json with
+ * {@link XmlToJsonConverter} and reading the json with {@link ProteusTypeAdapterFactory}. Each
+ * iteration changes one attribute of the layout, like an edit in the layout editor.
+ *
+ * The views need Robolectric so this is not a JMH benchmark, remove the {@link Ignore} annotation
+ * to run it, it is not part of the unit tests.
+ */
+@Ignore("Benchmark, run it manually")
+public class XmlToLayoutCompilerBenchmark extends BaseTest {
+
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASUREMENT_ITERATIONS = 10_000;
+
+    private int mEdit;
+
+    @Test
+    public void benchmark() throws Exception {
+        ProteusContext context = mInflater.getContext();
+        XmlToLayoutCompiler compiler = new XmlToLayoutCompiler(context);
+
+        Runnable json = () -> run(() -> {
+            JsonObject object = new XmlToJsonConverter().convert(nextLayout());
+            return new ProteusTypeAdapterFactory(context).VALUE_TYPE_ADAPTER
+                    .read(new JsonReader(new StringReader(object.toString())), false);
+        });
+        Runnable compiled = () -> run(() -> compiler.compile(nextLayout()));
+
+        measure("warmup json", json, WARMUP_ITERATIONS);
+        measure("warmup compiler", compiled, WARMUP_ITERATIONS);
+        measure("json", json, MEASUREMENT_ITERATIONS);
+        measure("compiler", compiled, MEASUREMENT_ITERATIONS);
+    }
+
+    private String nextLayout() {
+        int padding = mEdit++ % 64;
+        return TestXmlToLayoutCompiler.TEST_LAYOUT
+                .replace("android:padding=\"16dp\"", "android:padding=\"" + padding + "dp\"");
+    }
+
+    private static void measure(String name, Runnable runnable, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runnable.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(name + ": " + TimeUnit.NANOSECONDS.toMicros(elapsed / iterations)
+                + " us/op");
+    }
+
+    private static void run(Compilation compilation) {
+        try {
+            Value value = compilation.compile();
+            if (value == null) {
+                throw new AssertionError();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private interface Compilation {
+        Value compile() throws Exception;
+    }
+}
@@ -0,0 +1,152 @@
+package com.tyron.layoutpreview.inflate;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.flipkart.android.proteus.ProteusView;
+import com.tyron.builder.project.mock.MockAndroidModule;
+import com.tyron.builder.project.mock.MockFileManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class TestLayoutUpdater {
+
+    private static final String HEADER =
+            "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+            "    android:layout_width=\"match_parent\"\n" +
+            "    android:layout_height=\"match_parent\"\n" +
+            "    android:orientation=\"vertical\">\n";
+
+    private static final String FOOTER = "</LinearLayout>";
+
+    private PreviewLayoutInflater mInflater;
+
+    @Before
+    public void setup() {
+        MockAndroidModule module = new MockAndroidModule(null, new MockFileManager(null));
+        mInflater = new PreviewLayoutInflater(ApplicationProvider.getApplicationContext(), module);
+    }
+
+    @Test
+    public void testChangedAttributeIsSetOnSameView() {
+        ProteusView view = mInflater.inflate(layout(textView("first", "Hello")));
+        TextView first = (TextView) getChild(view, 0);
+
+        ProteusView updated = mInflater.update(view, layout(textView("first", "World")));
+
+        assertThat(updated).isSameInstanceAs(view);
+        assertThat(getChild(updated, 0)).isSameInstanceAs(first);
+        assertThat(first.getText().toString()).isEqualTo("World");
+    }
+
+    @Test
+    public void testChildrenAreMatchedByTypeAndId() {
+        ProteusView view = mInflater.inflate(layout(
+                textView("first", "First"),
+                textView("second", "Second"),
+                textView("third", "Third")));
+        Object first = getChild(view, 0);
+        Object third = getChild(view, 2);
+
+        ProteusView updated = mInflater.update(view, layout(
+                textView("first", "First"),
+                imageView("image"),
+                textView("third", "Third")));
+
+        assertThat(updated).isSameInstanceAs(view);
+        ViewGroup group = (ViewGroup) updated.getAsView();
+        assertThat(group.getChildCount()).isEqualTo(3);
+        assertThat(group.getChildAt(0)).isSameInstanceAs(first);
+        assertThat(group.getChildAt(1)).isInstanceOf(ImageView.class);
+        assertThat(group.getChildAt(2)).isSameInstanceAs(third);
+    }
+
+    @Test
+    public void testInsertedChildKeepsFollowingChildren() {
+        ProteusView view = mInflater.inflate(layout(
+                textView("first", "First"),
+                textView("second", "Second")));
+        Object first = getChild(view, 0);
+        Object second = getChild(view, 1);
+
+        ProteusView updated = mInflater.update(view, layout(
+                textView("inserted", "Inserted"),
+                textView("first", "First"),
+                textView("second", "Second")));
+
+        ViewGroup group = (ViewGroup) updated.getAsView();
+        assertThat(group.getChildCount()).isEqualTo(3);
+        assertThat(((TextView) group.getChildAt(0)).getText().toString()).isEqualTo("Inserted");
+        assertThat(group.getChildAt(1)).isSameInstanceAs(first);
+        assertThat(group.getChildAt(2)).isSameInstanceAs(second);
+    }
+
+    @Test
+    public void testRemovedAttributeInflatesChildAgain() {
+        ProteusView view = mInflater.inflate(layout(textView("first", "Hello")));
+        Object first = getChild(view, 0);
+
+        String withoutText = "    <TextView\n" +
+                             "        android:id=\"@+id/first\"\n" +
+                             "        android:layout_width=\"wrap_content\"\n" +
+                             "        android:layout_height=\"wrap_content\" />\n";
+        ProteusView updated = mInflater.update(view, layout(withoutText));
+
+        // the text cannot be unset from the old view, only the child is inflated again
+        assertThat(updated).isSameInstanceAs(view);
+        assertThat(getChild(updated, 0)).isNotSameInstanceAs(first);
+        assertThat(((TextView) getChild(updated, 0)).getText().toString()).isEmpty();
+    }
+
+    @Test
+    public void testChangedRootTypeInflatesLayoutAgain() {
+        ProteusView view = mInflater.inflate(layout(textView("first", "Hello")));
+
+        String frameLayout =
+                "<FrameLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "    android:layout_width=\"match_parent\"\n" +
+                "    android:layout_height=\"match_parent\">\n" +
+                textView("first", "Hello") +
+                "</FrameLayout>";
+        ProteusView updated = mInflater.update(view, frameLayout);
+
+        assertThat(updated).isNotSameInstanceAs(view);
+        assertThat(((ViewGroup) updated.getAsView()).getChildCount()).isEqualTo(1);
+    }
+
+    private static Object getChild(ProteusView view, int index) {
+        return ((ViewGroup) view.getAsView()).getChildAt(index);
+    }
+
+    private static String layout(String... children) {
+        StringBuilder builder = new StringBuilder(HEADER);
+        for (String child : children) {
+            builder.append(child);
+        }
+        return builder.append(FOOTER).toString();
+    }
+
+    private static String textView(String id, String text) {
+        return "    <TextView\n" +
+               "        android:id=\"@+id/" + id + "\"\n" +
+               "        android:layout_width=\"wrap_content\"\n" +
+               "        android:layout_height=\"wrap_content\"\n" +
+               "        android:text=\"" + text + "\" />\n";
+    }
+
+    private static String imageView(String id) {
+        return "    <ImageView\n" +
+               "        android:id=\"@+id/" + id + "\"\n" +
+               "        android:layout_width=\"wrap_content\"\n" +
+               "        android:layout_height=\"wrap_content\" />\n";
+    }
+}
@@ -12,19 +12,25 @@ import com.tyron.completion.xml.util.PartialClassParser;
 import org.apache.bcel.Repository;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.Type;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
 
 /**
  * Scans jar files and saves all the class files that extends {@link View} and has the
@@ -89,6 +95,106 @@ public class BytecodeScanner {
         return viewClasses;
     }
 
+    /**
+     * Finds the view classes of the given jars using only the headers of their classes, the
+     * jars are indexed in parallel and the headers of each jar are stored on disk so they are
+     * not read again until the jar changes.
+     *
+     * Unlike {@link #scan(File)}, the jars do not need to be loaded to the {@link Repository}.
+     * Instead, the returned classes and their super classes from the jars are added to it as
+     * classes that only contain their name, super class and access flags. Super classes that
+     * are not part of the jars are looked up from the {@link Repository}.
+     *
+     * @return the view classes found, in no particular order
+     */
+    public static List<JavaClass> scanViews(Collection<File> jars) {
+        List<Map<String, ClassHeaderIndex.Header>> indexes = jars.parallelStream()
+                .map(jar -> {
+                    try {
+                        return ClassHeaderIndex.forJar(jar);
+                    } catch (IOException e) {
+                        return Collections.<String, ClassHeaderIndex.Header>emptyMap();
+                    }
+                })
+                .collect(Collectors.toList());
+
+        // classes of the earlier jars take precedence, like on a class path
+        Map<String, ClassHeaderIndex.Header> headers = new HashMap<>();
+        for (Map<String, ClassHeaderIndex.Header> index : indexes) {
+            index.forEach(headers::putIfAbsent);
+        }
+
+        Map<String, Boolean> isView = new HashMap<>();
+        Map<String, JavaClass> added = new HashMap<>();
+        List<JavaClass> viewClasses = new ArrayList<>();
+        for (Map.Entry<String, ClassHeaderIndex.Header> entry : headers.entrySet()) {
+            String superClassName = entry.getValue().getSuperClassName();
+            if (superClassName != null && extendsView(superClassName, headers, isView)) {
+                viewClasses.add(addHeaderClass(entry.getKey(), headers, added));
+            }
+        }
+        return viewClasses;
+    }
+
+    /**
+     * Checks whether the class is {@link View} or one of its subclasses
+     */
+    private static boolean extendsView(String className,
+                                       Map<String, ClassHeaderIndex.Header> headers,
+                                       Map<String, Boolean> cache) {
+        Boolean cached = cache.get(className);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result;
+        if (View.class.getName().equals(className)) {
+            result = true;
+        } else {
+            String superClassName = null;
+            ClassHeaderIndex.Header header = headers.get(className);
+            if (header != null) {
+                superClassName = header.getSuperClassName();
+            } else if (!Object.class.getName().equals(className)) {
+                try {
+                    superClassName = Repository.lookupClass(className).getSuperclassName();
+                } catch (ClassNotFoundException e) {
+                    // the class is not available, treat it as a non view class
+                }
+            }
+            // marked first so a cycle in broken class files ends the recursion
+            cache.put(className, false);
+            result = superClassName != null
+                     && !superClassName.equals(className)
+                     && extendsView(superClassName, headers, cache);
+        }
+        cache.put(className, result);
+        return result;
+    }
+
+    /**
+     * Adds the class and its super classes found in the headers to the {@link Repository}
+     */
+    private static JavaClass addHeaderClass(String className,
+                                            Map<String, ClassHeaderIndex.Header> headers,
+                                            Map<String, JavaClass> added) {
+        JavaClass javaClass = added.get(className);
+        if (javaClass != null) {
+            return javaClass;
+        }
+        ClassHeaderIndex.Header header = headers.get(className);
+        String superClassName = header.getSuperClassName();
+        ClassGen classGen = new ClassGen(className, superClassName, className + ".class",
+                header.getAccessFlags(), new String[0]);
+        javaClass = classGen.getJavaClass();
+        added.put(className, javaClass);
+        Repository.addClass(javaClass);
+
+        if (headers.containsKey(superClassName)) {
+            addHeaderClass(superClassName, headers, added);
+        }
+        return javaClass;
+    }
+
     public static boolean isViewGroup(JavaClass javaClass) {
         JavaClass[] superClasses = getSuperClasses(javaClass);
         return Arrays.stream(superClasses)
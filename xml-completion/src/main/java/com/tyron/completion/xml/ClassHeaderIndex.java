@@ -0,0 +1,199 @@
+package com.tyron.completion.xml;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.hash.Hashing;
+import com.tyron.common.ApplicationPaths;
+import com.tyron.completion.xml.util.PartialClassParser;
+
+import org.apache.bcel.classfile.ClassFormatException;
+import org.apache.bcel.classfile.JavaClass;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The name, super class and access flags of every class in a jar, read only from the headers
+ * of the class files.
+ *
+ * This is all that is needed to find the view classes of a library, so the index is stored on
+ * disk keyed by the jar and opening a layout again does not have to parse any class file.
+ */
+public class ClassHeaderIndex {
+
+    private static final String TAG = ClassHeaderIndex.class.getSimpleName();
+
+    private static final int MAGIC = 0x43484458; // CHDX
+    private static final int VERSION = 1;
+
+    public static class Header {
+        private final String mSuperClassName;
+        private final int mAccessFlags;
+
+        Header(@Nullable String superClassName, int accessFlags) {
+            mSuperClassName = superClassName;
+            mAccessFlags = accessFlags;
+        }
+
+        /**
+         * @return the fully qualified name of the super class, null for java.lang.Object
+         */
+        @Nullable
+        public String getSuperClassName() {
+            return mSuperClassName;
+        }
+
+        public int getAccessFlags() {
+            return mAccessFlags;
+        }
+    }
+
+    private static volatile File sIndexDirectory;
+
+    /**
+     * Sets the directory on where the index files will be stored, if this is not set
+     * the cache directory of the application is used.
+     */
+    public static void setIndexDirectory(@Nullable File directory) {
+        sIndexDirectory = directory;
+    }
+
+    @Nullable
+    private static File getIndexDirectory() {
+        File directory = sIndexDirectory;
+        if (directory == null) {
+            try {
+                directory = new File(ApplicationPaths.getCacheDir(), "class-headers");
+            } catch (IllegalStateException e) {
+                // not running inside the application, the index will only be kept in memory
+                return null;
+            }
+            sIndexDirectory = directory;
+        }
+        return directory;
+    }
+
+    /**
+     * Returns the class headers of the jar, reading them from the stored index if the jar
+     * has not changed since it was last indexed. This is safe to call from multiple threads.
+     *
+     * @return the headers of the classes of the jar by their fully qualified name
+     */
+    @NonNull
+    public static Map<String, Header> forJar(@NonNull File jar) throws IOException {
+        File directory = getIndexDirectory();
+        File indexFile = directory == null ? null : new File(directory, computeKey(jar));
+        if (indexFile != null && indexFile.exists()) {
+            try {
+                return read(indexFile);
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to read the class headers of " + jar.getName(), e);
+            }
+        }
+
+        Map<String, Header> headers = readHeaders(jar);
+        if (indexFile != null) {
+            try {
+                write(headers, indexFile);
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to store the class headers of " + jar.getName(), e);
+            }
+        }
+        return headers;
+    }
+
+    @NonNull
+    static String computeKey(@NonNull File jar) {
+        String identity = jar.getAbsolutePath() + ':' + jar.length() + ':' + jar.lastModified();
+        return Hashing.sha256()
+                .hashString(identity, StandardCharsets.UTF_8)
+                .toString();
+    }
+
+    private static Map<String, Header> readHeaders(File jar) throws IOException {
+        Map<String, Header> headers = new HashMap<>();
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    JavaClass javaClass = new PartialClassParser(inputStream, entry.getName()).parse();
+                    String superClassName = javaClass.getSuperclassName();
+                    if (Object.class.getName().equals(javaClass.getClassName())) {
+                        superClassName = null;
+                    }
+                    headers.put(javaClass.getClassName(),
+                            new Header(superClassName, javaClass.getAccessFlags()));
+                } catch (IOException | ClassFormatException e) {
+                    // ignored, keep reading the other classes
+                }
+            }
+        }
+        return headers;
+    }
+
+    private static Map<String, Header> read(File indexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown index format");
+            }
+            int count = in.readInt();
+            Map<String, Header> headers = new HashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                String className = in.readUTF();
+                String superClassName = in.readUTF();
+                int accessFlags = in.readInt();
+                headers.put(className, new Header(
+                        superClassName.isEmpty() ? null : superClassName, accessFlags));
+            }
+            return Collections.unmodifiableMap(headers);
+        }
+    }
+
+    /**
+     * Writes to a temporary file first so a partially written index is never read.
+     */
+    private static void write(Map<String, Header> headers, File indexFile) throws IOException {
+        File parent = indexFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        File temp = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(headers.size());
+            for (Map.Entry<String, Header> entry : headers.entrySet()) {
+                Header header = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeUTF(header.mSuperClassName == null ? "" : header.mSuperClassName);
+                out.writeInt(header.mAccessFlags);
+            }
+        }
+        Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -42,6 +42,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -89,32 +90,24 @@ public class XmlRepository {
         mRepository = new ResourceRepository(module);
         mRepository.initialize();
 
+        Set<File> jars = new LinkedHashSet<>();
         for (File library : module.getLibraries()) {
+            if (library.getName().endsWith(".jar") && library.exists()) {
+                jars.add(library);
+            }
             File parent = library.getParentFile();
             if (parent == null) {
                 continue;
             }
             File classesFile = new File(parent, "classes.jar");
             if (classesFile.exists()) {
-                try {
-                    BytecodeScanner.loadJar(classesFile);
-                } catch (IOException ignored) {
-
-                }
+                jars.add(classesFile);
             }
         }
 
-        for (File library : module.getLibraries()) {
-            try {
-                List<JavaClass> scan =
-                        BytecodeScanner.scan(library);
-                for (JavaClass javaClass : scan) {
-                    StyleUtils.putStyles(javaClass);
-                    mJavaViewClasses.put(javaClass.getClassName(), javaClass);
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        for (JavaClass javaClass : BytecodeScanner.scanViews(jars)) {
+            StyleUtils.putStyles(javaClass);
+            mJavaViewClasses.put(javaClass.getClassName(), javaClass);
         }
 
         addFrameworkViews();
@@ -0,0 +1,39 @@
+package com.tyron.completion.xml.v2.aar;
+
+import com.tyron.completion.xml.v2.base.NamespaceResolver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Process wide pools of the strings and namespace resolvers read from the persistent caches of
+ * AAR resource repositories, so the resource names, values and namespace declarations repeated
+ * across libraries share one instance. Similar to the string cache used by
+ * {@link FrameworkResourceRepository}, but safe to use from repositories loaded in parallel.
+ */
+public final class AarInternPool {
+  private static final Map<String, String> ourStrings = new ConcurrentHashMap<>(16 * 1024);
+  private static final Map<NamespaceResolver, NamespaceResolver> ourNamespaceResolvers = new ConcurrentHashMap<>();
+
+  private AarInternPool() {
+  }
+
+  @NotNull
+  public static Map<String, String> getStringCache() {
+    return ourStrings;
+  }
+
+  @NotNull
+  public static Map<NamespaceResolver, NamespaceResolver> getNamespaceResolverCache() {
+    return ourNamespaceResolvers;
+  }
+
+  /**
+   * Drops the pooled instances, called when the cached repositories are discarded.
+   */
+  public static void clear() {
+    ourStrings.clear();
+    ourNamespaceResolvers.clear();
+  }
+}
@@ -19,7 +19,6 @@ import com.android.utils.Base128InputStream;
 import com.android.utils.Base128OutputStream;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 import com.tyron.common.logging.IdeLog;
 import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.completion.xml.v2.base.BasicFileResourceItem;
@@ -256,7 +255,7 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
       if (!stream.validateContents(fileHeader)) {
         return false; // Cache file header doesn't match.
       }
-      loadFromStream(stream, Maps.newHashMapWithExpectedSize(1000), null);
+      loadFromStream(stream, AarInternPool.getStringCache(), AarInternPool.getNamespaceResolverCache());
 
       populatePublicResourcesMap();
       freezeResources();
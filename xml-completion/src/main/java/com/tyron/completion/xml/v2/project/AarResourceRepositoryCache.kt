@@ -67,6 +67,7 @@ class AarResourceRepositoryCache private constructor() {
     fun clear() {
         myProtoRepositories.invalidateAll()
         mySourceRepositories.invalidateAll()
+        AarInternPool.clear()
     }
 
     private fun createCachingData(library: ExternalAndroidLibrary): CachingData? {
@@ -22,7 +22,8 @@ import org.jetbrains.annotations.Nullable;
  * <ul>
  *   <li>May compute cells in the table on-demand.
  *   <li>May change in the background, if underlying files or other sources of data have changed.
- *       Because of that access should be synchronized on the {@code ITEM_MAP_LOCK} object.
+ *       Because of that access should be synchronized on the {@code ITEM_MAP_LOCK} object, unless
+ *       the repository publishes immutable snapshots of its maps (see {@link #getSnapshot}).
  * </ul>
  */
 public abstract class AbstractResourceRepositoryWithLocking extends AbstractResourceRepository {
@@ -41,13 +42,37 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
   protected abstract ListMultimap<String, ResourceItem> getMap(
       @NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType);
 
+  /**
+   * Returns true if this repository publishes immutable snapshots of its maps through
+   * {@link #getSnapshot}. Lookups in such repositories don't acquire {@link #ITEM_MAP_LOCK}, so
+   * readers are never blocked by a writer updating the repository in the background.
+   */
+  protected boolean publishesSnapshots() {
+    return false;
+  }
+
+  /**
+   * Returns an immutable snapshot of the resources of the given namespace and type. Only called
+   * without holding {@link #ITEM_MAP_LOCK} when {@link #publishesSnapshots()} returns true.
+   * Writers replace the snapshots of the types they change while holding the lock, so a reader
+   * sees either the state before or after a change, never a partial one.
+   *
+   * @return the snapshot, or null if this repository doesn't publish snapshots
+   */
+  @Nullable
+  protected ListMultimap<String, ResourceItem> getSnapshot(
+      @NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    return null;
+  }
+
   @SuppressWarnings("InstanceGuardedByStatic")
   @GuardedBy("ITEM_MAP_LOCK")
   @Override
   @NotNull
   protected ListMultimap<String, ResourceItem> getResourcesInternal(
       @NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
-    ListMultimap<String, ResourceItem> map = getMap(namespace, resourceType);
+    ListMultimap<String, ResourceItem> map = publishesSnapshots() ?
+        getSnapshot(namespace, resourceType) : getMap(namespace, resourceType);
     return map == null ? ImmutableListMultimap.of() : map;
   }
 
@@ -56,6 +81,9 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
   public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
                                          @NotNull ResourceType resourceType,
                                          @NotNull String resourceName) {
+    if (publishesSnapshots()) {
+      return super.getResources(namespace, resourceType, resourceName);
+    }
     synchronized (ITEM_MAP_LOCK) {
       return super.getResources(namespace, resourceType, resourceName);
     }
@@ -66,6 +94,9 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
   public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
                                          @NotNull ResourceType resourceType,
                                          @NotNull Predicate<ResourceItem> filter) {
+    if (publishesSnapshots()) {
+      return super.getResources(namespace, resourceType, filter);
+    }
     synchronized (ITEM_MAP_LOCK) {
       return super.getResources(namespace, resourceType, filter);
     }
@@ -74,6 +105,9 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
   @Override
   @NotNull
   public ListMultimap<String, ResourceItem> getResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    if (publishesSnapshots()) {
+      return super.getResources(namespace, resourceType);
+    }
     synchronized (ITEM_MAP_LOCK) {
       return super.getResources(namespace, resourceType);
     }
@@ -82,6 +116,10 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
   @Override
   @NotNull
   public Set<String> getResourceNames(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    if (publishesSnapshots()) {
+      ListMultimap<String, ResourceItem> map = getSnapshot(namespace, resourceType);
+      return map == null ? ImmutableSet.of() : ImmutableSet.copyOf(map.keySet());
+    }
     synchronized (ITEM_MAP_LOCK) {
       ListMultimap<String, ResourceItem> map = getMap(namespace, resourceType);
       return map == null ? ImmutableSet.of() : ImmutableSet.copyOf(map.keySet());
@@ -90,6 +128,9 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
 
   @Override
   public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType, @NotNull String resourceName) {
+    if (publishesSnapshots()) {
+      return super.hasResources(namespace, resourceType, resourceName);
+    }
     synchronized (ITEM_MAP_LOCK) {
       return super.hasResources(namespace, resourceType, resourceName);
     }
@@ -97,6 +138,9 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
 
   @Override
   public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    if (publishesSnapshots()) {
+      return super.hasResources(namespace, resourceType);
+    }
     synchronized (ITEM_MAP_LOCK) {
       return super.hasResources(namespace, resourceType);
     }
@@ -105,8 +149,11 @@ public abstract class AbstractResourceRepositoryWithLocking extends AbstractReso
   @Override
   @NotNull
   public Set<ResourceType> getResourceTypes(@NotNull ResourceNamespace namespace) {
+    if (publishesSnapshots()) {
+      return super.getResourceTypes(namespace);
+    }
     synchronized (ITEM_MAP_LOCK) {
       return super.getResourceTypes(namespace);
     }
   }
-}
\ No newline at end of file
+}
@@ -9,18 +9,24 @@ import com.android.resources.ResourceType;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hashing;
 import com.tyron.builder.project.api.AndroidContentRoot;
 import com.tyron.builder.project.api.AndroidModule;
+import com.tyron.common.ApplicationPaths;
+import com.tyron.completion.progress.ProgressManager;
 import com.tyron.completion.xml.v2.aar.FrameworkResourceRepository;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 public class ModuleResourceRepository extends MultiResourceRepository implements SingleNamespaceResourceRepository {
@@ -32,6 +38,16 @@ public class ModuleResourceRepository extends MultiResourceRepository implements
 
     private enum SourceSet { MAIN, TEST }
 
+    private static final String RESOURCE_FOLDER_CACHE_DIRECTORY = "caches/resource-folders";
+    /**
+     * Written to the header of the resource folder caches in place of the Android plugin version,
+     * like the one used by {@link AarResourceRepositoryCache}. It must be bumped whenever the way
+     * resource files are parsed into resource items changes, otherwise stale items are loaded from
+     * the existing caches. Changes to the layout of the cache file itself bump
+     * {@link ResourceFolderRepository#CACHE_FILE_FORMAT_VERSION} instead.
+     */
+    private static final String CACHE_CODE_VERSION = "7.4";
+
     /**
      * Creates a new resource repository for the given module, <b>not</b> including its dependent
      * modules.
@@ -91,11 +107,32 @@ public class ModuleResourceRepository extends MultiResourceRepository implements
                     facet,
                     resourceDirectory,
                     ResourceRepositoryManager.getInstance(facet).getNamespace(),
-                    null);
+                    createCachingData(resourceDirectory));
             childRepositories.add(resourceFolderRepository);
         }
     }
 
+    /**
+     * Returns the data used to load and store the persistent cache of the given resource
+     * directory, or null if the cache directory of the application is not available.
+     */
+    @Nullable
+    private static ResourceFolderRepositoryCachingData createCachingData(@NotNull File resourceDirectory) {
+        File cacheDir;
+        try {
+            cacheDir = ApplicationPaths.getCacheDir();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        String pathHash = Hashing.farmHashFingerprint64()
+                .hashUnencodedChars(resourceDirectory.getAbsolutePath())
+                .toString();
+        String fileName = String.format("%s_%s.dat", resourceDirectory.getName(), pathHash);
+        Path cacheFile = Paths.get(cacheDir.getAbsolutePath(), RESOURCE_FOLDER_CACHE_DIRECTORY, fileName);
+        Executor executor = ProgressManager.getInstance()::runNonCancelableAsync;
+        return new ResourceFolderRepositoryCachingData(cacheFile, false, CACHE_CODE_VERSION, executor);
+    }
+
     private ModuleResourceRepository(@NotNull AndroidModule facet,
                                      @NotNull ResourceNamespace namespace,
                                      @NotNull List<? extends LocalResourceRepository> delegates,
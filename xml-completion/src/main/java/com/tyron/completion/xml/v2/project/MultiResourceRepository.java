@@ -13,9 +13,11 @@ import com.android.resources.ResourceType;
 import com.android.utils.TraceUtils;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -71,13 +73,11 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   /** A concatenation of {@link #myLocalResources} and {@link #myLibraryResources}. */
   @GuardedBy("ITEM_MAP_LOCK")
   @NotNull private ImmutableList<ResourceRepository> myChildren = ImmutableList.of();
-  /** Leaf resource repositories keyed by namespace. */
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myLeafsByNamespace =
+  /** Leaf resource repositories keyed by namespace. Written under ITEM_MAP_LOCK, read without it. */
+  @NotNull private volatile ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myLeafsByNamespace =
       ImmutableListMultimap.of();
-  /** Contained single-namespace resource repositories keyed by namespace. */
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myRepositoriesByNamespace =
+  /** Contained single-namespace resource repositories keyed by namespace. Written under ITEM_MAP_LOCK, read without it. */
+  @NotNull private volatile ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myRepositoriesByNamespace =
       ImmutableListMultimap.of();
 
   @GuardedBy("ITEM_MAP_LOCK")
@@ -90,6 +90,13 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   @GuardedBy("ITEM_MAP_LOCK")
   private final ResourceTable myCachedMaps = new ResourceTable();
 
+  /**
+   * Immutable copies of the merged maps that can be read without holding ITEM_MAP_LOCK. The table is
+   * replaced as a whole while holding the lock, a missing cell is merged again on the next lookup.
+   */
+  @NotNull private volatile ImmutableTable<ResourceNamespace, ResourceType, ListMultimap<String, ResourceItem>> mySnapshots =
+      ImmutableTable.of();
+
   /** Names of resources from local leaf repositories. */
   @GuardedBy("ITEM_MAP_LOCK")
   private final Table<SingleNamespaceResourceRepository, ResourceType, Set<String>> myResourceNames =
@@ -146,6 +153,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
         myModificationCounts[i++] = child.getModificationCount();
       }
       myCachedMaps.clear();
+      mySnapshots = ImmutableTable.of();
 
       invalidateParentCaches();
     }
@@ -210,9 +218,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
    */
   @NotNull
   public final List<SingleNamespaceResourceRepository> getRepositoriesForNamespace(@NotNull ResourceNamespace namespace) {
-    synchronized (ITEM_MAP_LOCK) {
-      return myRepositoriesByNamespace.get(namespace);
-    }
+    return myRepositoriesByNamespace.get(namespace);
   }
 
   @Override
@@ -244,26 +250,19 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   @Override
   @NotNull
   public Set<ResourceNamespace> getNamespaces() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myRepositoriesByNamespace.keySet();
-    }
+    return myRepositoriesByNamespace.keySet();
   }
 
   @Override
   @NotNull
   public ResourceVisitor.VisitResult accept(@NotNull ResourceVisitor visitor) {
-    synchronized (ITEM_MAP_LOCK) {
-      for (ResourceNamespace namespace : getNamespaces()) {
-        if (visitor.shouldVisitNamespace(namespace)) {
-          for (ResourceType type : ResourceType.values()) {
-            if (visitor.shouldVisitResourceType(type)) {
-              ListMultimap<String, ResourceItem> map = getMap(namespace, type);
-              if (map != null) {
-                for (ResourceItem item : map.values()) {
-                  if (visitor.visit(item) == ResourceVisitor.VisitResult.ABORT) {
-                    return ResourceVisitor.VisitResult.ABORT;
-                  }
-                }
+    for (ResourceNamespace namespace : getNamespaces()) {
+      if (visitor.shouldVisitNamespace(namespace)) {
+        for (ResourceType type : ResourceType.values()) {
+          if (visitor.shouldVisitResourceType(type)) {
+            for (ResourceItem item : getSnapshot(namespace, type).values()) {
+              if (visitor.visit(item) == ResourceVisitor.VisitResult.ABORT) {
+                return ResourceVisitor.VisitResult.ABORT;
               }
             }
           }
@@ -274,6 +273,68 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     return ResourceVisitor.VisitResult.CONTINUE;
   }
 
+  @Override
+  protected boolean publishesSnapshots() {
+    return true;
+  }
+
+  /**
+   * Returns the merged resources of the given namespace and type. The merge is done lazily, the
+   * first lookup after a child repository has changed merges the resources under ITEM_MAP_LOCK and
+   * publishes an immutable copy that subsequent lookups read without locking.
+   */
+  @Override
+  @NotNull
+  protected ListMultimap<String, ResourceItem> getSnapshot(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    ImmutableList<SingleNamespaceResourceRepository> repositoriesForNamespace = myLeafsByNamespace.get(namespace);
+    if (repositoriesForNamespace.size() == 1) {
+      // Changes of a single leaf don't invalidate the merged maps, so the leaf is always asked directly.
+      return repositoriesForNamespace.get(0).getResources(namespace, type);
+    }
+
+    ListMultimap<String, ResourceItem> snapshot = mySnapshots.get(namespace, type);
+    if (snapshot != null) {
+      return snapshot;
+    }
+
+    synchronized (ITEM_MAP_LOCK) {
+      snapshot = mySnapshots.get(namespace, type);
+      if (snapshot == null) {
+        snapshot = copyOf(getMap(namespace, type));
+        Table<ResourceNamespace, ResourceType, ListMultimap<String, ResourceItem>> snapshots = HashBasedTable.create(mySnapshots);
+        snapshots.put(namespace, type, snapshot);
+        mySnapshots = ImmutableTable.copyOf(snapshots);
+      }
+      return snapshot;
+    }
+  }
+
+  @NotNull
+  private static ImmutableListMultimap<String, ResourceItem> copyOf(@Nullable ListMultimap<String, ResourceItem> map) {
+    if (map == null || map.isEmpty()) {
+      return ImmutableListMultimap.of();
+    }
+    // PerConfigResourceMap only exposes the items visible to readers through keySet and get.
+    ImmutableListMultimap.Builder<String, ResourceItem> builder = ImmutableListMultimap.builder();
+    for (String name : map.keySet()) {
+      builder.putAll(name, map.get(name));
+    }
+    return builder.build();
+  }
+
+  @GuardedBy("ITEM_MAP_LOCK")
+  private void removeSnapshots(@NotNull ResourceNamespace namespace, @NotNull ResourceType... types) {
+    ImmutableTable<ResourceNamespace, ResourceType, ListMultimap<String, ResourceItem>> current = mySnapshots;
+    if (!current.containsRow(namespace)) {
+      return;
+    }
+    Table<ResourceNamespace, ResourceType, ListMultimap<String, ResourceItem>> snapshots = HashBasedTable.create(current);
+    for (ResourceType type : types) {
+      snapshots.remove(namespace, type);
+    }
+    mySnapshots = ImmutableTable.copyOf(snapshots);
+  }
+
   @GuardedBy("ITEM_MAP_LOCK")
   @Override
   @Nullable
@@ -400,6 +461,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   @GuardedBy("ITEM_MAP_LOCK")
   private void clearCachedData() {
     myCachedMaps.clear();
+    mySnapshots = ImmutableTable.of();
     myResourceNames.clear();
     myUnreconciledResources.clear();
   }
@@ -426,6 +488,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     if (leafs.contains(repository)) {
       // Update myUnreconciledResources only if myCachedMaps is used for this namespace.
       if (leafs.size() != 1) {
+        removeSnapshots(namespace, types);
         for (ResourceType type : types) {
           if (myCachedMaps.get(namespace, type) != null) {
             Set<SingleNamespaceResourceRepository> repositories = myUnreconciledResources.get(namespace, type);
@@ -472,9 +535,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   @Override
   @NotNull
   public Collection<SingleNamespaceResourceRepository> getLeafResourceRepositories() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myLeafsByNamespace.values();
-    }
+    return myLeafsByNamespace.values();
   }
 
   @VisibleForTesting
@@ -28,9 +28,12 @@ import com.android.resources.FolderTypeRelationship;
 import com.android.resources.ResourceFolderType;
 import com.android.resources.ResourceType;
 import com.android.resources.ResourceVisibility;
+import com.android.utils.Base128InputStream;
 import com.android.utils.SdkUtils;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.completion.progress.ProgressManager;
@@ -40,6 +43,7 @@ import com.tyron.completion.xml.v2.base.BasicValueResourceItemBase;
 import com.tyron.completion.xml.v2.base.LoadableResourceRepository;
 import com.tyron.completion.xml.v2.base.RepositoryConfiguration;
 import com.tyron.completion.xml.v2.base.RepositoryLoader;
+import com.tyron.completion.xml.v2.base.ResourceSerializationUtil;
 import com.tyron.completion.xml.v2.base.ResourceSourceFile;
 import com.tyron.completion.xml.v2.events.XmlReparsedEvent;
 import com.tyron.completion.xml.v2.events.XmlResourceChangeEvent;
@@ -60,12 +64,16 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -83,6 +91,20 @@ import kotlin.io.FilesKt;
 
 public final class ResourceFolderRepository extends LocalResourceRepository implements LoadableResourceRepository {
 
+    private static final Logger LOG = Logger.getInstance(ResourceFolderRepository.class);
+
+    /**
+     * Increment when making changes that may affect content of repository cache files.
+     * Used together with {@link ResourceFolderRepositoryCachingData#getCodeVersion()}.
+     */
+    static final String CACHE_FILE_FORMAT_VERSION = "1";
+    private static final byte[] CACHE_FILE_HEADER = "Resource folder cache".getBytes(StandardCharsets.UTF_8);
+    /**
+     * The cache file is rewritten when more than this fraction of the XML files had to be
+     * parsed from sources instead of being loaded from the cache.
+     */
+    private static final double CACHE_STALENESS_THRESHOLD = 0.1;
+
     @NotNull
     private final ConcurrentMap<File, ResourceItemSource<?>> mySources = new ConcurrentHashMap<>();
     @SuppressWarnings("InstanceGuardedByStatic")
@@ -90,6 +112,14 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     @NotNull
     private final Map<ResourceType, ListMultimap<String, ResourceItem>> myResourceTable =
             new EnumMap<>(ResourceType.class);
+    /**
+     * Immutable copy of {@link #myResourceTable} read without holding ITEM_MAP_LOCK. The map is
+     * never modified once published, writers replace it with a copy in which only the changed
+     * types are copied again.
+     */
+    @NotNull
+    private volatile Map<ResourceType, ListMultimap<String, ResourceItem>> mySnapshot =
+            new EnumMap<>(ResourceType.class);
     private static final Comparator<ResourceItemSource<?>> SOURCE_COMPARATOR =
             Comparator.comparing(ResourceItemSource::getFolderConfiguration);
 
@@ -136,6 +166,10 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         Loader loader = new Loader(this, cachingData);
         loader.load();
 
+        if (cachingData != null) {
+            scheduleCacheFileCreation(cachingData);
+        }
+
         facet.getProject()
                 .getEventManager()
                 .subscribeEvent(XmlResourceChangeEvent.class, (event, unsubscribe) -> {
@@ -143,6 +177,98 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                 });
     }
 
+    @Override
+    @NotNull
+    public ResourceSourceFile deserializeResourceSourceFile(@NotNull Base128InputStream stream,
+                                                            @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+        return VfsResourceFile.deserialize(stream, configurations);
+    }
+
+    @Override
+    @NotNull
+    public BasicFileResourceItem deserializeFileResourceItem(@NotNull Base128InputStream stream,
+                                                             @NotNull ResourceType resourceType,
+                                                             @NotNull String name,
+                                                             @NotNull ResourceVisibility visibility,
+                                                             @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+        return VfsFileResourceItem.deserialize(stream, resourceType, name, visibility, configurations);
+    }
+
+    /**
+     * Determines whether it is unnecessary to write or update the cache file. If only a few
+     * files were parsed from sources, the cache is fresh enough.
+     *
+     * @return true if this repository is backed by a fresh cache file
+     */
+    boolean hasFreshFileCache() {
+        return myNumXmlFilesLoadedInitiallyFromSources <=
+               myNumXmlFilesLoadedInitially * CACHE_STALENESS_THRESHOLD;
+    }
+
+    int getNumXmlFilesLoadedInitially() {
+        return myNumXmlFilesLoadedInitially;
+    }
+
+    int getNumXmlFilesLoadedInitiallyFromSources() {
+        return myNumXmlFilesLoadedInitiallyFromSources;
+    }
+
+    private void scheduleCacheFileCreation(@NotNull ResourceFolderRepositoryCachingData cachingData) {
+        if (cachingData.getCacheCreationExecutor() == null || hasFreshFileCache()) {
+            return;
+        }
+        cachingData.getCacheCreationExecutor().execute(() -> createCacheFile(cachingData));
+    }
+
+    /**
+     * Writes the resources of this repository to the cache file. Only the resources that can be
+     * validated against their files are written, the ones that were reparsed as DOM after an
+     * edit and non-XML file resources are left out since the latter are derived from the file
+     * path alone.
+     */
+    private void createCacheFile(@NotNull ResourceFolderRepositoryCachingData cachingData) {
+        Map<ResourceType, ListMultimap<String, ResourceItem>> resources = new EnumMap<>(ResourceType.class);
+        for (Map.Entry<ResourceType, ListMultimap<String, ResourceItem>> entry : mySnapshot.entrySet()) {
+            for (ResourceItem item : entry.getValue().values()) {
+                if (isCacheable(item)) {
+                    resources.computeIfAbsent(entry.getKey(), type -> LinkedListMultimap.create())
+                            .put(item.getName(), item);
+                }
+            }
+        }
+
+        Path cacheFile = cachingData.getCacheFile();
+        try {
+            Files.createDirectories(cacheFile.getParent());
+        } catch (IOException e) {
+            LOG.warn("Unable to create the cache directory " + cacheFile.getParent(), e);
+            return;
+        }
+        byte[] header = getCacheFileHeader(cachingData);
+        ResourceSerializationUtil.createPersistentCache(cacheFile, header, stream ->
+                ResourceSerializationUtil.writeResourcesToStream(resources, stream, config -> true));
+    }
+
+    private static boolean isCacheable(@NotNull ResourceItem item) {
+        if (item instanceof VfsFileResourceItem) {
+            return ((VfsFileResourceItem) item).isValid();
+        }
+        if (item instanceof BasicValueResourceItemBase) {
+            ResourceSourceFile sourceFile = ((BasicValueResourceItemBase) item).getSourceFile();
+            return sourceFile instanceof VfsResourceFile && ((VfsResourceFile) sourceFile).isValid();
+        }
+        return false;
+    }
+
+    @NotNull
+    private static byte[] getCacheFileHeader(@NotNull ResourceFolderRepositoryCachingData cachingData) {
+        return ResourceSerializationUtil.getCacheFileHeader(stream -> {
+            stream.write(CACHE_FILE_HEADER);
+            stream.writeString(CACHE_FILE_FORMAT_VERSION);
+            stream.writeString(cachingData.getCodeVersion());
+        });
+    }
+
     private static void addToResult(@NotNull ResourceItem item,
                                     @NotNull Map<ResourceType,
                                             ListMultimap<String, ResourceItem>> result) {
@@ -159,6 +285,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         if (!itemsByType.isEmpty()) {
             synchronized (ITEM_MAP_LOCK) {
                 commitToRepositoryWithoutLock(itemsByType);
+                // The parents may have merged the resources again between the invalidation
+                // done by the caller and this commit.
+                invalidateParentCaches(this, itemsByType.keySet().toArray(new ResourceType[0]));
             }
         }
     }
@@ -176,6 +305,29 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
             ListMultimap<String, ResourceItem> map = getOrCreateMap(entry.getKey());
             map.putAll(entry.getValue());
         }
+        updateSnapshot(itemsByType.keySet());
+    }
+
+    /**
+     * Publishes a new snapshot in which the given types are copied from the resource table.
+     * Safe to call only while holding {@link #ITEM_MAP_LOCK} or during construction.
+     */
+    @SuppressWarnings("GuardedBy")
+    private void updateSnapshot(@NotNull Collection<ResourceType> types) {
+        if (types.isEmpty()) {
+            return;
+        }
+        Map<ResourceType, ListMultimap<String, ResourceItem>> snapshot = new EnumMap<>(ResourceType.class);
+        snapshot.putAll(mySnapshot);
+        for (ResourceType type : types) {
+            ListMultimap<String, ResourceItem> map = myResourceTable.get(type);
+            if (map == null || map.isEmpty()) {
+                snapshot.remove(type);
+            } else {
+                snapshot.put(type, ImmutableListMultimap.copyOf(map));
+            }
+        }
+        mySnapshot = snapshot;
     }
 
     @SuppressWarnings("InstanceGuardedByStatic")
@@ -237,6 +389,21 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         return myResourceTable.get(type);
     }
 
+    @Override
+    protected boolean publishesSnapshots() {
+        return true;
+    }
+
+    @Override
+    protected @NotNull ListMultimap<String, ResourceItem> getSnapshot(@NotNull ResourceNamespace namespace,
+                                                                      @NotNull ResourceType type) {
+        if (!namespace.equals(myNamespace)) {
+            return ImmutableListMultimap.of();
+        }
+        ListMultimap<String, ResourceItem> map = mySnapshot.get(type);
+        return map == null ? ImmutableListMultimap.of() : map;
+    }
+
     @Override
     protected @NotNull Set<File> computeResourceDirs() {
         return Collections.singleton(myResourceDir);
@@ -245,11 +412,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     @Override
     public ResourceVisitor.VisitResult accept(ResourceVisitor visitor) {
         if (visitor.shouldVisitNamespace(myNamespace)) {
-            synchronized (ITEM_MAP_LOCK) {
-                if (acceptByResources(myResourceTable, visitor) ==
-                    ResourceVisitor.VisitResult.ABORT) {
-                    return ResourceVisitor.VisitResult.ABORT;
-                }
+            if (acceptByResources(mySnapshot, visitor) == ResourceVisitor.VisitResult.ABORT) {
+                return ResourceVisitor.VisitResult.ABORT;
             }
         }
 
@@ -355,6 +519,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         boolean changed = false;
 
         synchronized (ITEM_MAP_LOCK) {
+            Set<ResourceType> types = EnumSet.noneOf(ResourceType.class);
             for (ResourceItem item : source) {
                 ListMultimap<String, ResourceItem> map = myResourceTable.get(item.getType());
                 if (map == null) {
@@ -365,6 +530,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                     ResourceItem candidate = iter.next();
                     if (candidate == item) {
                         iter.remove();
+                        types.add(item.getType());
                         changed = true;
                         break;
                     }
@@ -373,6 +539,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                     map.removeAll(item.getName());
                 }
             }
+            updateSnapshot(types);
         }
         return changed;
     }
@@ -464,6 +631,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                             for (DomResourceItem item : idItems) {
                                 domResourceFile.removeItem(item);
                             }
+                            updateSnapshot(Collections.singleton(ResourceType.ID));
                         }
                     }
 
@@ -715,6 +883,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
 
         private final ResourceFolderRepository myRepository;
         private final File myResourceDir;
+        @Nullable
+        private final ResourceFolderRepositoryCachingData myCachingData;
 
         @NotNull
         private final Map<ResourceType, ListMultimap<String, ResourceItem>> myResources =
@@ -732,13 +902,13 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         private PathString myLastPathString;
 
         @NotNull Set<File> myFilesToReparseAsPsi = new HashSet<>();
-        private static final Logger LOG = Logger.getInstance(ResourceFolderRepository.class);
 
         Loader(@NotNull ResourceFolderRepository repository,
                @Nullable ResourceFolderRepositoryCachingData cachingData) {
             super(repository.myResourceDir.toPath(), null, repository.getNamespace());
             myRepository = repository;
             myResourceDir = repository.myResourceDir;
+            myCachingData = cachingData;
             myDefaultVisibility = ResourceVisibility.UNDEFINED;
         }
 
@@ -747,11 +917,57 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                 return;
             }
 
+            long start = System.currentTimeMillis();
+
+            loadFromPersistentCache();
+
+            ProgressManager.checkCanceled();
+
             scanResFolder();
 
             populateRepository();
 
             scanQueuedPsiResources();
+
+            if (myCachingData != null) {
+                LOG.info("Loaded " + myRepository.myNumXmlFilesLoadedInitially + " XML files of " +
+                         myResourceDir + " in " + (System.currentTimeMillis() - start) + " ms, " +
+                         myRepository.myNumXmlFilesLoadedInitiallyFromSources + " parsed from sources");
+            }
+        }
+
+        /**
+         * Loads the resources from the cache file. Resources of files that have changed since
+         * the cache was written are dropped here and those files are parsed again by
+         * {@link #scanResFolder()}.
+         */
+        private void loadFromPersistentCache() {
+            if (myCachingData == null || myCachingData.getCacheIsInvalidated()) {
+                return;
+            }
+
+            byte[] header = getCacheFileHeader(myCachingData);
+            try (Base128InputStream stream = new Base128InputStream(myCachingData.getCacheFile())) {
+                if (!stream.validateContents(header)) {
+                    return; // Cache file header doesn't match.
+                }
+                ResourceSerializationUtil.readResourcesFromStream(stream,
+                        Maps.newHashMapWithExpectedSize(1000), null, myRepository,
+                        item -> addResourceItem(item, myRepository));
+            } catch (NoSuchFileException ignored) {
+                // Cache file does not exist.
+            } catch (ProcessCanceledException e) {
+                cleanupAfterFailedLoadingFromCache();
+                throw e;
+            } catch (Throwable e) {
+                cleanupAfterFailedLoadingFromCache();
+                LOG.warn("Failed to load resources from cache file " + myCachingData.getCacheFile(), e);
+            }
+        }
+
+        private void cleanupAfterFailedLoadingFromCache() {
+            mySources.clear();
+            myFileResources.clear();
         }
 
         /**
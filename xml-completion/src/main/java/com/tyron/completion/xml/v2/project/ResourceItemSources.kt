@@ -4,6 +4,7 @@ import com.android.ide.common.resources.ResourceItem
 import com.android.ide.common.resources.configuration.FolderConfiguration
 import com.android.resources.ResourceFolderType
 import com.android.resources.ResourceFolderType.getFolderType
+import com.android.utils.Base128InputStream
 import com.android.utils.Base128OutputStream
 import com.google.common.collect.ArrayListMultimap
 import com.tyron.completion.xml.v2.base.BasicResourceItem
@@ -55,7 +56,7 @@ internal class VfsResourceFile(
     }
 
     override val relativePath: String?
-        get() = virtualFile?.let { getRelativePath(it, repository.resourceDir) }
+        get() = virtualFile?.let { getRelativePath(it, configuration.repository.origin.toFile()) }
 
     fun isValid(): Boolean = virtualFile != null
 
@@ -68,6 +69,25 @@ internal class VfsResourceFile(
         stream.writeInt(configIndexes.getInt(configuration.folderConfiguration.qualifierString))
         stream.write(FileTimeStampLengthHasher.hash(virtualFile))
     }
+
+    companion object {
+        /**
+         * Creates a VfsResourceFile by reading its contents from the given stream. The returned
+         * file is not valid if the file on disk has changed since it was serialized.
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun deserialize(stream: Base128InputStream, configurations: List<RepositoryConfiguration>): VfsResourceFile {
+            val relativePath = stream.readString() ?: throw Base128InputStream.StreamFormatException.invalidFormat()
+            val configIndex = stream.readInt()
+            val configuration = configurations[configIndex]
+            val virtualFile = File(configuration.repository.origin.toFile(), relativePath)
+            if (!stream.validateContents(FileTimeStampLengthHasher.hash(virtualFile))) {
+                return VfsResourceFile(null, configuration)
+            }
+            return VfsResourceFile(virtualFile, configuration)
+        }
+    }
 }
 
 /** The [ResourceItemSource] of [_root_ide_package_.com.tyron.completion.xml.v2.project.DomResourceItem]s. */
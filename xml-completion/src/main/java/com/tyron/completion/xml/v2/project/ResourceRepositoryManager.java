@@ -13,6 +13,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.tyron.builder.model.CodeAssistAndroidLibrary;
 import com.tyron.builder.model.CodeAssistLibrary;
@@ -26,6 +27,7 @@ import com.tyron.completion.xml.v2.aar.AarResourceRepository;
 import com.tyron.completion.xml.v2.model.Namespacing;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.com.intellij.openapi.diagnostic.Logger;
 import org.jetbrains.kotlin.com.intellij.openapi.util.Disposer;
 import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
 import org.jetbrains.kotlin.com.intellij.psi.util.CachedValue;
@@ -33,10 +35,12 @@ import org.jetbrains.kotlin.com.intellij.psi.util.CachedValue;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -44,6 +48,11 @@ import javax.annotation.Nullable;
 
 public class ResourceRepositoryManager {
 
+    private static final Logger LOG = Logger.getInstance(ResourceRepositoryManager.class);
+
+    /** Libraries taking longer than this to load are reported. */
+    private static final long SLOW_LIBRARY_MILLIS = 1000;
+
     private static final Key<ResourceRepositoryManager> KEY = Key.create(ResourceRepositoryManager.class.getName());
 
     private static final Object APP_RESOURCES_LOCK = new Object();
@@ -84,6 +93,10 @@ public class ResourceRepositoryManager {
 
     private final Object myLibraryLock = new Object();
 
+    /** Time in milliseconds spent loading the resource repository of each library, by library name. */
+    @GuardedBy("myLibraryLock")
+    private Map<String, Long> myLibraryLoadTimes = ImmutableMap.of();
+
     @NotNull
     public static ResourceRepositoryManager getInstance(@NotNull AndroidModule facet) {
         Namespacing namespacing = Strings.isNullOrEmpty(facet.getNamespace()) ?
@@ -330,6 +343,18 @@ public class ResourceRepositoryManager {
         }
     }
 
+    /**
+     * Returns the time in milliseconds it took to load the resource repository of each library,
+     * by library name. Libraries that were already cached take close to no time. Empty if the
+     * library resources have not been computed yet.
+     */
+    @NotNull
+    public Map<String, Long> getLibraryLoadTimes() {
+        synchronized (myLibraryLock) {
+            return myLibraryLoadTimes;
+        }
+    }
+
     @NotNull
     private Map<ExternalAndroidLibrary, AarResourceRepository> computeLibraryResourceMap() {
         List<CodeAssistAndroidLibrary> codeAssistLibraries =
@@ -342,41 +367,69 @@ public class ResourceRepositoryManager {
                 aarResourceRepositoryCache::getSourceRepository :
                 aarResourceRepositoryCache::getProtoRepository;
 
-        ExecutorService executor = Executors.newSingleThreadExecutor();
+        // Construct the repositories in parallel, bounded by the amount of processors.
+        int parallelism = Math.max(1, Math.min(codeAssistLibraries.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                .setNameFormat("aar-resources-%d")
+                .setDaemon(true)
+                .build());
+        Map<String, Long> loadTimes = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
 
-        // Construct the repositories in parallel.
         Map<ExternalAndroidLibrary, Future<AarResourceRepository>> futures = Maps.newHashMapWithExpectedSize(codeAssistLibraries.size());
-        for (CodeAssistAndroidLibrary library : codeAssistLibraries) {
-            if (!library.getResFolder().exists() && library.getResStaticLibrary() == null) {
-                continue;
+        try {
+            for (CodeAssistAndroidLibrary library : codeAssistLibraries) {
+                if (!library.getResFolder().exists() && library.getResStaticLibrary() == null) {
+                    continue;
+                }
+                ExternalLibraryImpl externalLibrary = new ExternalLibraryImpl(library.getDeclaration(),
+                        null,
+                        null,
+                        "",
+                        new RecursiveResourceFolder(toPathString(library.getResFolder())),
+                        null,
+                        toPathString(library.getSymbolFile()),
+                        library.getResStaticLibrary() == null ? null : toPathString(library.getResStaticLibrary())
+                );
+                futures.put(externalLibrary, executor.submit(() -> loadLibrary(externalLibrary, factory, loadTimes)));
             }
-            ExternalLibraryImpl externalLibrary = new ExternalLibraryImpl(library.getDeclaration(),
-                    null,
-                    null,
-                    "",
-                    new RecursiveResourceFolder(toPathString(library.getResFolder())),
-                    null,
-                    toPathString(library.getSymbolFile()),
-                    library.getResStaticLibrary() == null ? null : toPathString(library.getResStaticLibrary())
-            );
-            futures.put(externalLibrary, executor.submit(() -> factory.apply(externalLibrary)));
-        }
 
-        // Gather all the results.
-        ImmutableMap.Builder<ExternalAndroidLibrary, AarResourceRepository> map = ImmutableMap.builder();
-        for (Map.Entry<ExternalAndroidLibrary, Future<AarResourceRepository>> entry : futures.entrySet()) {
-            try {
-                map.put(entry.getKey(), entry.getValue().get());
-            } catch (ExecutionException e) {
-                cancelPendingTasks(futures.values());
-                Throwables.throwIfUnchecked(e.getCause());
-                throw new UncheckedExecutionException(e.getCause());
-            } catch (InterruptedException e) {
-                cancelPendingTasks(futures.values());
-                throw new ProcessCanceledException(e);
+            // Gather all the results.
+            ImmutableMap.Builder<ExternalAndroidLibrary, AarResourceRepository> map = ImmutableMap.builder();
+            for (Map.Entry<ExternalAndroidLibrary, Future<AarResourceRepository>> entry : futures.entrySet()) {
+                try {
+                    map.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    cancelPendingTasks(futures.values());
+                    Throwables.throwIfUnchecked(e.getCause());
+                    throw new UncheckedExecutionException(e.getCause());
+                } catch (InterruptedException e) {
+                    cancelPendingTasks(futures.values());
+                    throw new ProcessCanceledException(e);
+                }
             }
+
+            myLibraryLoadTimes = ImmutableMap.copyOf(loadTimes);
+            LOG.info("Loaded the resources of " + futures.size() + " libraries in "
+                     + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms using "
+                     + parallelism + " threads");
+            return map.build();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static AarResourceRepository loadLibrary(@NotNull ExternalAndroidLibrary library,
+                                                     @NotNull Function<ExternalAndroidLibrary, AarResourceRepository> factory,
+                                                     @NotNull Map<String, Long> loadTimes) {
+        long start = System.nanoTime();
+        AarResourceRepository repository = factory.apply(library);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        loadTimes.put(library.libraryName(), elapsed);
+        if (elapsed > SLOW_LIBRARY_MILLIS) {
+            LOG.warn("Loading the resources of " + library.libraryName() + " took " + elapsed + " ms");
         }
-        return map.build();
+        return repository;
     }
 
     private static void cancelPendingTasks(Collection<Future<AarResourceRepository>> futures) {
@@ -1,8 +1,10 @@
 package com.tyron.completion.xml.v2.project;
 
 import com.android.ide.common.rendering.api.ResourceNamespace;
+import com.android.resources.Density;
 import com.android.resources.ResourceType;
 import com.android.resources.ResourceVisibility;
+import com.android.utils.Base128InputStream;
 import com.android.utils.Base128OutputStream;
 import com.tyron.completion.xml.v2.aar.AarResourceRepository;
 import com.tyron.completion.xml.v2.base.BasicFileResourceItem;
@@ -13,6 +15,7 @@ import it.unimi.dsi.fastutil.objects.Object2IntMap;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -37,7 +40,7 @@ public class VfsFileResourceItem extends BasicFileResourceItem {
                              @NotNull ResourceVisibility visibility,
                              @NotNull String relativePath) {
     this(type, name, configuration, visibility, relativePath,
-         new File(((ResourceFolderRepository) configuration.getRepository()).getResourceDir(), relativePath));
+         new File(configuration.getRepository().getOrigin().toFile(), relativePath));
   }
   /**
    * Initializes the resource.
@@ -68,6 +71,34 @@ public class VfsFileResourceItem extends BasicFileResourceItem {
     stream.write(FileTimeStampLengthHasher.hash(myVirtualFile));
   }
 
+  /**
+   * Creates a VfsFileResourceItem by reading its contents from the given stream. The virtual file of the returned item
+   * is null if the file on disk has changed since the item was serialized.
+   */
+  @NotNull
+  static VfsFileResourceItem deserialize(@NotNull Base128InputStream stream,
+                                         @NotNull ResourceType resourceType,
+                                         @NotNull String name,
+                                         @NotNull ResourceVisibility visibility,
+                                         @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+    String relativePath = stream.readString();
+    if (relativePath == null) {
+      throw Base128InputStream.StreamFormatException.invalidFormat();
+    }
+    RepositoryConfiguration configuration = configurations.get(stream.readInt());
+    int encodedDensity = stream.readInt();
+    File virtualFile = new File(configuration.getRepository().getOrigin().toFile(), relativePath);
+    if (!stream.validateContents(FileTimeStampLengthHasher.hash(virtualFile))) {
+      virtualFile = null;
+    }
+    if (encodedDensity == 0) {
+      return new VfsFileResourceItem(resourceType, name, configuration, visibility, relativePath, virtualFile);
+    }
+
+    Density density = Density.values()[encodedDensity - 1];
+    return new VfsDensityBasedFileResourceItem(resourceType, name, configuration, visibility, relativePath, virtualFile, density);
+  }
+
   @Override
   public boolean equals(@Nullable Object obj) {
       if (this == obj) {
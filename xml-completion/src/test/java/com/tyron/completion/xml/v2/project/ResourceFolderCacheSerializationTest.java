@@ -0,0 +1,228 @@
+package com.tyron.completion.xml.v2.project;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.ide.common.rendering.api.ResourceNamespace;
+import com.android.ide.common.resources.ResourceItem;
+import com.android.ide.common.resources.ResourceVisitor;
+import com.android.ide.common.resources.configuration.FolderConfiguration;
+import com.android.ide.common.util.PathString;
+import com.android.resources.ResourceType;
+import com.android.resources.ResourceVisibility;
+import com.android.utils.Base128InputStream;
+import com.android.utils.Base128OutputStream;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.tyron.completion.xml.v2.base.BasicFileResourceItem;
+import com.tyron.completion.xml.v2.base.BasicResourceItem;
+import com.tyron.completion.xml.v2.base.BasicValueResourceItem;
+import com.tyron.completion.xml.v2.base.LoadableResourceRepository;
+import com.tyron.completion.xml.v2.base.RepositoryConfiguration;
+import com.tyron.completion.xml.v2.base.ResourceSerializationUtil;
+import com.tyron.completion.xml.v2.base.ResourceSourceFile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the resources of a resource folder in the format of its persistent cache and reads
+ * them back, the way {@link ResourceFolderRepository} does.
+ */
+public class ResourceFolderCacheSerializationTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mResourceDir;
+    private File mStringsFile;
+    private File mLayoutFile;
+    private byte[] mCache;
+
+    @Before
+    public void setup() throws IOException {
+        mResourceDir = mFolder.newFolder("res");
+        mStringsFile = write("values/strings.xml",
+                "<resources><string name=\"app_name\">Test</string></resources>");
+        mLayoutFile = write("layout/main.xml", "<FrameLayout />");
+
+        FolderRepository repository = new FolderRepository(mResourceDir);
+        RepositoryConfiguration configuration =
+                new RepositoryConfiguration(repository, new FolderConfiguration());
+        VfsResourceFile sourceFile = new VfsResourceFile(mStringsFile, configuration);
+        BasicValueResourceItem string = new BasicValueResourceItem(ResourceType.STRING,
+                "app_name", sourceFile, ResourceVisibility.UNDEFINED, "Test");
+        sourceFile.addItem(string);
+        VfsFileResourceItem layout = new VfsFileResourceItem(ResourceType.LAYOUT, "main",
+                configuration, ResourceVisibility.UNDEFINED, "layout/main.xml");
+
+        Map<ResourceType, ListMultimap<String, ResourceItem>> resources =
+                new EnumMap<>(ResourceType.class);
+        resources.computeIfAbsent(ResourceType.STRING, type -> ArrayListMultimap.create())
+                .put(string.getName(), string);
+        resources.computeIfAbsent(ResourceType.LAYOUT, type -> ArrayListMultimap.create())
+                .put(layout.getName(), layout);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Base128OutputStream stream = new Base128OutputStream(bytes)) {
+            ResourceSerializationUtil.writeResourcesToStream(resources, stream, config -> true);
+        }
+        mCache = bytes.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Map<String, BasicResourceItem> items = read();
+        assertEquals(2, items.size());
+
+        BasicValueResourceItem string = (BasicValueResourceItem) items.get("app_name");
+        assertEquals("Test", string.getValue());
+        VfsResourceFile sourceFile = (VfsResourceFile) string.getSourceFile();
+        assertTrue(sourceFile.isValid());
+        assertEquals(mStringsFile, sourceFile.getVirtualFile());
+        assertEquals("values/strings.xml", sourceFile.getRelativePath());
+
+        VfsFileResourceItem layout = (VfsFileResourceItem) items.get("main");
+        assertTrue(layout.isValid());
+        assertEquals(mLayoutFile, layout.getVirtualFile());
+        assertEquals(mResourceDir.toPath() + "/layout/main.xml", layout.getValue());
+    }
+
+    @Test
+    public void testChangedFilesAreInvalid() throws IOException {
+        write("layout/main.xml", "<LinearLayout />");
+
+        Map<String, BasicResourceItem> items = read();
+        VfsFileResourceItem layout = (VfsFileResourceItem) items.get("main");
+        assertFalse(layout.isValid());
+        VfsResourceFile sourceFile =
+                (VfsResourceFile) ((BasicValueResourceItem) items.get("app_name")).getSourceFile();
+        assertTrue(sourceFile.isValid());
+
+        write("values/strings.xml", "<resources><string name=\"app_name\">Changed</string></resources>");
+
+        sourceFile = (VfsResourceFile) ((BasicValueResourceItem) read().get("app_name")).getSourceFile();
+        assertFalse(sourceFile.isValid());
+    }
+
+    private Map<String, BasicResourceItem> read() throws IOException {
+        Map<String, BasicResourceItem> items = new HashMap<>();
+        try (Base128InputStream stream = new Base128InputStream(new ByteArrayInputStream(mCache))) {
+            ResourceSerializationUtil.readResourcesFromStream(stream, new HashMap<>(), null,
+                    new FolderRepository(mResourceDir), item -> items.put(item.getName(), item));
+        }
+        return items;
+    }
+
+    private File write(String path, String contents) throws IOException {
+        File file = new File(mResourceDir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * A repository that deserializes its resources like {@link ResourceFolderRepository}
+     * without loading the resource folder.
+     */
+    private static final class FolderRepository extends LocalResourceRepository
+            implements LoadableResourceRepository {
+
+        private final File myResourceDir;
+
+        FolderRepository(File resourceDir) {
+            super("test");
+            myResourceDir = resourceDir;
+        }
+
+        @Override
+        @NotNull
+        public ResourceSourceFile deserializeResourceSourceFile(@NotNull Base128InputStream stream,
+                                                                @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+            return VfsResourceFile.deserialize(stream, configurations);
+        }
+
+        @Override
+        @NotNull
+        public BasicFileResourceItem deserializeFileResourceItem(@NotNull Base128InputStream stream,
+                                                                 @NotNull ResourceType resourceType,
+                                                                 @NotNull String name,
+                                                                 @NotNull ResourceVisibility visibility,
+                                                                 @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+            return VfsFileResourceItem.deserialize(stream, resourceType, name, visibility, configurations);
+        }
+
+        @Override
+        @Nullable
+        protected ListMultimap<String, ResourceItem> getMap(@NotNull ResourceNamespace namespace,
+                                                            @NotNull ResourceType resourceType) {
+            return null;
+        }
+
+        @Override
+        @NotNull
+        protected Set<File> computeResourceDirs() {
+            return Collections.singleton(myResourceDir);
+        }
+
+        @Override
+        @NotNull
+        public ResourceVisitor.VisitResult accept(@NotNull ResourceVisitor visitor) {
+            return ResourceVisitor.VisitResult.CONTINUE;
+        }
+
+        @Override
+        @NotNull
+        public ResourceNamespace getNamespace() {
+            return ResourceNamespace.RES_AUTO;
+        }
+
+        @Override
+        @Nullable
+        public String getPackageName() {
+            return null;
+        }
+
+        @Override
+        @NotNull
+        public Path getOrigin() {
+            return myResourceDir.toPath();
+        }
+
+        @Override
+        @NotNull
+        public String getResourceUrl(@NotNull String relativeResourcePath) {
+            return getOrigin() + "/" + relativeResourcePath;
+        }
+
+        @Override
+        @NotNull
+        public PathString getSourceFile(@NotNull String relativeResourcePath, boolean forFileResource) {
+            return new PathString(getOrigin()).resolve(relativeResourcePath);
+        }
+
+        @Override
+        public boolean containsUserDefinedResources() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.tyron.completion.xml.v2.project;
+
+import com.android.ide.common.rendering.api.ResourceNamespace;
+import com.android.ide.common.resources.ResourceItem;
+import com.android.ide.common.resources.ResourceVisitor;
+import com.android.ide.common.resources.SingleNamespaceResourceRepository;
+import com.android.ide.common.resources.configuration.FolderConfiguration;
+import com.android.ide.common.util.PathString;
+import com.android.resources.ResourceType;
+import com.android.resources.ResourceVisibility;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.tyron.completion.xml.v2.base.BasicValueResourceItem;
+import com.tyron.completion.xml.v2.base.LoadableResourceRepository;
+import com.tyron.completion.xml.v2.base.RepositoryConfiguration;
+import com.tyron.completion.xml.v2.base.ResourceSourceFileImpl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures resource lookups through a {@link MultiResourceRepository} while another thread keeps
+ * replacing the resources of one of its children, like the re-parsing done after each keystroke
+ * in a values file. With {@code snapshots} disabled every lookup takes ITEM_MAP_LOCK, the way the
+ * repositories worked before they published immutable snapshots.
+ *
+ * Run with the main method, it is not part of the unit tests.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceRepositoryContentionBenchmark {
+
+    private static final int STRING_COUNT = 2_000;
+
+    @Param({"false", "true"})
+    public boolean snapshots;
+
+    private StringsRepository editedRepository;
+    private MultiResourceRepository repository;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    @Setup
+    public void setup() {
+        editedRepository = new StringsRepository("edited", snapshots);
+        StringsRepository otherRepository = new StringsRepository("other", snapshots);
+        editedRepository.update(0);
+        otherRepository.update(0);
+
+        boolean publishesSnapshots = snapshots;
+        repository = new MultiResourceRepository("benchmark") {
+            @Override
+            protected boolean publishesSnapshots() {
+                return publishesSnapshots;
+            }
+        };
+        repository.setChildren(ImmutableList.of(editedRepository, otherRepository),
+                ImmutableList.of(), ImmutableList.of());
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(3)
+    public void lookup(Blackhole blackhole) {
+        String name = "string_" + ThreadLocalRandom.current().nextInt(STRING_COUNT);
+        blackhole.consume(repository.getResources(ResourceNamespace.RES_AUTO, ResourceType.STRING, name));
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(1)
+    public void edit() {
+        editedRepository.update(generation.incrementAndGet());
+    }
+
+    /**
+     * A repository of string resources that are all replaced on each update.
+     */
+    private static final class StringsRepository extends LocalResourceRepository
+            implements SingleNamespaceResourceRepository, LoadableResourceRepository {
+
+        private final boolean mySnapshots;
+        private final Path myOrigin;
+        private final RepositoryConfiguration myConfiguration;
+        private final ListMultimap<String, ResourceItem> myStrings = ArrayListMultimap.create();
+        private volatile ListMultimap<String, ResourceItem> mySnapshot = ImmutableListMultimap.of();
+
+        StringsRepository(String name, boolean snapshots) {
+            super(name);
+            mySnapshots = snapshots;
+            myOrigin = Paths.get("/benchmark", name, "res");
+            myConfiguration = new RepositoryConfiguration(this, new FolderConfiguration());
+        }
+
+        void update(int generation) {
+            ResourceSourceFileImpl sourceFile = new ResourceSourceFileImpl("values/strings.xml", myConfiguration);
+            ListMultimap<String, ResourceItem> strings = ArrayListMultimap.create();
+            for (int i = 0; i < STRING_COUNT; i++) {
+                String name = "string_" + i;
+                strings.put(name, new BasicValueResourceItem(ResourceType.STRING, name, sourceFile,
+                        ResourceVisibility.PUBLIC, "value " + generation));
+            }
+            synchronized (ITEM_MAP_LOCK) {
+                myStrings.clear();
+                myStrings.putAll(strings);
+                mySnapshot = ImmutableListMultimap.copyOf(myStrings);
+                setModificationCount(ourModificationCounter.incrementAndGet());
+                invalidateParentCaches(this, ResourceType.STRING);
+            }
+        }
+
+        @Override
+        @Nullable
+        protected ListMultimap<String, ResourceItem> getMap(@NotNull ResourceNamespace namespace,
+                                                            @NotNull ResourceType resourceType) {
+            return resourceType == ResourceType.STRING ? myStrings : null;
+        }
+
+        @Override
+        protected boolean publishesSnapshots() {
+            return mySnapshots;
+        }
+
+        @Override
+        @NotNull
+        protected ListMultimap<String, ResourceItem> getSnapshot(@NotNull ResourceNamespace namespace,
+                                                                 @NotNull ResourceType resourceType) {
+            return resourceType == ResourceType.STRING ? mySnapshot : ImmutableListMultimap.of();
+        }
+
+        @Override
+        @NotNull
+        protected Set<File> computeResourceDirs() {
+            return Collections.singleton(myOrigin.toFile());
+        }
+
+        @Override
+        @NotNull
+        public ResourceVisitor.VisitResult accept(@NotNull ResourceVisitor visitor) {
+            return ResourceVisitor.VisitResult.CONTINUE;
+        }
+
+        @Override
+        @NotNull
+        public ResourceNamespace getNamespace() {
+            return ResourceNamespace.RES_AUTO;
+        }
+
+        @Override
+        @Nullable
+        public String getPackageName() {
+            return null;
+        }
+
+        @Override
+        @NotNull
+        public Path getOrigin() {
+            return myOrigin;
+        }
+
+        @Override
+        @NotNull
+        public String getResourceUrl(@NotNull String relativeResourcePath) {
+            return myOrigin + "/" + relativeResourcePath;
+        }
+
+        @Override
+        @NotNull
+        public PathString getSourceFile(@NotNull String relativeResourcePath, boolean forFileResource) {
+            return new PathString(myOrigin).resolve(relativeResourcePath);
+        }
+
+        @Override
+        public boolean containsUserDefinedResources() {
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResourceRepositoryContentionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}